@@ -15,8 +15,6 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
-import java.util.List;
-
 public class App extends Application {
 
     // Model parameters with default values
@@ -145,8 +143,9 @@ public class App extends Application {
                 solver = new RungeKutta4Solver(derivatives, initialState, 0, endTime, stepSize);
             }
 
-            // Run simulation
-            List<ODESolver.TimeState> results = solver.solve();
+            // Run simulation, only every 10th point is plotted to improve performance
+            solver.setRecordInterval(10);
+            Trajectory results = solver.solve();
 
             // Plot results
             plotResults(results, useEuler);
@@ -169,7 +168,7 @@ public class App extends Application {
         stepSize = Double.parseDouble(stepSizeField.getText());
     }
 
-    private void plotResults(List<ODESolver.TimeState> results, boolean isEuler) {
+    private void plotResults(Trajectory results, boolean isEuler) {
         // Create data series
         XYChart.Series<Number, Number> preySeries = new XYChart.Series<>();
         XYChart.Series<Number, Number> predatorSeries = new XYChart.Series<>();
@@ -179,12 +178,10 @@ public class App extends Application {
         predatorSeries.setName("Predator (" + methodName + ")");
 
         // Populate series with data
-        for (ODESolver.TimeState state : results) {
-            // Only add every 10th point to improve performance
-            if (Math.round(state.time / stepSize) % 10 == 0) {
-                preySeries.getData().add(new XYChart.Data<>(state.time, state.state[0]));
-                predatorSeries.getData().add(new XYChart.Data<>(state.time, state.state[1]));
-            }
+        for (int i = 0; i < results.size(); i++) {
+            double time = results.getTime(i);
+            preySeries.getData().add(new XYChart.Data<>(time, results.get(i, 0)));
+            predatorSeries.getData().add(new XYChart.Data<>(time, results.get(i, 1)));
         }
 
         // Add series to chart
@@ -0,0 +1,293 @@
+package com.ken10.Phase1;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * RK4 for many parameter sets / initial states of the same ParametricOdeFunction,
+ * e.g. sensitivity sweeps over the Lotka-Volterra parameters.
+ * <p>
+ * The members are cut into batches of batchSize. A batch is integrated in structure of
+ * arrays layout ([component * count + member]) so every stage is one loop over all
+ * members, and the batches are spread over a ForkJoinPool. Every member takes exactly
+ * the steps RungeKutta4Solver would take, so the results are the same as solving
+ * them one by one.
+ */
+public class EnsembleSolver {
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final ParametricOdeFunction function;
+    private final double startTime;
+    private final double endTime;
+    private final double stepSize;
+    private final int batchSize;
+    private final ForkJoinPool pool;
+
+    public EnsembleSolver(ParametricOdeFunction function, double startTime, double endTime, double stepSize) {
+        this(function, startTime, endTime, stepSize, DEFAULT_BATCH_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param batchSize members integrated together in one task
+     * @param pool      pool to run the batches on
+     */
+    public EnsembleSolver(ParametricOdeFunction function, double startTime, double endTime, double stepSize,
+                          int batchSize, ForkJoinPool pool) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize has to be at least 1, got " + batchSize);
+        }
+        this.function = function;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.stepSize = stepSize;
+        this.batchSize = batchSize;
+        this.pool = pool;
+    }
+
+    /**
+     * Integrates every member to endTime and keeps only the summary.
+     *
+     * @param parameters    parameters[m] is the parameter vector of member m
+     * @param initialStates initialStates[m] is the initial state of member m
+     */
+    public Summary solve(double[][] parameters, double[][] initialStates) {
+        int members = checkMembers(parameters, initialStates);
+        Summary summary = new Summary(members, initialStates.length == 0 ? 0 : initialStates[0].length);
+        pool.invoke(new BatchTask(parameters, initialStates, summary, null, 0, 0, batches(members)));
+        return summary;
+    }
+
+    /**
+     * Integrates every member to endTime and records its history like ODESolver.solve.
+     *
+     * @param recordInterval only every recordInterval-th step is kept, plus the start and the end
+     */
+    public Trajectory[] solveTrajectories(double[][] parameters, double[][] initialStates, int recordInterval) {
+        if (recordInterval < 1) {
+            throw new IllegalArgumentException("interval has to be at least 1, got " + recordInterval);
+        }
+        int members = checkMembers(parameters, initialStates);
+        Summary summary = new Summary(members, initialStates.length == 0 ? 0 : initialStates[0].length);
+        Trajectory[] trajectories = new Trajectory[members];
+        pool.invoke(new BatchTask(parameters, initialStates, summary, trajectories, recordInterval, 0, batches(members)));
+        return trajectories;
+    }
+
+    private int batches(int members) {
+        return (members + batchSize - 1) / batchSize;
+    }
+
+    private static int checkMembers(double[][] parameters, double[][] initialStates) {
+        if (parameters.length != initialStates.length) {
+            throw new IllegalArgumentException("Got " + parameters.length + " parameter sets but "
+                    + initialStates.length + " initial states");
+        }
+        for (int m = 1; m < parameters.length; m++) {
+            if (parameters[m].length != parameters[0].length || initialStates[m].length != initialStates[0].length) {
+                throw new IllegalArgumentException("Member " + m + " doesn't have the same dimensions as member 0");
+            }
+        }
+        return parameters.length;
+    }
+
+    /**
+     * RK4 over the members [from, to) in SoA layout, writes the results into summary
+     * and, if trajectories isn't null, the history of every member.
+     */
+    private void integrate(double[][] parameters, double[][] initialStates, Summary summary,
+                           Trajectory[] trajectories, int recordInterval, int from, int to) {
+        int count = to - from;
+        int dimension = initialStates[from].length;
+        int parameterCount = parameters[from].length;
+        int len = dimension * count;
+        double[] y = new double[len];
+        double[] params = new double[parameterCount * count];
+        for (int m = 0; m < count; m++) {
+            for (int j = 0; j < dimension; j++) {
+                y[j * count + m] = initialStates[from + m][j];
+            }
+            for (int j = 0; j < parameterCount; j++) {
+                params[j * count + m] = parameters[from + m][j];
+            }
+        }
+        double[] k1 = new double[len];
+        double[] k2 = new double[len];
+        double[] k3 = new double[len];
+        double[] k4 = new double[len];
+        double[] stage = new double[len];
+        double[] min = y.clone();
+        double[] max = y.clone();
+        double[] member = new double[dimension];
+        if (trajectories != null) {
+            for (int m = 0; m < count; m++) {
+                trajectories[from + m] = new Trajectory(dimension);
+            }
+            record(trajectories, from, count, startTime, y, member);
+        }
+
+        double h = stepSize;
+        double time = startTime;
+        long steps = 0;
+        while (time < endTime) {
+            // same stages as RungeKutta4Solver.step, one loop per stage for all members
+            function.evaluateBatch(time, y, params, count, k1);
+            for (int i = 0; i < len; i++) {
+                stage[i] = y[i] + (h / 2) * k1[i];
+            }
+            function.evaluateBatch(time + h / 2, stage, params, count, k2);
+            for (int i = 0; i < len; i++) {
+                stage[i] = y[i] + (h / 2) * k2[i];
+            }
+            function.evaluateBatch(time + h / 2, stage, params, count, k3);
+            for (int i = 0; i < len; i++) {
+                stage[i] = y[i] + h * k3[i];
+            }
+            function.evaluateBatch(time + h, stage, params, count, k4);
+            for (int i = 0; i < len; i++) {
+                y[i] = y[i] + (h / 6) * (k1[i] + 2 * k2[i] + 2 * k3[i] + k4[i]);
+                min[i] = Math.min(min[i], y[i]);
+                max[i] = Math.max(max[i], y[i]);
+            }
+            time += stepSize;
+            steps++;
+            if (trajectories != null && steps % recordInterval == 0) {
+                record(trajectories, from, count, time, y, member);
+            }
+        }
+        if (trajectories != null && steps % recordInterval != 0) {
+            record(trajectories, from, count, time, y, member);
+        }
+        summary.store(from, count, y, min, max);
+    }
+
+    private static void record(Trajectory[] trajectories, int from, int count, double time, double[] y, double[] member) {
+        for (int m = 0; m < count; m++) {
+            for (int j = 0; j < member.length; j++) {
+                member[j] = y[j * count + m];
+            }
+            trajectories[from + m].add(time, member);
+        }
+    }
+
+    private class BatchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final double[][] parameters;
+        private final double[][] initialStates;
+        // tasks are never serialized, the results only live in this JVM
+        private final transient Summary summary;
+        private final transient Trajectory[] trajectories;
+        private final int recordInterval;
+        private final int from;
+        private final int to;
+
+        BatchTask(double[][] parameters, double[][] initialStates, Summary summary,
+                  Trajectory[] trajectories, int recordInterval, int from, int to) {
+            this.parameters = parameters;
+            this.initialStates = initialStates;
+            this.summary = summary;
+            this.trajectories = trajectories;
+            this.recordInterval = recordInterval;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (to > from) {
+                    int first = from * batchSize;
+                    int last = Math.min(parameters.length, first + batchSize);
+                    integrate(parameters, initialStates, summary, trajectories, recordInterval, first, last);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new BatchTask(parameters, initialStates, summary, trajectories, recordInterval, from, mid),
+                    new BatchTask(parameters, initialStates, summary, trajectories, recordInterval, mid, to));
+        }
+    }
+
+    /**
+     * Final state of every member plus the smallest and largest value every component
+     * reached during the run, stored flat as [member * dimension + component].
+     */
+    public static class Summary {
+        private final int members;
+        private final int dimension;
+        private final double[] finalStates;
+        private final double[] min;
+        private final double[] max;
+
+        Summary(int members, int dimension) {
+            this.members = members;
+            this.dimension = dimension;
+            this.finalStates = new double[members * dimension];
+            this.min = new double[members * dimension];
+            this.max = new double[members * dimension];
+        }
+
+        /**
+         * Copies a batch back from SoA layout, batches never overlap so no locking is needed.
+         */
+        void store(int from, int count, double[] y, double[] batchMin, double[] batchMax) {
+            for (int m = 0; m < count; m++) {
+                for (int j = 0; j < dimension; j++) {
+                    int k = (from + m) * dimension + j;
+                    finalStates[k] = y[j * count + m];
+                    min[k] = batchMin[j * count + m];
+                    max[k] = batchMax[j * count + m];
+                }
+            }
+        }
+
+        public int size() {
+            return members;
+        }
+
+        public int getDimension() {
+            return dimension;
+        }
+
+        public double[] getFinalState(int member) {
+            return Arrays.copyOfRange(finalStates, member * dimension, (member + 1) * dimension);
+        }
+
+        public double getFinal(int member, int component) {
+            return finalStates[member * dimension + component];
+        }
+
+        public double getMin(int member, int component) {
+            return min[member * dimension + component];
+        }
+
+        public double getMax(int member, int component) {
+            return max[member * dimension + component];
+        }
+
+        /**
+         * Mean of one component of the final state over all members.
+         */
+        public double mean(int component) {
+            double sum = 0;
+            for (int m = 0; m < members; m++) {
+                sum += finalStates[m * dimension + component];
+            }
+            return sum / members;
+        }
+
+        /**
+         * Sample standard deviation of one component of the final state over all members.
+         */
+        public double standardDeviation(int component) {
+            if (members < 2) return 0;
+            double mean = mean(component);
+            double sum = 0;
+            for (int m = 0; m < members; m++) {
+                double d = finalStates[m * dimension + component] - mean;
+                sum += d * d;
+            }
+            return Math.sqrt(sum / (members - 1));
+        }
+    }
+}
@@ -1,15 +1,17 @@
 package com.ken10.Phase1;
 
 public class EulerSolver extends ODESolver {
+    private final double[] derivatives;
 
     public EulerSolver(OdeFunction derivativeFunction, double[] initialState,
                        double startTime, double endTime, double stepSize) {
         super(derivativeFunction, initialState, startTime, endTime, stepSize);
+        this.derivatives = new double[state.length];
     }
 
     @Override
     public void step() {
-        double[] derivatives = derivativeFunction.evaluate(time, state); // The ODE that we want to solve
+        derivativeFunction.evaluate(time, state, derivatives); // The ODE that we want to solve
 
         // Update each dimension of state
         for (int i = 0; i < state.length; i++) {
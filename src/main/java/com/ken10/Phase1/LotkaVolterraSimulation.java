@@ -1,7 +1,5 @@
 package com.ken10.Phase1;
 
-import java.util.List;
-
 public class LotkaVolterraSimulation {
 
     /**
@@ -31,18 +29,43 @@ public class LotkaVolterraSimulation {
 
         @Override
         public double[] evaluate(double time, double[] state) {
+            double[] derivatives = new double[state.length];
+            evaluate(time, state, derivatives);
+            return derivatives;
+        }
+
+        @Override
+        public void evaluate(double time, double[] state, double[] derivatives) {
             // state[0] = prey population (x)
             // state[1] = predator population (y)
 
-            double[] derivatives = new double[state.length];
-
             // Prey equation: dx/dt = αx - βxy
             derivatives[0] = alpha * state[0] - beta * state[0] * state[1];
 
             // Predator equation: dy/dt = -γy + δxy
             derivatives[1] = -gamma * state[1] + delta * state[0] * state[1];
+        }
+    }
 
-            return derivatives;
+    /**
+     * Lotka-Volterra for EnsembleSolver, the parameter vector is (alpha, beta, gamma, delta)
+     */
+    public static class LotkaVolterraEnsemble implements ParametricOdeFunction {
+
+        @Override
+        public void evaluate(double time, double[] state, double[] p, double[] derivatives) {
+            derivatives[0] = p[0] * state[0] - p[1] * state[0] * state[1];
+            derivatives[1] = -p[2] * state[1] + p[3] * state[0] * state[1];
+        }
+
+        @Override
+        public void evaluateBatch(double time, double[] states, double[] p, int count, double[] out) {
+            for (int m = 0; m < count; m++) {
+                double prey = states[m];
+                double predator = states[count + m];
+                out[m] = p[m] * prey - p[count + m] * prey * predator;
+                out[count + m] = -p[2 * count + m] * predator + p[3 * count + m] * prey * predator;
+            }
         }
     }
 
@@ -73,10 +96,10 @@ public class LotkaVolterraSimulation {
 
         // Run simulations
         System.out.println("Running Euler solver...");
-        List<ODESolver.TimeState> eulerResults = eulerSolver.solve();
+        Trajectory eulerResults = eulerSolver.solve();
 
         System.out.println("Running Runge-Kutta 4 solver...");
-        List<ODESolver.TimeState> rk4Results = rk4Solver.solve();
+        Trajectory rk4Results = rk4Solver.solve();
 
         // Print results at specific time points
         System.out.println("\nEuler Method Results:");
@@ -88,36 +111,41 @@ public class LotkaVolterraSimulation {
         // Compare final states
         System.out.println("\nSimulation complete!");
         System.out.println("Euler final state: Prey=" +
-                eulerResults.get(eulerResults.size() - 1).state[0] +
-                ", Predator=" + eulerResults.get(eulerResults.size() - 1).state[1]);
+                eulerResults.getLast().state[0] +
+                ", Predator=" + eulerResults.getLast().state[1]);
         System.out.println("RK4 final state: Prey=" +
-                rk4Results.get(rk4Results.size() - 1).state[0] +
-                ", Predator=" + rk4Results.get(rk4Results.size() - 1).state[1]);
+                rk4Results.getLast().state[0] +
+                ", Predator=" + rk4Results.getLast().state[1]);
+
+        // Sensitivity of the final state to alpha, +-10% around the value above
+        int members = 1000;
+        double[][] parameters = new double[members][];
+        double[][] initialStates = new double[members][];
+        for (int m = 0; m < members; m++) {
+            double a = alpha * (0.9 + 0.2 * m / (members - 1));
+            parameters[m] = new double[] { a, beta, gamma, delta };
+            initialStates[m] = initialState;
+        }
+        EnsembleSolver ensemble = new EnsembleSolver(new LotkaVolterraEnsemble(), startTime, endTime, stepSize);
+        EnsembleSolver.Summary summary = ensemble.solve(parameters, initialStates);
+        System.out.printf("\nAlpha sweep over %d members: final prey %.2f +- %.2f, final predator %.2f +- %.2f\n",
+                members, summary.mean(0), summary.standardDeviation(0), summary.mean(1), summary.standardDeviation(1));
     }
 
     /**
      * Helper method to print results at specific time points
      */
-    private static void printResults(List<ODESolver.TimeState> results, double... times) {
+    private static void printResults(Trajectory results, double... times) {
         System.out.println("Time\tPrey\tPredator");
         System.out.println("-----------------------------");
 
         for (double targetTime : times) {
             // Find the closest time point in results
-            ODESolver.TimeState closest = null;
-            double minDiff = Double.MAX_VALUE;
-
-            for (ODESolver.TimeState ts : results) {
-                double diff = Math.abs(ts.time - targetTime);
-                if (diff < minDiff) {
-                    minDiff = diff;
-                    closest = ts;
-                }
-            }
+            int closest = results.nearestIndex(targetTime);
 
-            if (closest != null) {
+            if (closest >= 0) {
                 System.out.printf("%.1f\t%.2f\t%.2f\n",
-                        closest.time, closest.state[0], closest.state[1]);
+                        results.getTime(closest), results.get(closest, 0), results.get(closest, 1));
             }
         }
     }
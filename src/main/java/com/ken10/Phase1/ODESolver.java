@@ -1,8 +1,6 @@
 package com.ken10.Phase1;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 
 public abstract class ODESolver {
     protected OdeFunction derivativeFunction;
@@ -10,7 +8,9 @@ public abstract class ODESolver {
     protected double time;
     protected double endTime;
     protected double stepSize;
-    protected List<TimeState> history;
+    protected Trajectory history;
+    // only every recordInterval-th step goes into history
+    protected int recordInterval = 1;
 
     /**
      * Initialize the ODE solver
@@ -30,7 +30,7 @@ public abstract class ODESolver {
         this.time = startTime;
         this.endTime = endTime;
         this.stepSize = stepSize;
-        this.history = new ArrayList<>();
+        this.history = new Trajectory(initialState.length);
         recordState();
     }
 
@@ -46,23 +46,55 @@ public abstract class ODESolver {
      * 
      * @return History of states over time
      */
-    public List<TimeState> solve() {
+    public Trajectory solve() {
+        long steps = 0;
         while (time < endTime) {
             step();
+            steps++;
+            if (steps % recordInterval == 0) {
+                recordState();
+            }
+        }
+        // the final state is always kept
+        if (steps % recordInterval != 0) {
             recordState();
         }
         return history;
     }
 
+    /**
+     * Keep only every interval-th step in history (plus the start and the end),
+     * for long runs where the full resolution isn't needed.
+     */
+    public void setRecordInterval(int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("interval has to be at least 1, got " + interval);
+        }
+        this.recordInterval = interval;
+    }
+
+    /**
+     * Run the simulation until endTime without keeping history, every step is done in place
+     * so this doesn't allocate anything. Useful for Monte Carlo runs where only the end matters.
+     *
+     * @return the state at endTime, this is the solver's own array
+     */
+    public double[] solveFinalState() {
+        while (time < endTime) {
+            step();
+        }
+        return state;
+    }
+
     /**
      * Record current state to history
      */
     protected void recordState() {
-        history.add(new TimeState(time, Arrays.copyOf(state, state.length)));
+        history.add(time, state);
     }
 
     /**
-     * Inner class to store time and state together
+     * Inner class to store time and state together, history hands these out per sample
      */
     public static class TimeState {
         public final double time;
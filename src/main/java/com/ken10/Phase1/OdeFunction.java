@@ -10,4 +10,18 @@ public interface OdeFunction {
      * @return Array of derivatives
      */
     double[] evaluate(double time, double[] state);
+
+    /**
+     * Same as evaluate(time, state) but writes the derivatives into out, so the solvers
+     * can reuse their buffers. The default copies the result of the allocating version,
+     * functions that run a lot should override this one and have the other call it.
+     *
+     * @param time  Current time
+     * @param state Current state vector
+     * @param out   Array for the derivatives, same length as state
+     */
+    default void evaluate(double time, double[] state, double[] out) {
+        double[] derivatives = evaluate(time, state);
+        System.arraycopy(derivatives, 0, out, 0, out.length);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.ken10.Phase1;
+
+/**
+ * ODE right hand side that takes its parameters as a vector, so one instance can be
+ * used for a whole ensemble of parameter sets: dx/dt = f(x, t, p)
+ */
+public interface ParametricOdeFunction {
+    /**
+     * Calculate derivatives for one member
+     *
+     * @param time       Current time
+     * @param state      Current state vector
+     * @param parameters Parameter vector of this member
+     * @param out        Array for the derivatives, same length as state
+     */
+    void evaluate(double time, double[] state, double[] parameters, double[] out);
+
+    /**
+     * Calculate derivatives for count members at once. The arrays are structure of arrays:
+     * component j of member m is at [j * count + m], for states, parameters and out alike.
+     * The default gathers every member and calls evaluate, functions that are cheap per call
+     * should override this with a loop over the members so it vectorizes.
+     */
+    default void evaluateBatch(double time, double[] states, double[] parameters, int count, double[] out) {
+        int dimension = states.length / count;
+        int parameterCount = parameters.length / count;
+        double[] state = new double[dimension];
+        double[] params = new double[parameterCount];
+        double[] derivatives = new double[dimension];
+        for (int m = 0; m < count; m++) {
+            for (int j = 0; j < dimension; j++) {
+                state[j] = states[j * count + m];
+            }
+            for (int j = 0; j < parameterCount; j++) {
+                params[j] = parameters[j * count + m];
+            }
+            evaluate(time, state, params, derivatives);
+            for (int j = 0; j < dimension; j++) {
+                out[j * count + m] = derivatives[j];
+            }
+        }
+    }
+}
@@ -1,10 +1,22 @@
 package com.ken10.Phase1;
 
 public class RungeKutta4Solver extends ODESolver {
+    // stage buffers, allocated once and reused every step
+    private final double[] k1;
+    private final double[] k2;
+    private final double[] k3;
+    private final double[] k4;
+    private final double[] stage;
 
     public RungeKutta4Solver(OdeFunction derivativeFunction, double[] initialState,
                              double startTime, double endTime, double stepSize) {
         super(derivativeFunction, initialState, startTime, endTime, stepSize);
+        int n = state.length;
+        this.k1 = new double[n];
+        this.k2 = new double[n];
+        this.k3 = new double[n];
+        this.k4 = new double[n];
+        this.stage = new double[n];
     }
 
     @Override
@@ -15,31 +27,28 @@ public class RungeKutta4Solver extends ODESolver {
         int n = state.length;
 
         // First stage
-        double[] k1 = derivativeFunction.evaluate(t, y);
+        derivativeFunction.evaluate(t, y, k1);
 
         // Second stage
         double t2 = t + h / 2;
-        double[] y2 = new double[n];
         for (int i = 0; i < n; i++) {
-            y2[i] = y[i] + (h / 2) * k1[i];
+            stage[i] = y[i] + (h / 2) * k1[i];
         }
-        double[] k2 = derivativeFunction.evaluate(t2, y2);
+        derivativeFunction.evaluate(t2, stage, k2);
 
         // Third stage
         double t3 = t + h / 2;
-        double[] y3 = new double[n];
         for (int i = 0; i < n; i++) {
-            y3[i] = y[i] + (h / 2) * k2[i];
+            stage[i] = y[i] + (h / 2) * k2[i];
         }
-        double[] k3 = derivativeFunction.evaluate(t3, y3);
+        derivativeFunction.evaluate(t3, stage, k3);
 
         // Fourth stage
         double t4 = t + h;
-        double[] y4 = new double[n];
         for (int i = 0; i < n; i++) {
-            y4[i] = y[i] + h * k3[i];
+            stage[i] = y[i] + h * k3[i];
         }
-        double[] k4 = derivativeFunction.evaluate(t4, y4);
+        derivativeFunction.evaluate(t4, stage, k4);
 
         // Combine stages to update state
         for (int i = 0; i < n; i++) {
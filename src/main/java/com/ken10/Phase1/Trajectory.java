@@ -0,0 +1,144 @@
+package com.ken10.Phase1;
+
+import java.util.Arrays;
+
+/**
+ * History of an ODESolver stored in columns: one array with the times and one flat
+ * array with the states one after another, both grow by doubling.
+ * Sample i has time getTime(i) and its state at states[i * dimension ...].
+ * Times have to be added in increasing order, the lookups by time rely on it.
+ */
+public class Trajectory {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int dimension;
+    private double[] times;
+    private double[] states;
+    private int size;
+
+    public Trajectory(int dimension) {
+        this(dimension, INITIAL_CAPACITY);
+    }
+
+    /**
+     * @param dimension length of one state vector
+     * @param capacity  number of samples to make room for up front
+     */
+    public Trajectory(int dimension, int capacity) {
+        this.dimension = dimension;
+        this.times = new double[Math.max(1, capacity)];
+        this.states = new double[Math.max(1, capacity) * dimension];
+    }
+
+    /**
+     * Appends a sample, the state is copied.
+     */
+    public void add(double time, double[] state) {
+        if (size == times.length) {
+            times = Arrays.copyOf(times, 2 * size);
+            states = Arrays.copyOf(states, 2 * size * dimension);
+        }
+        times[size] = time;
+        System.arraycopy(state, 0, states, size * dimension, dimension);
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    public double getTime(int i) {
+        checkIndex(i);
+        return times[i];
+    }
+
+    /**
+     * Component j of the state of sample i.
+     */
+    public double get(int i, int j) {
+        checkIndex(i);
+        return states[i * dimension + j];
+    }
+
+    /**
+     * Copies the state of sample i into out.
+     */
+    public void getState(int i, double[] out) {
+        checkIndex(i);
+        System.arraycopy(states, i * dimension, out, 0, dimension);
+    }
+
+    public double[] getState(int i) {
+        double[] out = new double[dimension];
+        getState(i, out);
+        return out;
+    }
+
+    public ODESolver.TimeState getTimeState(int i) {
+        return new ODESolver.TimeState(getTime(i), getState(i));
+    }
+
+    public ODESolver.TimeState getLast() {
+        return getTimeState(size - 1);
+    }
+
+    /**
+     * Index of the last sample at or before time, -1 if time is before the first one.
+     * Binary search, so O(log n).
+     */
+    public int floorIndex(double time) {
+        int lo = 0;
+        int hi = size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid] <= time) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return hi;
+    }
+
+    /**
+     * Index of the sample closest to time, -1 if there are none.
+     */
+    public int nearestIndex(double time) {
+        if (size == 0) return -1;
+        int i = floorIndex(time);
+        if (i < 0) return 0;
+        if (i == size - 1) return i;
+        return time - times[i] <= times[i + 1] - time ? i : i + 1;
+    }
+
+    /**
+     * Every step-th sample, starting with the first. The last sample is always kept
+     * so the end of the run doesn't get lost.
+     */
+    public Trajectory decimate(int step) {
+        if (step < 1) {
+            throw new IllegalArgumentException("step has to be at least 1, got " + step);
+        }
+        Trajectory result = new Trajectory(dimension, (size + step - 1) / step + 1);
+        double[] state = new double[dimension];
+        for (int i = 0; i < size; i += step) {
+            getState(i, state);
+            result.add(times[i], state);
+        }
+        if (size > 0 && (size - 1) % step != 0) {
+            getState(size - 1, state);
+            result.add(times[size - 1], state);
+        }
+        return result;
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Sample " + i + " out of " + size);
+        }
+    }
+}
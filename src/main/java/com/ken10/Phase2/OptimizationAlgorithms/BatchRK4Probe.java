@@ -0,0 +1,208 @@
+package com.ken10.Phase2.OptimizationAlgorithms;
+
+import com.ken10.Phase2.SolarSystemModel.BodyID;
+import com.ken10.Phase2.SolarSystemModel.CelestialBodies;
+import com.ken10.Phase2.SolarSystemModel.GravityCalc;
+import com.ken10.Phase2.SolarSystemModel.Probe;
+import com.ken10.Phase2.SolarSystemModel.Vector;
+import com.ken10.Phase2.StatesCalculations.DenseEphemeris;
+import com.ken10.Phase2.StatesCalculations.Timeline;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Same propagation as RK4Probe, but for a whole batch of probes at once.
+ * <p>
+ * The probe states live in double[] arrays and all probes are advanced together,
+ * so every time step looks the planets up only once for the whole batch instead
+ * of once per probe. Only the closest approach to Titan
+ * (distance and time) is kept per probe, run RK4Probe on a winner to get its history.
+ * <p>
+ * The planets either come from a Timeline or history with entries every stepSizeMin / 2
+ * (like RK4Probe needs) or from a DenseEphemeris, which can have any step since it interpolates.
+ */
+public class BatchRK4Probe {
+    private static final int EARTH = BodyID.EARTH.index();
+    private static final int TITAN = BodyID.TITAN.index();
+
+    private final PlanetTrack track;
+    private final int stepSizeMin;
+
+    // planets at the start, middle and end of the current step, 3 per body
+    private double[] planetsStart = new double[0];
+    private double[] planetsMid = new double[0];
+    private double[] planetsEnd = new double[0];
+    private double[] gm = new double[0];
+    private int nPlanets;
+    private final double[] acc = new double[3];
+
+    private int size;
+    private double[] pos = new double[0];
+    private double[] vel = new double[0];
+    private boolean[] crashed = new boolean[0];
+    private double[] closestDistance = new double[0];
+    // minutes since RK4Probe.startTime
+    private long[] closestDistMinute = new long[0];
+
+    /**
+     * @param historyPlanets indexed once here, see RK4Probe.
+     */
+    public BatchRK4Probe(Map<LocalDateTime, ArrayList<CelestialBodies>> historyPlanets, int stepSizeMin) {
+        this(PlanetTrack.of(historyPlanets), stepSizeMin);
+    }
+
+    public BatchRK4Probe(Timeline timeline, int stepSizeMin) {
+        this(PlanetTrack.of(timeline), stepSizeMin);
+    }
+
+    /**
+     * @param ephemeris planets from RK4Probe.startTime to RK4Probe.endTime, any step size.
+     */
+    public BatchRK4Probe(DenseEphemeris ephemeris, int stepSizeMin) {
+        this(PlanetTrack.of(ephemeris), stepSizeMin);
+    }
+
+    private BatchRK4Probe(PlanetTrack track, int stepSizeMin) {
+        this.track = track;
+        this.stepSizeMin = stepSizeMin;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getClosestDistance(int probe) {
+        return closestDistance[probe];
+    }
+
+    public LocalDateTime getClosestDistTime(int probe) {
+        return RK4Probe.startTime.plusMinutes(closestDistMinute[probe]);
+    }
+
+    /**
+     * Propagates all probes from 2025-04-01 to RK4Probe's end time.
+     * Results can be read with getClosestDistance and getClosestDistTime afterwards.
+     *
+     * @param probes launch states, the probes themselves are not changed.
+     */
+    public void solve(List<Probe> probes) {
+        load(probes);
+        int stepMinutes = stepSizeMin;
+        double h = stepMinutes * 60;
+
+        readMasses();
+        track.positionsAt(0, planetsStart);
+        for (int k = 0; k < size; k++) {
+            closestDistance[k] = distance(k, planetsStart, TITAN);
+            closestDistMinute[k] = 0;
+        }
+
+        int flying = size;
+        for (long minute = 0; minute < RK4Probe.END_MINUTE && flying > 0; minute += stepMinutes) {
+            // collision with earth is only checked right after launch, like RK4Probe
+            if (minute < RK4Probe.LAUNCH_CHECK_MINUTES) {
+                for (int k = 0; k < size; k++) {
+                    if (!crashed[k] && distance(k, planetsStart, EARTH) <= RK4Probe.EARTH_COLLISION_KM) {
+                        crashed[k] = true;
+                        flying--;
+                    }
+                }
+            }
+
+            track.positionsAt(minute + stepMinutes / 2, planetsMid);
+            track.positionsAt(minute + stepMinutes, planetsEnd);
+            for (int k = 0; k < size; k++) {
+                if (crashed[k]) continue;
+                rk4(k, h);
+                // Titan at the old time, same as RK4Probe
+                double distToTitan = distance(k, planetsStart, TITAN);
+                if (distToTitan < closestDistance[k]) {
+                    closestDistance[k] = distToTitan;
+                    closestDistMinute[k] = minute;
+                }
+            }
+
+            // the end of this step is the start of the next one
+            double[] swap = planetsStart;
+            planetsStart = planetsEnd;
+            planetsEnd = swap;
+        }
+    }
+
+    private void load(List<Probe> probes) {
+        size = probes.size();
+        if (crashed.length < size) {
+            pos = new double[3 * size];
+            vel = new double[3 * size];
+            crashed = new boolean[size];
+            closestDistance = new double[size];
+            closestDistMinute = new long[size];
+        }
+        for (int k = 0; k < size; k++) {
+            Vector p = probes.get(k).getPosition();
+            Vector v = probes.get(k).getVelocity();
+            pos[3 * k] = p.getX();
+            pos[3 * k + 1] = p.getY();
+            pos[3 * k + 2] = p.getZ();
+            vel[3 * k] = v.getX();
+            vel[3 * k + 1] = v.getY();
+            vel[3 * k + 2] = v.getZ();
+            crashed[k] = false;
+        }
+    }
+
+    private void readMasses() {
+        if (nPlanets != track.bodyCount()) {
+            nPlanets = track.bodyCount();
+            planetsStart = new double[3 * nPlanets];
+            planetsMid = new double[3 * nPlanets];
+            planetsEnd = new double[3 * nPlanets];
+        }
+        gm = track.gm();
+    }
+
+    private double distance(int probe, double[] planets, int body) {
+        int a = 3 * probe, b = 3 * body;
+        return Vector.distance(pos[a], pos[a + 1], pos[a + 2], planets[b], planets[b + 1], planets[b + 2]);
+    }
+
+    /**
+     * One RK4 step of probe k, the planets move along the history.
+     */
+    private void rk4(int k, double h) {
+        int a = 3 * k;
+        double x = pos[a], y = pos[a + 1], z = pos[a + 2];
+        double vx = vel[a], vy = vel[a + 1], vz = vel[a + 2];
+
+        //1st step RK4
+        double k1vx = vx, k1vy = vy, k1vz = vz;
+        GravityCalc.accelerationAt(planetsStart, gm, nPlanets, x, y, z, acc, 0);
+        double k1ax = acc[0], k1ay = acc[1], k1az = acc[2];
+
+        //2nd step RK4
+        double k2vx = vx + k1ax * (h / 2), k2vy = vy + k1ay * (h / 2), k2vz = vz + k1az * (h / 2);
+        GravityCalc.accelerationAt(planetsMid, gm, nPlanets,
+                x + k1vx * (h / 2), y + k1vy * (h / 2), z + k1vz * (h / 2), acc, 0);
+        double k2ax = acc[0], k2ay = acc[1], k2az = acc[2];
+
+        //3rd step RK4
+        double k3vx = vx + k2ax * (h / 2), k3vy = vy + k2ay * (h / 2), k3vz = vz + k2az * (h / 2);
+        GravityCalc.accelerationAt(planetsMid, gm, nPlanets,
+                x + k2vx * (h / 2), y + k2vy * (h / 2), z + k2vz * (h / 2), acc, 0);
+        double k3ax = acc[0], k3ay = acc[1], k3az = acc[2];
+
+        //4th step RK4
+        double k4vx = vx + k3ax * h, k4vy = vy + k3ay * h, k4vz = vz + k3az * h;
+        GravityCalc.accelerationAt(planetsEnd, gm, nPlanets, x + k3vx * h, y + k3vy * h, z + k3vz * h, acc, 0);
+
+        pos[a] = (k1vx + 2 * k2vx + 2 * k3vx + k4vx) * (h / 6) + x;
+        pos[a + 1] = (k1vy + 2 * k2vy + 2 * k3vy + k4vy) * (h / 6) + y;
+        pos[a + 2] = (k1vz + 2 * k2vz + 2 * k3vz + k4vz) * (h / 6) + z;
+        vel[a] = (k1ax + 2 * k2ax + 2 * k3ax + acc[0]) * (h / 6) + vx;
+        vel[a + 1] = (k1ay + 2 * k2ay + 2 * k3ay + acc[1]) * (h / 6) + vy;
+        vel[a + 2] = (k1az + 2 * k2az + 2 * k3az + acc[2]) * (h / 6) + vz;
+    }
+}
@@ -0,0 +1,168 @@
+package com.ken10.Phase2.OptimizationAlgorithms;
+
+import com.ken10.Phase2.SolarSystemModel.BodyID;
+import com.ken10.Phase2.SolarSystemModel.CelestialBodies;
+import com.ken10.Phase2.SolarSystemModel.Probe;
+import com.ken10.Phase2.SolarSystemModel.SolarSystem;
+import com.ken10.Phase2.SolarSystemModel.Vector;
+import com.ken10.Phase2.StatesCalculations.BulirschStoerSolver;
+import com.ken10.Phase2.StatesCalculations.DenseEphemeris;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+
+/**
+ * Probe propagation with BulirschStoerSolver instead of RK4Probe.
+ * <p>
+ * The probe flies along with the planets as a test particle, so it doesn't need a
+ * planet history with the right step size and the steps can be hours long in cruise,
+ * whatever the output interval. The closest approach to Titan is checked after every
+ * internal step, the minimum inside the step is searched on the cubic Hermite through
+ * the relative states at both ends like EnckeProbe does, so it doesn't depend on how
+ * long the steps are.
+ * <p>
+ * Like RK4Probe, a probe that comes within EARTH_COLLISION_KM of earth's centre in the
+ * first LAUNCH_CHECK_MINUTES crashed, the run stops there.
+ */
+public final class BulirschStoerProbe extends BulirschStoerSolver {
+    private static final int TITAN = BodyID.TITAN.index();
+    private static final int EARTH = BodyID.EARTH.index();
+    private static final LocalDateTime startTime = LocalDateTime.of(2025, 4, 1, 0, 0, 0);
+    private static final long START_SECONDS = toSeconds(startTime);
+    private static final double GOLDEN = (Math.sqrt(5) - 1) / 2;
+
+    private final Probe launchProbe;
+    private final int probeSlot;
+    private final int titanSlot;
+    private final int earthSlot;
+    private boolean crashed;
+    private double closestDistance;
+    private LocalDateTime closestDistTime = startTime;
+    // probe relative to Titan at the start and the end of the last step, position then velocity
+    private final double[] relativeStart = new double[6];
+    private final double[] relativeEnd = new double[6];
+    private final double[] basis = new double[4];
+
+    /**
+     * @param probe launch state at 2025-04-01.
+     * @param stepSizeMins output interval of history in minutes, the solver picks its own steps.
+     * @param absTol absolute tolerance, km and km/s.
+     * @param relTol relative tolerance.
+     */
+    public BulirschStoerProbe(Probe probe, int stepSizeMins, double absTol, double relTol) {
+        super(withProbe(probe), startTime, RK4Probe.endTime, stepSizeMins, absTol, relTol);
+        this.launchProbe = new Probe(probe.getName(), probe.getPosition().copy(), probe.getVelocity().copy());
+        this.probeSlot = slotOf(planetarySystem.size() - 1);
+        this.titanSlot = slotOf(TITAN);
+        this.earthSlot = slotOf(EARTH);
+        closestDistance = distanceTo(titanSlot);
+        relativeToTitan(relativeStart);
+        checkCrash(0);
+    }
+
+    public BulirschStoerProbe(Probe probe, int stepSizeMins) {
+        this(probe, stepSizeMins, DEFAULT_ABS_TOL, DEFAULT_REL_TOL);
+    }
+
+    private static ArrayList<CelestialBodies> withProbe(Probe probe) {
+        ArrayList<CelestialBodies> bodies = SolarSystem.createPlanets();
+        bodies.add(probe.withState(probe.getPosition(), probe.getVelocity()));
+        return bodies;
+    }
+
+    @Override
+    protected void afterStep(double time, double h) {
+        relativeToTitan(relativeEnd);
+        double best = 1;
+        double distance = distanceAt(h, 1);
+        // golden section, the curve is short enough that the distance has one minimum on it
+        double lo = 0, hi = 1;
+        double m1 = hi - GOLDEN * (hi - lo), m2 = lo + GOLDEN * (hi - lo);
+        double d1 = distanceAt(h, m1), d2 = distanceAt(h, m2);
+        for (int i = 0; i < 40; i++) {
+            if (d1 < d2) {
+                hi = m2;
+                m2 = m1;
+                d2 = d1;
+                m1 = hi - GOLDEN * (hi - lo);
+                d1 = distanceAt(h, m1);
+            } else {
+                lo = m1;
+                m1 = m2;
+                d1 = d2;
+                m2 = lo + GOLDEN * (hi - lo);
+                d2 = distanceAt(h, m2);
+            }
+        }
+        if (Math.min(d1, d2) < distance) {
+            best = d1 < d2 ? m1 : m2;
+            distance = Math.min(d1, d2);
+        }
+        if (distance < closestDistance) {
+            closestDistance = distance;
+            double at = time - h + best * h;
+            long whole = (long) Math.floor(at);
+            closestDistTime = toDateTime(whole).plusNanos(Math.round((at - whole) * 1e9));
+        }
+        System.arraycopy(relativeEnd, 0, relativeStart, 0, 6);
+        checkCrash(time - START_SECONDS);
+    }
+
+    /**
+     * Distance to Titan at fraction s of a step h seconds long, on the curve through relativeStart and relativeEnd.
+     */
+    private double distanceAt(double h, double s) {
+        DenseEphemeris.hermiteBasis(s, h, basis);
+        return Vector.magnitude(hermite(0), hermite(1), hermite(2));
+    }
+
+    private double hermite(int k) {
+        return basis[0] * relativeStart[k] + basis[1] * relativeStart[3 + k]
+                + basis[2] * relativeEnd[k] + basis[3] * relativeEnd[3 + k];
+    }
+
+    /**
+     * Probe state relative to Titan in the integrator state (yPos, yVel).
+     */
+    private void relativeToTitan(double[] out) {
+        int p = 3 * probeSlot, t = 3 * titanSlot;
+        for (int k = 0; k < 3; k++) {
+            out[k] = yPos[p + k] - yPos[t + k];
+            out[3 + k] = yVel[p + k] - yVel[t + k];
+        }
+    }
+
+    /**
+     * @param sinceLaunch seconds from launch to the integrator state.
+     */
+    private void checkCrash(double sinceLaunch) {
+        if (sinceLaunch < 60 * RK4Probe.LAUNCH_CHECK_MINUTES && distanceTo(earthSlot) <= RK4Probe.EARTH_COLLISION_KM) {
+            crashed = true;
+            stop();
+        }
+    }
+
+    private double distanceTo(int slot) {
+        int p = 3 * probeSlot, b = 3 * slot;
+        return Vector.distance(yPos[p], yPos[p + 1], yPos[p + 2], yPos[b], yPos[b + 1], yPos[b + 2]);
+    }
+
+    /**
+     * True if the probe hit earth right after launch, the run stopped there.
+     */
+    public boolean hasCrashed() {
+        return crashed;
+    }
+
+    public double getClosestDistance() {
+        return closestDistance;
+    }
+
+    public LocalDateTime getClosestDistTime() {
+        return closestDistTime;
+    }
+
+    public Probe getInitialProbe() {
+        return launchProbe;
+    }
+}
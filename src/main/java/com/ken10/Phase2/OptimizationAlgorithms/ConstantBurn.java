@@ -0,0 +1,34 @@
+package com.ken10.Phase2.OptimizationAlgorithms;
+
+import com.ken10.Phase2.SolarSystemModel.Dual;
+import com.ken10.Phase2.SolarSystemModel.DualVector;
+
+/**
+ * Constant acceleration (ax, ay, az) in km/s^2 between start and end, in seconds since launch.
+ * The three components are the parameters.
+ */
+public class ConstantBurn implements ParametricThrust {
+    private final double start;
+    private final double end;
+    private final double[] acceleration;
+
+    public ConstantBurn(double start, double end, double ax, double ay, double az) {
+        this.start = start;
+        this.end = end;
+        this.acceleration = new double[]{ax, ay, az};
+    }
+
+    @Override
+    public double[] getParameters() {
+        return acceleration.clone();
+    }
+
+    @Override
+    public DualVector acceleration(double seconds, DualVector position, DualVector velocity, Dual[] parameters) {
+        if (seconds < start || seconds >= end) {
+            Dual zero = Dual.constant(0, parameters[0].size());
+            return new DualVector(zero, zero, zero);
+        }
+        return new DualVector(parameters[0], parameters[1], parameters[2]);
+    }
+}
@@ -0,0 +1,247 @@
+package com.ken10.Phase2.OptimizationAlgorithms;
+
+import com.ken10.Phase2.SolarSystemModel.BodyID;
+import com.ken10.Phase2.SolarSystemModel.CelestialBodies;
+import com.ken10.Phase2.SolarSystemModel.Dual;
+import com.ken10.Phase2.SolarSystemModel.GravityCalc;
+import com.ken10.Phase2.SolarSystemModel.MutableDualVector;
+import com.ken10.Phase2.SolarSystemModel.Probe;
+import com.ken10.Phase2.SolarSystemModel.Vector;
+import com.ken10.Phase2.StatesCalculations.Timeline;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * RK4Probe on dual numbers (forward-mode automatic differentiation).
+ * <p>
+ * The inputs are the launch position (0..2), the launch velocity (3..5) and the parameters
+ * of an optional ParametricThrust (6..). The probe is propagated with MutableDualVectors,
+ * so the closest distance to Titan comes out together with its exact derivative with
+ * respect to every input, no finite differences needed.
+ * <p>
+ * The derivatives of the gravity are the gravity gradient times those of the position,
+ * so a step costs one RK4 step with the gradient (like StmRK4Probe) plus 3x3 times the
+ * inputs per stage, and allocates nothing without a thrust. A thrust works on immutable
+ * DualVectors and allocates per stage. Steps are the same as RK4Probe, so is the
+ * closest distance.
+ */
+public class DualRK4Probe {
+    private static final int EARTH = BodyID.EARTH.index();
+    private static final int TITAN = BodyID.TITAN.index();
+    public static final int POSITION = 0;
+    public static final int VELOCITY = 3;
+    public static final int THRUST = 6;
+
+    private final Probe launchProbe;
+    private final PlanetTrack track;
+    private final int stepSizeMin;
+    private final ParametricThrust thrust;
+    private final int size;
+
+    private double[] planetsStart;
+    private double[] planetsMid;
+    private double[] planetsEnd;
+    private double[] gm;
+    private int nPlanets;
+    private Dual[] parameters;
+
+    private MutableDualVector position;
+    private MutableDualVector velocity;
+    // RK4 stages, reused every step
+    private MutableDualVector stagePosition;
+    private MutableDualVector v2;
+    private MutableDualVector v3;
+    private MutableDualVector v4;
+    private MutableDualVector k1v;
+    private MutableDualVector k2v;
+    private MutableDualVector k3v;
+    private MutableDualVector k4v;
+    private MutableDualVector sum;
+    private final double[] acc = new double[3];
+    private final double[] jacobian = new double[9];
+
+    private double closestDistance;
+    private double[] closestGradient;
+    private long closestDistMinute;
+
+    /**
+     * @param historyPlanets indexed once here, see RK4Probe.
+     * @param thrust engine burn to differentiate through, null for a coasting probe.
+     */
+    public DualRK4Probe(Probe probe, Map<LocalDateTime, ArrayList<CelestialBodies>> historyPlanets,
+                        int stepSizeMin, ParametricThrust thrust) {
+        this(probe, PlanetTrack.of(historyPlanets), stepSizeMin, thrust);
+    }
+
+    public DualRK4Probe(Probe probe, Timeline timeline, int stepSizeMin, ParametricThrust thrust) {
+        this(probe, PlanetTrack.of(timeline), stepSizeMin, thrust);
+    }
+
+    private DualRK4Probe(Probe probe, PlanetTrack track, int stepSizeMin, ParametricThrust thrust) {
+        this.launchProbe = new Probe(probe.getName(), probe.getPosition().copy(), probe.getVelocity().copy());
+        this.track = track;
+        this.stepSizeMin = stepSizeMin;
+        this.thrust = thrust;
+        this.size = THRUST + (thrust == null ? 0 : thrust.getParameters().length);
+    }
+
+    public void solve() {
+        int stepMinutes = stepSizeMin;
+        double h = stepMinutes * 60;
+        nPlanets = track.bodyCount();
+        gm = track.gm();
+        planetsStart = new double[3 * nPlanets];
+        planetsMid = new double[3 * nPlanets];
+        planetsEnd = new double[3 * nPlanets];
+        track.positionsAt(0, planetsStart);
+
+        parameters = new Dual[size - THRUST];
+        if (thrust != null) {
+            double[] values = thrust.getParameters();
+            for (int i = 0; i < values.length; i++) {
+                parameters[i] = Dual.variable(values[i], size, THRUST + i);
+            }
+        }
+        position = MutableDualVector.variable(launchProbe.getPosition(), size, POSITION);
+        velocity = MutableDualVector.variable(launchProbe.getVelocity(), size, VELOCITY);
+        stagePosition = new MutableDualVector(size);
+        v2 = new MutableDualVector(size);
+        v3 = new MutableDualVector(size);
+        v4 = new MutableDualVector(size);
+        k1v = new MutableDualVector(size);
+        k2v = new MutableDualVector(size);
+        k3v = new MutableDualVector(size);
+        k4v = new MutableDualVector(size);
+        sum = new MutableDualVector(size);
+        closestGradient = new double[size];
+        closestDistance = closestApproach(planetsStart);
+        closestDistMinute = 0;
+
+        for (long minute = 0; minute < RK4Probe.END_MINUTE; minute += stepMinutes) {
+            if (minute < RK4Probe.LAUNCH_CHECK_MINUTES
+                    && distanceTo(planetsStart, EARTH) <= RK4Probe.EARTH_COLLISION_KM) break;
+
+            track.positionsAt(minute + stepMinutes / 2, planetsMid);
+            track.positionsAt(minute + stepMinutes, planetsEnd);
+            rk4(minute * 60.0, h);
+
+            // Titan at the old time, same as RK4Probe
+            if (distanceTo(planetsStart, TITAN) < closestDistance) {
+                closestDistance = closestApproach(planetsStart);
+                closestDistMinute = minute;
+            }
+
+            double[] swap = planetsStart;
+            planetsStart = planetsEnd;
+            planetsEnd = swap;
+        }
+    }
+
+    private double distanceTo(double[] planets, int body) {
+        int b = 3 * body;
+        return Vector.distance(position.getX(), position.getY(), position.getZ(), planets[b], planets[b + 1], planets[b + 2]);
+    }
+
+    /**
+     * Distance to Titan with its gradient, kept in closestGradient.
+     */
+    private double closestApproach(double[] planets) {
+        int b = 3 * TITAN;
+        return position.distance(planets[b], planets[b + 1], planets[b + 2], closestGradient);
+    }
+
+    /**
+     * One RK4 step, k's are (velocity, acceleration) pairs.
+     *
+     * @param t seconds since launch at the start of the step.
+     */
+    private void rk4(double t, double h) {
+        // k1x is the velocity itself
+        acceleration(planetsStart, t, position, velocity, k1v);
+
+        stagePosition.set(position).addScaled(velocity, h / 2);
+        v2.set(velocity).addScaled(k1v, h / 2);
+        acceleration(planetsMid, t + h / 2, stagePosition, v2, k2v);
+
+        stagePosition.set(position).addScaled(v2, h / 2);
+        v3.set(velocity).addScaled(k2v, h / 2);
+        acceleration(planetsMid, t + h / 2, stagePosition, v3, k3v);
+
+        stagePosition.set(position).addScaled(v3, h);
+        v4.set(velocity).addScaled(k3v, h);
+        acceleration(planetsEnd, t + h, stagePosition, v4, k4v);
+
+        position.add(sum.set(velocity).addScaled(v2, 2).addScaled(v3, 2).add(v4).scale(h / 6));
+        velocity.add(sum.set(k1v).addScaled(k2v, 2).addScaled(k3v, 2).add(k4v).scale(h / 6));
+    }
+
+    private void acceleration(double[] planets, double t, MutableDualVector x, MutableDualVector v,
+                              MutableDualVector out) {
+        GravityCalc.gravityGradientAt(planets, gm, nPlanets, x.getX(), x.getY(), x.getZ(), acc, jacobian);
+        out.chain(acc, jacobian, x);
+        if (thrust != null) {
+            out.add(thrust.acceleration(t, x.toDualVector(), v.toDualVector(), parameters));
+        }
+    }
+
+    public double getClosestDistance() {
+        return closestDistance;
+    }
+
+    public LocalDateTime getClosestDistTime() {
+        return RK4Probe.startTime.plusMinutes(closestDistMinute);
+    }
+
+    public Probe getInitialProbe() {
+        return launchProbe;
+    }
+
+    public int getStepSizeMin() {
+        return stepSizeMin;
+    }
+
+    /**
+     * Derivatives of the closest distance with respect to all inputs,
+     * indexed by POSITION, VELOCITY and THRUST.
+     */
+    public double[] getDistanceGradient() {
+        return closestGradient.clone();
+    }
+
+    /**
+     * @return km per km of launch position.
+     */
+    public Vector getPositionGradient() {
+        return gradientAt(POSITION);
+    }
+
+    /**
+     * @return km per km/s of launch velocity, same as StmRK4Probe.getDistanceGradient.
+     */
+    public Vector getVelocityGradient() {
+        return gradientAt(VELOCITY);
+    }
+
+    /**
+     * @return km per unit of each thrust parameter, empty without a thrust.
+     */
+    public double[] getThrustGradient() {
+        double[] g = new double[size - THRUST];
+        for (int i = 0; i < g.length; i++) {
+            g[i] = closestGradient[THRUST + i];
+        }
+        return g;
+    }
+
+    private Vector gradientAt(int index) {
+        return new Vector(closestGradient[index], closestGradient[index + 1], closestGradient[index + 2]);
+    }
+
+    @Override
+    public String toString() {
+        return "Dual closest distance to Titan: " + getClosestDistance() + " at " + getClosestDistTime()
+                + ", velocity gradient " + getVelocityGradient();
+    }
+}
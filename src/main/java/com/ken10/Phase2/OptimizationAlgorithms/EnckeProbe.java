@@ -0,0 +1,393 @@
+package com.ken10.Phase2.OptimizationAlgorithms;
+
+import com.ken10.Phase2.SolarSystemModel.BodyID;
+import com.ken10.Phase2.SolarSystemModel.CelestialBodies;
+import com.ken10.Phase2.SolarSystemModel.KeplerOrbit;
+import com.ken10.Phase2.SolarSystemModel.Probe;
+import com.ken10.Phase2.SolarSystemModel.Vector;
+import com.ken10.Phase2.StatesCalculations.DenseEphemeris;
+import com.ken10.Phase2.StatesCalculations.Timeline;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * RK4Probe with Encke's method: the probe is a two-body conic (KeplerOrbit) around the
+ * body that pulls on it the most, and RK4 only integrates the small deviation from it.
+ * <p>
+ * The conic takes care of the big 1/r^2 term exactly, so the step size only has to
+ * resolve the perturbations and stays usable through a flyby. The conic is rectified
+ * (restarted from the current state with zero deviation) when the dominant body
+ * changes or the deviation grows past RECTIFY_RATIO of the distance to it.
+ * Stepping and the planets are the same as RK4Probe. The closest approach is not: the
+ * probe is compared with Titan at the same time and the minimum inside a step is searched
+ * on the conic while Titan is the primary, or on a cubic through the relative states at
+ * both ends of the step before that. Otherwise long steps would miss the encounter by a
+ * whole step of relative motion.
+ */
+public class EnckeProbe {
+    public static final double RECTIFY_RATIO = 1e-2;
+    private static final double GOLDEN = (Math.sqrt(5) - 1) / 2;
+
+    private static final int SUN = BodyID.SUN.index();
+    private static final int EARTH = BodyID.EARTH.index();
+    private static final int TITAN = BodyID.TITAN.index();
+
+    private final Probe launchProbe;
+    private final PlanetTrack track;
+    private final int stepSizeMin;
+    private double closestDistance;
+    // seconds since RK4Probe.startTime
+    private long closestDistSeconds;
+    private int rectifications;
+
+    private double[] planetsStart;
+    private double[] planetsMid;
+    private double[] planetsEnd;
+    private double[] gm;
+    private int nPlanets;
+
+    // conic around primary, epoch in seconds since startTime
+    private int primary;
+    private KeplerOrbit orbit;
+    private double epoch;
+    private double seconds;
+    // deviation from the conic
+    private final double[] dPos = new double[3];
+    private final double[] dVel = new double[3];
+    private final double[] reference = new double[3];
+    private final double[] referenceVel = new double[3];
+    private final double[] probe = new double[3];
+    // relative to the primary
+    private final double[] probeVel = new double[3];
+    private final double[] acc = new double[3];
+    // probe relative to Titan (position, velocity) at the start and end of the step
+    private final double[] relativeStart = new double[6];
+    private final double[] relativeEnd = new double[6];
+    private final double[] deviationStart = new double[6];
+    private final double[] conic = new double[3];
+    private final double[] basis = new double[4];
+    // velocity of the primary and of another body, from the track
+    private final double[] primaryVel = new double[3];
+    private final double[] bodyVel = new double[3];
+
+    /**
+     * @param historyPlanets indexed once here, see RK4Probe.
+     */
+    public EnckeProbe(Probe probe, Map<LocalDateTime, ArrayList<CelestialBodies>> historyPlanets, int stepSizeMin) {
+        this(probe, PlanetTrack.of(historyPlanets), stepSizeMin);
+    }
+
+    public EnckeProbe(Probe probe, Timeline timeline, int stepSizeMin) {
+        this(probe, PlanetTrack.of(timeline), stepSizeMin);
+    }
+
+    private EnckeProbe(Probe probe, PlanetTrack track, int stepSizeMin) {
+        this.launchProbe = new Probe(probe.getName(), probe.getPosition().copy(), probe.getVelocity().copy());
+        this.track = track;
+        this.stepSizeMin = stepSizeMin;
+    }
+
+    public double getClosestDistance() {
+        return closestDistance;
+    }
+
+    public LocalDateTime getClosestDistTime() {
+        return RK4Probe.startTime.plusSeconds(closestDistSeconds);
+    }
+
+    public Probe getInitialProbe() {
+        return launchProbe;
+    }
+
+    public int getStepSizeMin() {
+        return stepSizeMin;
+    }
+
+    /**
+     * @return how often the reference conic was restarted.
+     */
+    public int getRectifications() {
+        return rectifications;
+    }
+
+    public void solve() {
+        int stepMinutes = stepSizeMin;
+        double h = stepMinutes * 60;
+        nPlanets = track.bodyCount();
+        gm = track.gm();
+        planetsStart = new double[3 * nPlanets];
+        planetsMid = new double[3 * nPlanets];
+        planetsEnd = new double[3 * nPlanets];
+        track.positionsAt(0, planetsStart);
+
+        Vector p = launchProbe.getPosition();
+        Vector v = launchProbe.getVelocity();
+        probe[0] = p.getX();
+        probe[1] = p.getY();
+        probe[2] = p.getZ();
+        probeVel[0] = v.getX();
+        probeVel[1] = v.getY();
+        probeVel[2] = v.getZ();
+        seconds = 0;
+        rectifications = 0;
+        // the pinned sun doesn't move, so this is the velocity relative to it
+        primary = SUN;
+        rectify(0, dominantBody());
+        closestDistance = distance(planetsStart, TITAN);
+        closestDistSeconds = 0;
+        System.arraycopy(planetsStart, 0, planetsEnd, 0, planetsStart.length);
+        relativeToTitan(0, relativeStart);
+
+        for (long minute = 0; minute < RK4Probe.END_MINUTE; minute += stepMinutes) {
+            if (minute < RK4Probe.LAUNCH_CHECK_MINUTES && distance(planetsStart, EARTH) <= RK4Probe.EARTH_COLLISION_KM) break;
+
+            long next = minute + stepMinutes;
+            track.positionsAt(minute + stepMinutes / 2, planetsMid);
+            track.positionsAt(next, planetsEnd);
+            rk4(h);
+            seconds += h;
+            absoluteState(planetsEnd);
+            closestApproach(next, 60 * minute, h);
+
+            double[] swap = planetsStart;
+            planetsStart = planetsEnd;
+            planetsEnd = swap;
+
+            int dominant = dominantBody();
+            double deviation = Vector.magnitude(dPos[0], dPos[1], dPos[2]);
+            if (dominant != primary
+                    || deviation > RECTIFY_RATIO * Vector.magnitude(reference[0], reference[1], reference[2])) {
+                rectify(next, dominant);
+            }
+        }
+    }
+
+    /**
+     * Starts a new conic around body from the current probe state.
+     */
+    private void rectify(long minute, int body) {
+        velocity(minute, primary, primaryVel);
+        velocity(minute, body, bodyVel);
+        primary = body;
+        int b = 3 * body;
+        double[] relPos = {probe[0] - planetsStart[b], probe[1] - planetsStart[b + 1], probe[2] - planetsStart[b + 2]};
+        double[] relVel = {
+                probeVel[0] + primaryVel[0] - bodyVel[0],
+                probeVel[1] + primaryVel[1] - bodyVel[1],
+                probeVel[2] + primaryVel[2] - bodyVel[2]};
+        orbit = new KeplerOrbit(gm[body], relPos, relVel);
+        epoch = seconds;
+        System.arraycopy(relPos, 0, reference, 0, 3);
+        dPos[0] = dPos[1] = dPos[2] = 0;
+        dVel[0] = dVel[1] = dVel[2] = 0;
+        rectifications++;
+    }
+
+    // the sun is pinned, its velocity in the history doesn't move it
+    private void velocity(long minute, int body, double[] out) {
+        if (body == SUN) {
+            out[0] = out[1] = out[2] = 0;
+        } else {
+            track.velocityAt(minute, body, out);
+        }
+    }
+
+    /**
+     * Probe position (absolute) and velocity (relative to the primary) from conic plus deviation.
+     */
+    private void absoluteState(double[] planets) {
+        orbit.propagate(seconds - epoch, reference, referenceVel);
+        int b = 3 * primary;
+        for (int c = 0; c < 3; c++) {
+            probe[c] = planets[b + c] + reference[c] + dPos[c];
+            probeVel[c] = referenceVel[c] + dVel[c];
+        }
+    }
+
+    /**
+     * Minimum distance to Titan during the step that ends now. The relative position
+     * over the step is the cubic Hermite curve through the relative states at both ends.
+     */
+    private void closestApproach(long minute, long stepStart, double h) {
+        relativeToTitan(minute, relativeEnd);
+        double best = 1;
+        double distance = distanceAt(h, 1);
+        // golden section, the curve is short enough that the distance has one minimum on it
+        double lo = 0, hi = 1;
+        double m1 = hi - GOLDEN * (hi - lo), m2 = lo + GOLDEN * (hi - lo);
+        double d1 = distanceAt(h, m1), d2 = distanceAt(h, m2);
+        for (int i = 0; i < 40; i++) {
+            if (d1 < d2) {
+                hi = m2;
+                m2 = m1;
+                d2 = d1;
+                m1 = hi - GOLDEN * (hi - lo);
+                d1 = distanceAt(h, m1);
+            } else {
+                lo = m1;
+                m1 = m2;
+                d1 = d2;
+                m2 = lo + GOLDEN * (hi - lo);
+                d2 = distanceAt(h, m2);
+            }
+        }
+        if (Math.min(d1, d2) < distance) {
+            best = d1 < d2 ? m1 : m2;
+            distance = Math.min(d1, d2);
+        }
+        if (distance < closestDistance) {
+            closestDistance = distance;
+            closestDistSeconds = stepStart + Math.round(best * h);
+        }
+        System.arraycopy(relativeEnd, 0, relativeStart, 0, 6);
+    }
+
+    /**
+     * Distance to Titan at fraction s of the step. Around Titan the conic is the exact
+     * curve and only the deviation gets interpolated, anywhere else the relative states.
+     */
+    private double distanceAt(double h, double s) {
+        DenseEphemeris.hermiteBasis(s, h, basis);
+        if (primary != TITAN) {
+            return Vector.magnitude(hermite(relativeStart, relativeEnd, 0), hermite(relativeStart, relativeEnd, 1),
+                    hermite(relativeStart, relativeEnd, 2));
+        }
+        orbit.propagate(seconds - h + s * h - epoch, conic, null);
+        double x = conic[0] + basis[0] * deviationStart[0] + basis[1] * deviationStart[3] + basis[2] * dPos[0] + basis[3] * dVel[0];
+        double y = conic[1] + basis[0] * deviationStart[1] + basis[1] * deviationStart[4] + basis[2] * dPos[1] + basis[3] * dVel[1];
+        double z = conic[2] + basis[0] * deviationStart[2] + basis[1] * deviationStart[5] + basis[2] * dPos[2] + basis[3] * dVel[2];
+        return Vector.magnitude(x, y, z);
+    }
+
+    /**
+     * Component k of the curve through two states (position then velocity) at the current basis.
+     */
+    private double hermite(double[] start, double[] end, int k) {
+        return basis[0] * start[k] + basis[1] * start[3 + k] + basis[2] * end[k] + basis[3] * end[3 + k];
+    }
+
+    /**
+     * Probe state relative to Titan at the given minute, the planet positions have to be in planetsEnd.
+     */
+    private void relativeToTitan(long minute, double[] out) {
+        int t = 3 * TITAN;
+        velocity(minute, primary, primaryVel);
+        velocity(minute, TITAN, bodyVel);
+        out[0] = probe[0] - planetsEnd[t];
+        out[1] = probe[1] - planetsEnd[t + 1];
+        out[2] = probe[2] - planetsEnd[t + 2];
+        out[3] = probeVel[0] + primaryVel[0] - bodyVel[0];
+        out[4] = probeVel[1] + primaryVel[1] - bodyVel[1];
+        out[5] = probeVel[2] + primaryVel[2] - bodyVel[2];
+    }
+
+    /**
+     * RK4 on the deviation, with the planets at the start, middle and end of the step.
+     */
+    private void rk4(double h) {
+        double x = dPos[0], y = dPos[1], z = dPos[2];
+        double vx = dVel[0], vy = dVel[1], vz = dVel[2];
+        System.arraycopy(dPos, 0, deviationStart, 0, 3);
+        System.arraycopy(dVel, 0, deviationStart, 3, 3);
+
+        //1st step RK4
+        double k1vx = vx, k1vy = vy, k1vz = vz;
+        deviationAcceleration(planetsStart, seconds, x, y, z);
+        double k1ax = acc[0], k1ay = acc[1], k1az = acc[2];
+
+        //2nd step RK4
+        double k2vx = vx + k1ax * (h / 2), k2vy = vy + k1ay * (h / 2), k2vz = vz + k1az * (h / 2);
+        deviationAcceleration(planetsMid, seconds + h / 2, x + k1vx * (h / 2), y + k1vy * (h / 2), z + k1vz * (h / 2));
+        double k2ax = acc[0], k2ay = acc[1], k2az = acc[2];
+
+        //3rd step RK4
+        double k3vx = vx + k2ax * (h / 2), k3vy = vy + k2ay * (h / 2), k3vz = vz + k2az * (h / 2);
+        deviationAcceleration(planetsMid, seconds + h / 2, x + k2vx * (h / 2), y + k2vy * (h / 2), z + k2vz * (h / 2));
+        double k3ax = acc[0], k3ay = acc[1], k3az = acc[2];
+
+        //4th step RK4
+        double k4vx = vx + k3ax * h, k4vy = vy + k3ay * h, k4vz = vz + k3az * h;
+        deviationAcceleration(planetsEnd, seconds + h, x + k3vx * h, y + k3vy * h, z + k3vz * h);
+
+        dPos[0] = x + (k1vx + 2 * k2vx + 2 * k3vx + k4vx) * (h / 6);
+        dPos[1] = y + (k1vy + 2 * k2vy + 2 * k3vy + k4vy) * (h / 6);
+        dPos[2] = z + (k1vz + 2 * k2vz + 2 * k3vz + k4vz) * (h / 6);
+        dVel[0] = vx + (k1ax + 2 * k2ax + 2 * k3ax + acc[0]) * (h / 6);
+        dVel[1] = vy + (k1ay + 2 * k2ay + 2 * k3ay + acc[1]) * (h / 6);
+        dVel[2] = vz + (k1az + 2 * k2az + 2 * k3az + acc[2]) * (h / 6);
+    }
+
+    /**
+     * Second derivative of the deviation (dx, dy, dz) at time t, into acc.
+     * The difference of the primary's pull on the true and the reference position uses
+     * Battin's f(q) so it doesn't cancel out, the other bodies add their pull on the
+     * probe minus their pull on the primary (the frame around the primary accelerates).
+     */
+    private void deviationAcceleration(double[] planets, double t, double dx, double dy, double dz) {
+        orbit.propagate(t - epoch, reference, null);
+        double rx = reference[0] + dx, ry = reference[1] + dy, rz = reference[2] + dz;
+        double rho = Vector.magnitude(reference[0], reference[1], reference[2]);
+        // |reference|^2 / |r|^2 = 1 + q
+        double r2 = rx * rx + ry * ry + rz * rz;
+        double q = (dx * dx + dy * dy + dz * dz - 2 * (rx * dx + ry * dy + rz * dz)) / r2;
+        double fq = q * (3 + 3 * q + q * q) / (1 + Math.pow(1 + q, 1.5));
+        double s = -gm[primary] / (rho * rho * rho);
+        double ax = s * (dx + fq * rx), ay = s * (dy + fq * ry), az = s * (dz + fq * rz);
+
+        int b = 3 * primary;
+        double px = planets[b], py = planets[b + 1], pz = planets[b + 2];
+        double x = px + rx, y = py + ry, z = pz + rz;
+        for (int j = 0; j < nPlanets; j++) {
+            if (j == primary || gm[j] == 0) continue;
+            int o = 3 * j;
+            double ex = planets[o] - x, ey = planets[o + 1] - y, ez = planets[o + 2] - z;
+            double e2 = ex * ex + ey * ey + ez * ez;
+            double se = gm[j] / (e2 * Math.sqrt(e2));
+            ax += se * ex;
+            ay += se * ey;
+            az += se * ez;
+            if (primary != SUN) {
+                double fx = planets[o] - px, fy = planets[o + 1] - py, fz = planets[o + 2] - pz;
+                double f2 = fx * fx + fy * fy + fz * fz;
+                double sf = gm[j] / (f2 * Math.sqrt(f2));
+                ax -= sf * fx;
+                ay -= sf * fy;
+                az -= sf * fz;
+            }
+        }
+        acc[0] = ax;
+        acc[1] = ay;
+        acc[2] = az;
+    }
+
+    /**
+     * @return the body with the largest pull on the probe at the start of the step.
+     */
+    private int dominantBody() {
+        int best = SUN;
+        double bestPull = 0;
+        for (int j = 0; j < nPlanets; j++) {
+            if (gm[j] == 0) continue;
+            double d = distance(planetsStart, j);
+            double pull = gm[j] / (d * d);
+            if (pull > bestPull) {
+                bestPull = pull;
+                best = j;
+            }
+        }
+        return best;
+    }
+
+    private double distance(double[] planets, int body) {
+        int b = 3 * body;
+        return Vector.distance(probe[0], probe[1], probe[2], planets[b], planets[b + 1], planets[b + 2]);
+    }
+
+    @Override
+    public String toString() {
+        return "Encke closest distance to Titan: " + closestDistance + " at " + getClosestDistTime()
+                + " (" + rectifications + " rectifications)";
+    }
+}
@@ -34,12 +34,14 @@ public class EvolutionAlgorithm {
 
     private final LaunchData launchData;
     private RK4Probe evolutionAlgorithmInitialGuess;
+    private final BatchRK4Probe batch;
 
     public EvolutionAlgorithm(LaunchData launchData) {
         this.launchData = launchData;
 
         this.LAUNCH_POSITION = launchData.getInitialPosition();
         this.SURFACE_PLANET_VELOCITY = loadSurfaceVelocity(launchData.getIsSurface());
+        this.batch = new BatchRK4Probe(launchData.getTimeline(), 2);
     }
 
     private Vector loadSurfaceVelocity(BodyID body) {
@@ -84,6 +86,8 @@ public class EvolutionAlgorithm {
         RK4Probe bestSimulation = null;
 
         for (int gen = 0; gen < MAX_GENERATIONS; gen++) {
+            // the whole generation is built from the current population and evaluated in one batch
+            List<Vector> trials = new ArrayList<>(POPULATION_SIZE);
             for (int i = 0; i < POPULATION_SIZE; i++) {
                 Vector a = getRandomVector(population, i);
                 Vector b = getRandomVector(population, i);
@@ -94,9 +98,13 @@ public class EvolutionAlgorithm {
                 if (mutant.magnitude() > MAX_VELOCITY) {
                     mutant = mutant.normalize().multiply(MAX_VELOCITY);
                 }
-                Vector trial = crossover(population.get(i), mutant);
-                RK4Probe trailSimulation = evaluateTrajectory(trial);
-                double trialDistance = trailSimulation.getClosestDistance();
+                trials.add(crossover(population.get(i), mutant));
+            }
+            evaluateBatch(trials);
+
+            for (int i = 0; i < POPULATION_SIZE; i++) {
+                Vector trial = trials.get(i);
+                double trialDistance = batch.getClosestDistance(i);
 
                 if (trialDistance < distances.get(i)) {
                     population.set(i, trial);
@@ -104,7 +112,7 @@ public class EvolutionAlgorithm {
 
                     if (trialDistance < bestDistance) {
                         bestDistance = trialDistance;
-                        bestSimulation = trailSimulation;
+                        bestSimulation = evaluateTrajectory(trial);
                         System.out.println("New best distance: " + bestDistance + ", date: " + bestSimulation.getClosestDistTime());
                         System.out.println("Generation : " + gen);
                     }
@@ -151,9 +159,10 @@ public class EvolutionAlgorithm {
      */
 
     private List<Double> evaluatePopulation(List<Vector> population) {
+        evaluateBatch(population);
         List<Double> distances = new ArrayList<>();
-        for (Vector v : population) {
-            distances.add(evaluateTrajectory(v).getClosestDistance());
+        for (int i = 0; i < population.size(); i++) {
+            distances.add(batch.getClosestDistance(i));
         }
         return distances;
     }
@@ -165,11 +174,24 @@ public class EvolutionAlgorithm {
      */
 
     private RK4Probe evaluateTrajectory(Vector velocity) {
-        RK4Probe simulation = new RK4Probe(new Probe("dominik", LAUNCH_POSITION, SURFACE_PLANET_VELOCITY.add(velocity)), launchData.getHistoryPlanets(), 2);
+        RK4Probe simulation = new RK4Probe(new Probe("dominik", LAUNCH_POSITION, SURFACE_PLANET_VELOCITY.add(velocity)), launchData.getTimeline(), 2);
         simulation.solve();
         return simulation;
     }
 
+    /**
+     * Runs all velocities through the batch propagator, the results are read from batch.
+     * @param velocities velocities relative to the launch surface.
+     */
+
+    private void evaluateBatch(List<Vector> velocities) {
+        List<Probe> probes = new ArrayList<>(velocities.size());
+        for (Vector v : velocities) {
+            probes.add(new Probe("dominik", LAUNCH_POSITION, SURFACE_PLANET_VELOCITY.add(v)));
+        }
+        batch.solve(probes);
+    }
+
     /**
      *
      * @param population
@@ -14,6 +14,9 @@ import java.util.List;
  * improves the closest‑approach distance, it becomes the new current best and
  * the step is enlarged (bold‑driver heuristic). Otherwise the step is shrunk.
  * The search terminates when the step becomes smaller than {@code minStep}.
+ * <p>
+ * {@link #findOptimalVelocityByGradient()} does the same with one candidate per
+ * iteration, a step down the closest-distance gradient that StmRK4Probe computes.
  */
 public class HillClimbing {
 
@@ -58,6 +61,10 @@ public class HillClimbing {
     public void solve() {
         bestSimulation = findOptimalVelocity();
     }
+
+    public void solveWithGradient() {
+        bestSimulation = findOptimalVelocityByGradient();
+    }
     public RK4Probe getBestSimulation() {
         return bestSimulation;
     }
@@ -78,14 +85,21 @@ public class HillClimbing {
         while (step > minStep) {
             boolean improved = false;
 
-            for (Vector neighbourVelocity : generateNeighbours(bestSim.getInitialProbe().getVelocity(), step)) {
-                Probe probe = new Probe("dominik", launchData.getInitialPosition(), neighbourVelocity);
-                RK4Probe sim = new RK4Probe(probe, launchData.getHistoryPlanets(), bestSim.getStepSizeMin());
-                sim.solve();
-                double d = sim.getClosestDistance();
+            // all six neighbours go through the batch, then the first improving one wins
+            List<Vector> neighbours = generateNeighbours(bestSim.getInitialProbe().getVelocity(), step);
+            List<Probe> probes = new ArrayList<>(neighbours.size());
+            for (Vector neighbourVelocity : neighbours) {
+                probes.add(new Probe("dominik", launchData.getInitialPosition(), neighbourVelocity));
+            }
+            BatchRK4Probe batch = new BatchRK4Probe(launchData.getTimeline(), bestSim.getStepSizeMin());
+            batch.solve(probes);
+
+            for (int i = 0; i < probes.size(); i++) {
+                double d = batch.getClosestDistance(i);
                 if (d < bestDistance) {
                     bestDistance = d;
-                    bestSim = sim;
+                    bestSim = new RK4Probe(probes.get(i), launchData.getTimeline(), bestSim.getStepSizeMin());
+                    bestSim.solve();
                     improved = true;
                     if(bestDistance <= 2575) return bestSim;
                     System.out.printf("NEW BEST %.3f km | step %.7f | %s%n",
@@ -103,6 +117,45 @@ public class HillClimbing {
         return bestSim;
     }
 
+    /**
+     * Gradient descent on the launch velocity with the same step size adaptation as
+     * findOptimalVelocity: every iteration propagates one candidate, step km/s down
+     * the gradient of the closest distance, and the propagation of the candidate
+     * (with its state transition matrix) also gives the gradient for the next one.
+     *
+     * @return a simulation whose closest approach distance is the best found.
+     */
+    public RK4Probe findOptimalVelocityByGradient() {
+        int stepSizeMin = bestSimulation.getStepSizeMin();
+        StmRK4Probe best = new StmRK4Probe(bestSimulation.getInitialProbe(), launchData.getTimeline(), stepSizeMin);
+        best.solve();
+        double step = initialStep;
+
+        while (step > minStep) {
+            Vector gradient = best.getDistanceGradient();
+            double norm = gradient.magnitude();
+            if (norm == 0) break;
+
+            Vector velocity = best.getInitialProbe().getVelocity().subtract(gradient.multiply(step / norm));
+            StmRK4Probe trial = new StmRK4Probe(new Probe("dominik", launchData.getInitialPosition(), velocity),
+                    launchData.getTimeline(), stepSizeMin);
+            trial.solve();
+
+            boolean improved = trial.getClosestDistance() < best.getClosestDistance();
+            if (improved) {
+                best = trial;
+                if (best.getClosestDistance() <= 2575) break;
+                System.out.printf("NEW BEST %.3f km | step %.7f | %s%n",
+                        best.getClosestDistance(), step, best.getClosestDistTime());
+            }
+            step = improved ? step * enlargeFactor : step * shrinkFactor;
+        }
+
+        RK4Probe bestSim = new RK4Probe(best.getInitialProbe(), launchData.getTimeline(), stepSizeMin);
+        bestSim.solve();
+        return bestSim;
+    }
+
     /**
      * Generates the six axial neighbours of the given velocity vector using
      * the supplied step size.
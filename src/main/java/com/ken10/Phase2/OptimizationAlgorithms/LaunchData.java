@@ -1,18 +1,22 @@
 package com.ken10.Phase2.OptimizationAlgorithms;
 
 import com.ken10.Phase2.SolarSystemModel.*;
+import com.ken10.Phase2.StatesCalculations.EphemerisCache;
 import com.ken10.Phase2.StatesCalculations.EphemerisLoader;
+import com.ken10.Phase2.StatesCalculations.Timeline;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Hashtable;
+import java.util.Map;
 
 public class LaunchData {
     private final BodyID destination;
     private final Vector initialPosition;
     private final LocalDateTime launchTime;
     private final BodyID isSurface;
-    public Hashtable<LocalDateTime, ArrayList<CelestialBodies>> historyPlanets;
+    private Timeline timeline;
+    // view of timeline for one-off lookups by time, the probes read the timeline itself
+    public Map<LocalDateTime, ArrayList<CelestialBodies>> historyPlanets;
 
     LaunchData(BodyID destination, Vector initialPosition, LocalDateTime launchTime) {
         this.destination = destination;
@@ -35,9 +39,9 @@ public class LaunchData {
     private void loadHistory(BodyID destination) {
         int duration = 2;
         if (destination.equals(BodyID.TITAN)) duration = 1;
-        EphemerisLoader eph = new EphemerisLoader(1, duration);
-        eph.solve();
-        historyPlanets = eph.history;
+        // integrated once per machine, later runs map the cached file
+        timeline = EphemerisCache.getDefault().load(new EphemerisLoader(1, duration));
+        historyPlanets = timeline.asMap();
 
     }
 
@@ -50,9 +54,12 @@ public class LaunchData {
     public LocalDateTime getLaunchTime() {
         return launchTime;
     }
-    public Hashtable<LocalDateTime, ArrayList<CelestialBodies>> getHistoryPlanets() {
+    public Map<LocalDateTime, ArrayList<CelestialBodies>> getHistoryPlanets() {
         return historyPlanets;
     }
+    public Timeline getTimeline() {
+        return timeline;
+    }
     public BodyID getIsSurface() {
         return isSurface;
     }
@@ -0,0 +1,26 @@
+package com.ken10.Phase2.OptimizationAlgorithms;
+
+import com.ken10.Phase2.SolarSystemModel.Dual;
+import com.ken10.Phase2.SolarSystemModel.DualVector;
+
+/**
+ * Differentiable counterpart of ThrustPlan: the engine acceleration depends on a vector
+ * of parameters, and DualRK4Probe gets the derivatives of the flight with respect to them.
+ */
+public interface ParametricThrust {
+
+    /**
+     * Current values of the parameters, the number of them is fixed.
+     */
+    double[] getParameters();
+
+    /**
+     * Engine acceleration in km/s^2.
+     *
+     * @param seconds time since launch.
+     * @param position probe position.
+     * @param velocity probe velocity.
+     * @param parameters the parameters as Duals, so their derivatives carry through.
+     */
+    DualVector acceleration(double seconds, DualVector position, DualVector velocity, Dual[] parameters);
+}
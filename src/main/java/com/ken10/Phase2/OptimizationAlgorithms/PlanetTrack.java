@@ -0,0 +1,181 @@
+package com.ken10.Phase2.OptimizationAlgorithms;
+
+import com.ken10.Phase2.SolarSystemModel.BodyID;
+import com.ken10.Phase2.SolarSystemModel.CelestialBodies;
+import com.ken10.Phase2.SolarSystemModel.GravityCalc;
+import com.ken10.Phase2.SolarSystemModel.Vector;
+import com.ken10.Phase2.StatesCalculations.DenseEphemeris;
+import com.ken10.Phase2.StatesCalculations.Solver;
+import com.ken10.Phase2.StatesCalculations.Timeline;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The planets the probes fly through, looked up by minutes since RK4Probe.startTime so
+ * the step loops never build a LocalDateTime. Shared by all the RK4 probes.
+ * <p>
+ * A Timeline is read by index, a DenseEphemeris is interpolated, and a history map is
+ * indexed by minute once when the track is made.
+ */
+abstract class PlanetTrack {
+    private static final long START_SECONDS = Solver.toSeconds(RK4Probe.startTime);
+
+    private final double[] gm;
+
+    private PlanetTrack(double[] gm) {
+        int spaceship = BodyID.SPACESHIP.index();
+        if (spaceship < gm.length) {
+            gm[spaceship] = 0;
+        }
+        this.gm = gm;
+    }
+
+    /**
+     * @param timeline planets with a sample at every minute the probe needs.
+     */
+    static PlanetTrack of(Timeline timeline) {
+        return new TimelineTrack(timeline);
+    }
+
+    static PlanetTrack of(DenseEphemeris ephemeris) {
+        return new DenseTrack(ephemeris);
+    }
+
+    /**
+     * Indexes history once, the entries from RK4Probe.startTime to RK4Probe.endTime
+     * on whole minutes. A Timeline.asMap() view is read through its Timeline instead.
+     */
+    static PlanetTrack of(Map<LocalDateTime, ArrayList<CelestialBodies>> history) {
+        Timeline timeline = Timeline.fromView(history);
+        return timeline != null ? of(timeline) : new HistoryTrack(history);
+    }
+
+    int bodyCount() {
+        return gm.length;
+    }
+
+    /**
+     * g * mass per body, 0 for the spaceship and test particles so they don't pull.
+     */
+    double[] gm() {
+        return gm.clone();
+    }
+
+    /**
+     * Positions of all bodies the given number of minutes after RK4Probe.startTime,
+     * 3 per body.
+     */
+    abstract void positionsAt(long minute, double[] out);
+
+    abstract void velocityAt(long minute, int body, double[] out);
+
+    private static final class TimelineTrack extends PlanetTrack {
+        private final Timeline timeline;
+
+        TimelineTrack(Timeline timeline) {
+            super(timeline.getGm());
+            this.timeline = timeline;
+        }
+
+        private int index(long minute) {
+            int index = timeline.indexOf(START_SECONDS + 60 * minute);
+            if (index < 0) {
+                throw new IllegalArgumentException("No planets " + minute + " minutes after " + RK4Probe.startTime
+                        + " in the timeline (" + timeline.getStartTime() + " to " + timeline.getEndTime()
+                        + " every " + timeline.getStepSeconds() + " s)");
+            }
+            return index;
+        }
+
+        @Override
+        void positionsAt(long minute, double[] out) {
+            timeline.positions(index(minute), out);
+        }
+
+        @Override
+        void velocityAt(long minute, int body, double[] out) {
+            timeline.velocity(index(minute), body, out);
+        }
+    }
+
+    private static final class DenseTrack extends PlanetTrack {
+        private final DenseEphemeris ephemeris;
+        private final double[] position = new double[3];
+
+        DenseTrack(DenseEphemeris ephemeris) {
+            super(ephemeris.getGm());
+            this.ephemeris = ephemeris;
+        }
+
+        @Override
+        void positionsAt(long minute, double[] out) {
+            ephemeris.positionsAt(START_SECONDS + 60.0 * minute, out);
+        }
+
+        @Override
+        void velocityAt(long minute, int body, double[] out) {
+            ephemeris.stateAt(body, START_SECONDS + 60.0 * minute, position, out);
+        }
+    }
+
+    private static final class HistoryTrack extends PlanetTrack {
+        // states.get(minute), null where history has no entry
+        private final List<ArrayList<CelestialBodies>> states;
+
+        HistoryTrack(Map<LocalDateTime, ArrayList<CelestialBodies>> history) {
+            super(masses(history));
+            states = new ArrayList<>(Collections.nCopies((int) RK4Probe.END_MINUTE + 1, null));
+            for (Map.Entry<LocalDateTime, ArrayList<CelestialBodies>> entry : history.entrySet()) {
+                long offset = Solver.toSeconds(entry.getKey()) - START_SECONDS;
+                if (offset >= 0 && offset % 60 == 0 && offset / 60 <= RK4Probe.END_MINUTE) {
+                    states.set((int) (offset / 60), entry.getValue());
+                }
+            }
+        }
+
+        private static double[] masses(Map<LocalDateTime, ArrayList<CelestialBodies>> history) {
+            ArrayList<CelestialBodies> planets = history.get(RK4Probe.startTime);
+            if (planets == null) {
+                throw new IllegalArgumentException("No planets at " + RK4Probe.startTime + " in history");
+            }
+            double[] gm = new double[planets.size()];
+            for (int i = 0; i < gm.length; i++) {
+                CelestialBodies body = planets.get(i);
+                gm[i] = body.isTestParticle() ? 0 : GravityCalc.g * body.getMass();
+            }
+            return gm;
+        }
+
+        private ArrayList<CelestialBodies> state(long minute) {
+            ArrayList<CelestialBodies> state = minute >= 0 && minute < states.size() ? states.get((int) minute) : null;
+            if (state == null) {
+                throw new IllegalArgumentException("No planets " + minute + " minutes after " + RK4Probe.startTime
+                        + " in history");
+            }
+            return state;
+        }
+
+        @Override
+        void positionsAt(long minute, double[] out) {
+            ArrayList<CelestialBodies> planets = state(minute);
+            for (int i = 0; i < bodyCount(); i++) {
+                Vector p = planets.get(i).getPosition();
+                out[3 * i] = p.getX();
+                out[3 * i + 1] = p.getY();
+                out[3 * i + 2] = p.getZ();
+            }
+        }
+
+        @Override
+        void velocityAt(long minute, int body, double[] out) {
+            Vector v = state(minute).get(body).getVelocity();
+            out[0] = v.getX();
+            out[1] = v.getY();
+            out[2] = v.getZ();
+        }
+    }
+}
@@ -1,45 +1,95 @@
 package com.ken10.Phase2.OptimizationAlgorithms;
 
 import com.ken10.Phase2.SolarSystemModel.*;
+import com.ken10.Phase2.StatesCalculations.DenseEphemeris;
 import com.ken10.Phase2.StatesCalculations.EphemerisLoader;
+import com.ken10.Phase2.StatesCalculations.Timeline;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Hashtable;
+import java.util.Map;
 
 import static com.ken10.Phase2.SolarSystemModel.Earth.EARTH_VELOCITY_INITIAL;
-import static com.ken10.Phase2.SolarSystemModel.GravityCalc.computeAcceleration;
-import static com.ken10.Phase2.SolarSystemModel.Vector.getDistance;
 
 public class RK4Probe {
-    private Probe probe;
     private final Probe launchProbe;
-    private final Hashtable<LocalDateTime, ArrayList<CelestialBodies>> historyPlanets;
-    private static final LocalDateTime endTime = LocalDateTime.of(2026,4,1,0,0,0);
+    private final PlanetTrack track;
+    static final LocalDateTime startTime = LocalDateTime.of(2025,4,1,0,0,0);
+    static final LocalDateTime endTime = LocalDateTime.of(2026,4,1,0,0,0);
+    // the step loops count minutes since startTime, dates are only made for the results
+    static final long END_MINUTE = ChronoUnit.MINUTES.between(startTime, endTime);
+    // earth collisions are only checked right after launch
+    static final long LAUNCH_CHECK_MINUTES = 8;
+    // a probe closer than this to earth's centre in that time crashed
+    static final double EARTH_COLLISION_KM = 6369.9998;
     private final int stepSizeMin;
-    private LocalDateTime time;
-    public Hashtable<LocalDateTime, Probe> historyProbe;
     private double closestDistance = Double.MAX_VALUE;
-    private LocalDateTime closestDistTime;
+    private long closestDistMinute;
+    // probe position and velocity after every step, 6 per step, the launch state first
+    private double[] trajectory = new double[0];
+    private int steps;
+    private Hashtable<LocalDateTime, Probe> historyProbe;
+
+    private static final int EARTH = BodyID.EARTH.index();
+    private static final int TITAN = BodyID.TITAN.index();
+    private double[] planetsStart;
+    private double[] planetsMid;
+    private double[] planetsEnd;
+    private double[] gm;
+    private final double[] acc = new double[3];
+    // RK4 stage buffers, reused every step
+    private final MutableVector position = new MutableVector();
+    private final MutableVector velocity = new MutableVector();
+    private final MutableVector stagePosition = new MutableVector();
+    private final MutableVector sum = new MutableVector();
+    private final MutableVector k1Velocity = new MutableVector();
+    private final MutableVector k2Velocity = new MutableVector();
+    private final MutableVector k3Velocity = new MutableVector();
+    private final MutableVector k4Velocity = new MutableVector();
+    private final MutableVector k1Acceleration = new MutableVector();
+    private final MutableVector k2Acceleration = new MutableVector();
+    private final MutableVector k3Acceleration = new MutableVector();
+    private final MutableVector k4Acceleration = new MutableVector();
+
+
+    /**
+     * @param historyPlanets planets every stepSizeMin / 2 from startTime to endTime, indexed
+     *                       once here (a Timeline.asMap() view is read through its Timeline).
+     */
+    public RK4Probe(Probe probe, Map<LocalDateTime, ArrayList<CelestialBodies>> historyPlanets, int stepSizeMin) {
+        this(probe, PlanetTrack.of(historyPlanets), stepSizeMin);
+    }
 
+    /**
+     * @param timeline planets with a sample every stepSizeMin / 2 from startTime to endTime.
+     */
+    public RK4Probe(Probe probe, Timeline timeline, int stepSizeMin) {
+        this(probe, PlanetTrack.of(timeline), stepSizeMin);
+    }
 
-    public RK4Probe(Probe probe, Hashtable<LocalDateTime,ArrayList<CelestialBodies>> historyPlanets, int stepSizeMin) {
-        this.probe = probe;
+    /**
+     * @param ephemeris planets from startTime to endTime at any step, the mid-step states are interpolated.
+     */
+    public RK4Probe(Probe probe, DenseEphemeris ephemeris, int stepSizeMin) {
+        this(probe, PlanetTrack.of(ephemeris), stepSizeMin);
+    }
+
+    private RK4Probe(Probe probe, PlanetTrack track, int stepSizeMin) {
         this.launchProbe  = new Probe(probe.getName(),
                 probe.getPosition().copy(),
                 probe.getVelocity().copy());
-        this.historyPlanets = historyPlanets;
-        this.time = LocalDateTime.of(2025, 4, 1, 0, 0, 0);
+        this.track = track;
         this.stepSizeMin = stepSizeMin;
-        this.closestDistTime = LocalDateTime.of(2025, 4, 1, 0, 0, 0);
-        this.historyProbe = new Hashtable<>();
     }
+
     public double getClosestDistance() {
         return closestDistance;
     }
 
     public LocalDateTime getClosestDistTime() {
-        return closestDistTime;
+        return startTime.plusMinutes(closestDistMinute);
     }
 
     public Probe getInitialProbe() {
@@ -50,89 +100,117 @@ public class RK4Probe {
         return stepSizeMin;
     }
 
-    public void solve() {
-        LocalDateTime t0 = LocalDateTime.of(2025, 4, 1, 0, 0, 0);
-        historyProbe.put(time, probe);
-        closestDistance = getDistance(probe.getPosition(),
-                historyPlanets.get(time).get(BodyID.TITAN.index()).getPosition());
+    /**
+     * Probe states of the last solve by time, built on the first call. Like it always was,
+     * the entry of a step's start time holds the state at the end of that step, the last
+     * entry the final state.
+     */
+    public Hashtable<LocalDateTime, Probe> getHistoryProbe() {
+        if (historyProbe == null) {
+            historyProbe = new Hashtable<>();
+            for (int k = 0; k <= steps; k++) {
+                int o = 6 * Math.min(k + 1, steps);
+                historyProbe.put(startTime.plusMinutes((long) k * stepSizeMin), new Probe(launchProbe.getName(),
+                        new Vector(trajectory[o], trajectory[o + 1], trajectory[o + 2]),
+                        new Vector(trajectory[o + 3], trajectory[o + 4], trajectory[o + 5]), 1.0, 11.0));
+            }
+        }
+        return historyProbe;
+    }
 
-        while (time.isBefore(endTime)) {
+    public void solve() {
+        int n = track.bodyCount();
+        gm = track.gm();
+        planetsStart = new double[3 * n];
+        planetsMid = new double[3 * n];
+        planetsEnd = new double[3 * n];
+        trajectory = new double[6 * (int) (END_MINUTE / stepSizeMin + 2)];
+        steps = 0;
+        historyProbe = null;
+
+        position.set(launchProbe.getPosition());
+        velocity.set(launchProbe.getVelocity());
+        record();
+        track.positionsAt(0, planetsStart);
+        closestDistance = distanceTo(planetsStart, TITAN);
+        closestDistMinute = 0;
+
+        for (long minute = 0; minute < END_MINUTE; minute += stepSizeMin) {
             // Check collision at current time
-            if(time.isBefore(t0.plusMinutes(8))) {
-                double earthDist = getDistance(probe.getPosition(),
-                        historyPlanets.get(time).get(BodyID.EARTH.index()).getPosition());
-                if(earthDist <= 6369.9998) break;
-            }
+            if (minute < LAUNCH_CHECK_MINUTES && distanceTo(planetsStart, EARTH) <= EARTH_COLLISION_KM) break;
 
             // Calculate new probe state
-            probe = rk4Helper();
-
-            // Get Titan position at CURRENT time
-            Vector currentTitanPosition = historyPlanets.get(time)
-                    .get(BodyID.TITAN.index()).getPosition();
-
-            // Calculate distance at CURRENT time
-            double distToTitan = getDistance(currentTitanPosition, probe.getPosition());
+            // we need to make the step size of the probe
+            // in such a way the state of the planets can calculate the acceleration
+            // of the probe at each RK4 time step.
+            // -> stepRK4Probe MUST be 2*n*stepSizeRK4Planets
+            track.positionsAt(minute + stepSizeMin / 2, planetsMid);
+            track.positionsAt(minute + stepSizeMin, planetsEnd);
+            rk4Helper();
+            steps++;
+            record();
+
+            // Titan at the CURRENT (old) time against the new probe position
+            double distToTitan = distanceTo(planetsStart, TITAN);
 
             // Update closest approach
             if(distToTitan < closestDistance) {
-                closestDistTime = time;  // Use current time
+                closestDistMinute = minute;  // Use current time
                 closestDistance = distToTitan;
             }
 
-            // Store state and advance time
-            historyProbe.put(time, probe);
-            time = time.plusMinutes(stepSizeMin);
+            // the end of this step is the start of the next one
+            double[] swap = planetsStart;
+            planetsStart = planetsEnd;
+            planetsEnd = swap;
         }
+    }
+
+    private void record() {
+        int o = 6 * steps;
+        trajectory[o] = position.getX();
+        trajectory[o + 1] = position.getY();
+        trajectory[o + 2] = position.getZ();
+        trajectory[o + 3] = velocity.getX();
+        trajectory[o + 4] = velocity.getY();
+        trajectory[o + 5] = velocity.getZ();
+    }
+
+    private double distanceTo(double[] planets, int body) {
+        int b = 3 * body;
+        return Vector.distance(planets[b], planets[b + 1], planets[b + 2], position.getX(), position.getY(), position.getZ());
+    }
 
-        // Handle final state after loop
-        historyProbe.put(time, probe);
+    private void accelerationAt(double[] planets, MutableVector at, MutableVector out) {
+        GravityCalc.accelerationAt(planets, gm, gm.length, at.getX(), at.getY(), at.getZ(), acc, 0);
+        out.set(acc[0], acc[1], acc[2]);
     }
 
-    private Probe rk4Helper() {
-        int stepMinutes = stepSizeMin;
-        // we need to make the step size of the probe
-        // in such a way the state of the planets can calculate the acceleration
-        // of the probe at each RK4 time step.
-        // -> stepRK4Probe MUST be 2*n*stepSizeRK4Planets
+    private void rk4Helper() {
+        double h = stepSizeMin * 60;
 
         //1st step RK4
-        Probe y1 = probe.copy();
-        ArrayList<CelestialBodies> state = new ArrayList<>(historyPlanets.get(time));
-        state.add(y1);
-        Vector k1Velocity = y1.getVelocity().multiply(stepSizeMin*60);
-        Vector k1Acceleration = computeAcceleration(state, BodyID.SPACESHIP.index()).multiply(stepSizeMin*60);
+        k1Velocity.set(velocity);
+        accelerationAt(planetsStart, position, k1Acceleration);
 
         //2nd step RK4
-        Probe y2 = new Probe("dominik",y1.getPosition().add(k1Velocity.multiply(0.5)),y1.getVelocity().add(k1Acceleration).multiply(0.5));
-        state.clear();
-        state = new ArrayList<>(historyPlanets.get(time.plusMinutes(stepMinutes/2)));
-        state.add(y2);
-        Vector k2Velocity = y2.getVelocity().multiply(stepSizeMin*60);
-        Vector k2Acceleration = computeAcceleration(state, BodyID.SPACESHIP.index()).multiply(stepSizeMin*60);
+        stagePosition.set(position).addScaled(k1Velocity, h / 2);
+        k2Velocity.set(velocity).addScaled(k1Acceleration, h / 2);
+        accelerationAt(planetsMid, stagePosition, k2Acceleration);
 
         //3rd step RK4
-        Probe y3 = new Probe("dominik", y1.getPosition().add(k2Velocity.multiply(0.5)), y1.getVelocity().add(k2Acceleration.multiply(0.5)));
-        state.removeLast();
-        state.add(y3);
-        Vector k3Velocity = y3.getVelocity().multiply(stepSizeMin*60);
-        Vector k3Acceleration = computeAcceleration(state, BodyID.SPACESHIP.index()).multiply(stepMinutes*60);
+        stagePosition.set(position).addScaled(k2Velocity, h / 2);
+        k3Velocity.set(velocity).addScaled(k2Acceleration, h / 2);
+        accelerationAt(planetsMid, stagePosition, k3Acceleration);
 
         //4th step RK4
-        Probe y4 = new Probe("dominik", y1.getPosition().add(k3Velocity), y1.getVelocity().add(k3Acceleration));
-        state.clear();
-        state = new ArrayList<>(historyPlanets.get(time.plusMinutes(stepMinutes)));
-        state.add(y4);
-        Vector k4Velocity = y4.getVelocity().multiply(stepSizeMin*60);
-        Vector k4Acceleration = computeAcceleration(state, BodyID.SPACESHIP.index()).multiply(stepMinutes*60);
-
-        Vector kVelocity = k1Velocity.add(k2Velocity.multiply(2)).add(k3Velocity.multiply(2)).add(k4Velocity);
-        Vector kAcceleration = k1Acceleration.add(k2Acceleration.multiply(2)).add(k3Acceleration.multiply(2)).add(k4Acceleration);
-
-        kVelocity = kVelocity.divide(6);
-        kAcceleration = kAcceleration.divide(6);
+        stagePosition.set(position).addScaled(k3Velocity, h);
+        k4Velocity.set(velocity).addScaled(k3Acceleration, h);
+        accelerationAt(planetsEnd, stagePosition, k4Acceleration);
 
-        return new Probe(probe.getName(), y1.getPosition().add(kVelocity), y1.getVelocity().add(kAcceleration),1.0,11.0);
+        position.add(sum.set(k1Velocity).addScaled(k2Velocity, 2).addScaled(k3Velocity, 2).add(k4Velocity).scale(h / 6));
+        velocity.add(sum.set(k1Acceleration).addScaled(k2Acceleration, 2).addScaled(k3Acceleration, 2).add(k4Acceleration)
+                .scale(h / 6));
     }
 
     @Override
@@ -141,7 +219,7 @@ public class RK4Probe {
                         "Initial probe position and velocity: " + launchProbe + "\n" +
                         "Velocity magnitude relative to earth: " + (launchProbe.getVelocity().subtract(EARTH_VELOCITY_INITIAL).magnitude()) + "\n" +
                         "Closest Distance to Titan: " + closestDistance + "\n" +
-                        "Date of closest approach: " + closestDistTime + "\n";
+                        "Date of closest approach: " + getClosestDistTime() + "\n";
     }
 
 
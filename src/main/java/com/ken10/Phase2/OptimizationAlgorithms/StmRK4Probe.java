@@ -0,0 +1,246 @@
+package com.ken10.Phase2.OptimizationAlgorithms;
+
+import com.ken10.Phase2.SolarSystemModel.BodyID;
+import com.ken10.Phase2.SolarSystemModel.CelestialBodies;
+import com.ken10.Phase2.SolarSystemModel.GravityCalc;
+import com.ken10.Phase2.SolarSystemModel.Probe;
+import com.ken10.Phase2.SolarSystemModel.Vector;
+import com.ken10.Phase2.StatesCalculations.Timeline;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * RK4Probe plus the 6x6 state transition matrix of the probe.
+ * <p>
+ * Next to the state, RK4 integrates the variational equations dPhi/dt = A(t) Phi with
+ * A = [[0, I], [G, 0]], where G is the gravity gradient of the planets at the probe.
+ * Phi maps a change of the launch state to the change of the state later on, so the
+ * columns 3..5 at the closest approach are the Jacobian with respect to the launch
+ * velocity, and the gradient of the closest distance follows from it. One run gives what
+ * would otherwise take one run per velocity component.
+ * <p>
+ * The probe itself takes exactly the steps RK4Probe takes (Titan compared at the old time
+ * included), so the closest distance is the same.
+ */
+public class StmRK4Probe {
+    private static final int EARTH = BodyID.EARTH.index();
+    private static final int TITAN = BodyID.TITAN.index();
+    // probe state (6) followed by Phi (36, row major)
+    private static final int SIZE = 42;
+
+    private final Probe launchProbe;
+    private final PlanetTrack track;
+    private final int stepSizeMin;
+
+    private double[] planetsStart;
+    private double[] planetsMid;
+    private double[] planetsEnd;
+    private double[] gm;
+    private int nPlanets;
+
+    private final double[] y = new double[SIZE];
+    private final double[] k1 = new double[SIZE];
+    private final double[] k2 = new double[SIZE];
+    private final double[] k3 = new double[SIZE];
+    private final double[] k4 = new double[SIZE];
+    private final double[] stage = new double[SIZE];
+    private final double[] acc = new double[3];
+    private final double[] gradient = new double[9];
+
+    private double closestDistance;
+    private long closestDistMinute;
+    private final double[] closest = new double[SIZE];
+    private final double[] closestTitan = new double[3];
+
+    /**
+     * @param historyPlanets indexed once here, see RK4Probe.
+     */
+    public StmRK4Probe(Probe probe, Map<LocalDateTime, ArrayList<CelestialBodies>> historyPlanets, int stepSizeMin) {
+        this(probe, PlanetTrack.of(historyPlanets), stepSizeMin);
+    }
+
+    public StmRK4Probe(Probe probe, Timeline timeline, int stepSizeMin) {
+        this(probe, PlanetTrack.of(timeline), stepSizeMin);
+    }
+
+    private StmRK4Probe(Probe probe, PlanetTrack track, int stepSizeMin) {
+        this.launchProbe = new Probe(probe.getName(), probe.getPosition().copy(), probe.getVelocity().copy());
+        this.track = track;
+        this.stepSizeMin = stepSizeMin;
+    }
+
+    public void solve() {
+        int stepMinutes = stepSizeMin;
+        double h = stepMinutes * 60;
+        nPlanets = track.bodyCount();
+        gm = track.gm();
+        planetsStart = new double[3 * nPlanets];
+        planetsMid = new double[3 * nPlanets];
+        planetsEnd = new double[3 * nPlanets];
+        track.positionsAt(0, planetsStart);
+
+        Vector p = launchProbe.getPosition();
+        Vector v = launchProbe.getVelocity();
+        y[0] = p.getX();
+        y[1] = p.getY();
+        y[2] = p.getZ();
+        y[3] = v.getX();
+        y[4] = v.getY();
+        y[5] = v.getZ();
+        for (int i = 6; i < SIZE; i++) {
+            y[i] = 0;
+        }
+        for (int i = 0; i < 6; i++) {
+            y[6 + 7 * i] = 1;
+        }
+        closestDistance = distanceTo(planetsStart, TITAN);
+        closestDistMinute = 0;
+        System.arraycopy(y, 0, closest, 0, SIZE);
+        System.arraycopy(planetsStart, 3 * TITAN, closestTitan, 0, 3);
+
+        for (long minute = 0; minute < RK4Probe.END_MINUTE; minute += stepMinutes) {
+            if (minute < RK4Probe.LAUNCH_CHECK_MINUTES
+                    && distanceTo(planetsStart, EARTH) <= RK4Probe.EARTH_COLLISION_KM) break;
+
+            track.positionsAt(minute + stepMinutes / 2, planetsMid);
+            track.positionsAt(minute + stepMinutes, planetsEnd);
+            rk4(h);
+
+            // Titan at the old time, same as RK4Probe
+            double distToTitan = distanceTo(planetsStart, TITAN);
+            if (distToTitan < closestDistance) {
+                closestDistance = distToTitan;
+                closestDistMinute = minute;
+                System.arraycopy(y, 0, closest, 0, SIZE);
+                System.arraycopy(planetsStart, 3 * TITAN, closestTitan, 0, 3);
+            }
+
+            double[] swap = planetsStart;
+            planetsStart = planetsEnd;
+            planetsEnd = swap;
+        }
+    }
+
+    private double distanceTo(double[] planets, int body) {
+        int b = 3 * body;
+        return Vector.distance(y[0], y[1], y[2], planets[b], planets[b + 1], planets[b + 2]);
+    }
+
+    /**
+     * One RK4 step of the state and Phi, the planets move along the history.
+     */
+    private void rk4(double h) {
+        derivatives(planetsStart, y, k1);
+        for (int i = 0; i < SIZE; i++) {
+            stage[i] = y[i] + k1[i] * (h / 2);
+        }
+        derivatives(planetsMid, stage, k2);
+        for (int i = 0; i < SIZE; i++) {
+            stage[i] = y[i] + k2[i] * (h / 2);
+        }
+        derivatives(planetsMid, stage, k3);
+        for (int i = 0; i < SIZE; i++) {
+            stage[i] = y[i] + k3[i] * h;
+        }
+        derivatives(planetsEnd, stage, k4);
+        for (int i = 0; i < SIZE; i++) {
+            y[i] = (k1[i] + 2 * k2[i] + 2 * k3[i] + k4[i]) * (h / 6) + y[i];
+        }
+    }
+
+    /**
+     * d/dt of state and Phi: position rows of Phi change with its velocity rows,
+     * velocity rows with G times its position rows.
+     */
+    private void derivatives(double[] planets, double[] s, double[] out) {
+        GravityCalc.gravityGradientAt(planets, gm, nPlanets, s[0], s[1], s[2], acc, gradient);
+        out[0] = s[3];
+        out[1] = s[4];
+        out[2] = s[5];
+        out[3] = acc[0];
+        out[4] = acc[1];
+        out[5] = acc[2];
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 6; col++) {
+                out[6 + 6 * row + col] = s[6 + 6 * (row + 3) + col];
+                double sum = 0;
+                for (int k = 0; k < 3; k++) {
+                    sum += gradient[3 * row + k] * s[6 + 6 * k + col];
+                }
+                out[6 + 6 * (row + 3) + col] = sum;
+            }
+        }
+    }
+
+    public double getClosestDistance() {
+        return closestDistance;
+    }
+
+    public LocalDateTime getClosestDistTime() {
+        return RK4Probe.startTime.plusMinutes(closestDistMinute);
+    }
+
+    public Probe getInitialProbe() {
+        return launchProbe;
+    }
+
+    public int getStepSizeMin() {
+        return stepSizeMin;
+    }
+
+    /**
+     * Probe position and velocity at the closest approach.
+     */
+    public double[] getClosestState() {
+        double[] state = new double[6];
+        System.arraycopy(closest, 0, state, 0, 6);
+        return state;
+    }
+
+    /**
+     * @return Phi at the closest approach, [row][col]: d state[row] / d launch state[col].
+     */
+    public double[][] getStateTransitionMatrix() {
+        double[][] phi = new double[6][6];
+        for (int row = 0; row < 6; row++) {
+            System.arraycopy(closest, 6 + 6 * row, phi[row], 0, 6);
+        }
+        return phi;
+    }
+
+    /**
+     * @return [row][k]: d state[row] at the closest approach / d launch velocity[k].
+     */
+    public double[][] getVelocityJacobian() {
+        double[][] jacobian = new double[6][3];
+        for (int row = 0; row < 6; row++) {
+            System.arraycopy(closest, 6 + 6 * row + 3, jacobian[row], 0, 3);
+        }
+        return jacobian;
+    }
+
+    /**
+     * Gradient of the closest distance to Titan with respect to the launch velocity,
+     * km per km/s. Titan's position doesn't depend on the probe, so it's the unit vector
+     * from Titan to the probe times the position rows of the Jacobian.
+     */
+    public Vector getDistanceGradient() {
+        double rx = closest[0] - closestTitan[0];
+        double ry = closest[1] - closestTitan[1];
+        double rz = closest[2] - closestTitan[2];
+        double r = Vector.magnitude(rx, ry, rz);
+        double[] g = new double[3];
+        for (int k = 0; k < 3; k++) {
+            g[k] = (rx * closest[6 + 3 + k] + ry * closest[6 + 6 + 3 + k] + rz * closest[6 + 12 + 3 + k]) / r;
+        }
+        return new Vector(g[0], g[1], g[2]);
+    }
+
+    @Override
+    public String toString() {
+        return "STM closest distance to Titan: " + closestDistance + " at " + getClosestDistTime()
+                + ", gradient " + getDistanceGradient();
+    }
+}
@@ -0,0 +1,83 @@
+package com.ken10.Phase2.SolarSystemModel;
+
+/**
+ * Strategy for computing the gravitational acceleration of every body
+ * from flat arrays. GravityCalc::computeAccelerations is the exact O(N^2) one.
+ * <p>
+ * The first nMassive bodies are sources, the rest are test particles: they feel the
+ * sources but don't pull on anything, so M particles only cost O(nMassive * M).
+ */
+@FunctionalInterface
+public interface AccelerationProvider {
+    /**
+     * @param pos positions, interleaved x, y, z per body.
+     * @param gm gravitational parameter (g * mass) of each body.
+     * @param nMassive number of gravitating bodies, they come first.
+     * @param n number of bodies, massive ones and test particles.
+     * @param acc output accelerations, 3 per body.
+     */
+    void computeAccelerations(double[] pos, double[] gm, int nMassive, int n, double[] acc);
+
+    /**
+     * Every body pulls on every other one.
+     */
+    default void computeAccelerations(double[] pos, double[] gm, int n, double[] acc) {
+        computeAccelerations(pos, gm, n, n, acc);
+    }
+
+    /**
+     * Names this provider and every setting that changes its results, EphemerisCache keys
+     * recorded states on it. Providers with settings like BarnesHutTree add them.
+     *
+     * @return null for lambdas and method references, EphemerisCache doesn't cache those.
+     *         Give them a key with withKey.
+     */
+    default String cacheKey() {
+        Class<?> type = getClass();
+        // their class names change every run, and stripped down two lambdas of one class look the same
+        if (type.isHidden() || type.isSynthetic()) return null;
+        return type.getName();
+    }
+
+    /**
+     * cacheKey for a run with n bodies, for providers whose settings only matter at some sizes.
+     */
+    default String cacheKey(int n) {
+        return cacheKey();
+    }
+
+    /**
+     * The provider under an explicit cacheKey, for lambdas and method references.
+     */
+    static AccelerationProvider withKey(String key, AccelerationProvider provider) {
+        return new AccelerationProvider() {
+            @Override
+            public void computeAccelerations(double[] pos, double[] gm, int nMassive, int n, double[] acc) {
+                provider.computeAccelerations(pos, gm, nMassive, n, acc);
+            }
+
+            @Override
+            public String cacheKey() {
+                return key;
+            }
+        };
+    }
+
+    /**
+     * The SIMD kernel (SimdGravityCalc) when the code was built with the simd profile and
+     * runs with --add-modules jdk.incubator.vector, plain GravityCalc otherwise.
+     *
+     * @return a new provider, they keep scratch arrays so don't share one between solvers.
+     */
+    static AccelerationProvider simdOrScalar() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (AccelerationProvider) Class.forName("com.ken10.Phase2.SolarSystemModel.SimdGravityCalc")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // not compiled in, use the scalar kernel
+            }
+        }
+        return withKey(GravityCalc.class.getName(), GravityCalc::computeAccelerations);
+    }
+}
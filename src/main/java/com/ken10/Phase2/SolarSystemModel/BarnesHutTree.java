@@ -0,0 +1,382 @@
+package com.ken10.Phase2.SolarSystemModel;
+
+import java.util.Arrays;
+
+/**
+ * Barnes-Hut octree acceleration for systems with lots of small bodies
+ * (asteroids, kuiper belt objects, ...).
+ * <p>
+ * Bodies with a gm of at least massiveGm (the sun and planets) are always summed
+ * directly, against everything. The remaining light bodies go into an octree and pull
+ * on each other through it: a cell is treated as one point mass at its centre of
+ * mass when cellSize / distance is below the opening angle theta. That makes the
+ * light-light part O(N log N) instead of O(N^2).
+ * <p>
+ * Test particles (after the first nMassive bodies) are pulled by both but never pull.
+ * <p>
+ * The tree is rebuilt on every call but its node arrays are kept and only grown,
+ * so after the first few calls nothing gets allocated.
+ */
+public class BarnesHutTree implements AccelerationProvider {
+    public static final double DEFAULT_THETA = 0.5;
+    // km^3/s^2, a bit below the moon (4.9e3) so all 11 bodies of SolarSystem stay exact
+    public static final double DEFAULT_MASSIVE_GM = 1.0e3;
+
+    private static final int EMPTY = -1;
+    private static final int MERGED = -2;
+    // bodies on (almost) the same spot would split forever, they get merged at this depth
+    private static final int MAX_DEPTH = 48;
+    // morton keys use 14 bits per axis, the body index goes in the low 21 bits
+    private static final int MORTON_BITS = 14;
+    private static final long MORTON_CELLS = 1L << MORTON_BITS;
+    private static final int INDEX_BITS = 21;
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+
+    private final double theta;
+    private final double massiveGm;
+    // a body lies within sqrt(3) cell sizes of the centre of mass of its own cell, so that
+    // cell can only pass the opening test above theta = 1 / sqrt(3)
+    private final boolean checkOwnCell;
+
+    // bodies split into exact (massive) and tree (light) ones
+    private int[] massive = new int[0];
+    private int[] light = new int[0];
+    private int massiveCount;
+    private int lightCount;
+
+    // octree nodes, node 0 is the root and children come in blocks of 8
+    private int nodeCount;
+    private double[] centerX, centerY, centerZ, halfSize;
+    private double[] mass, comX, comY, comZ;
+    private int[] firstChild;
+    private int[] body;
+    // bodies of a MERGED leaf: the first is memberHead[node], then nextMember[body] until EMPTY
+    private int[] memberHead;
+    private int[] nextMember = new int[0];
+    private int[] stack = new int[8 * MAX_DEPTH + 8];
+    private long[] keys = new long[0];
+
+    public BarnesHutTree() {
+        this(DEFAULT_THETA, DEFAULT_MASSIVE_GM);
+    }
+
+    /**
+     * @param theta opening angle, 0 gives direct summation, 0.3 - 0.7 is the usual range.
+     * @param massiveGm bodies with at least this gm (km^3/s^2) are always summed directly.
+     */
+    public BarnesHutTree(double theta, double massiveGm) {
+        if (theta < 0) throw new IllegalArgumentException("theta must be >= 0");
+        this.theta = theta;
+        this.massiveGm = massiveGm;
+        this.checkOwnCell = 3 * theta * theta > 1;
+        allocateNodes(64);
+    }
+
+    public double getTheta() {
+        return theta;
+    }
+
+    public double getMassiveGm() {
+        return massiveGm;
+    }
+
+    @Override
+    public String cacheKey() {
+        return AccelerationProvider.super.cacheKey() + "/theta=" + theta + "/massiveGm=" + massiveGm;
+    }
+
+    @Override
+    public void computeAccelerations(double[] pos, double[] gm, int nMassive, int n, double[] acc) {
+        if (n > INDEX_MASK + 1) throw new IllegalArgumentException("too many bodies for the tree: " + n);
+        Arrays.fill(acc, 0, 3 * n, 0.0);
+        split(gm, nMassive);
+
+        // massive bodies against everything, each pair once
+        for (int a = 0; a < massiveCount; a++) {
+            int i = massive[a];
+            for (int b = a + 1; b < massiveCount; b++) {
+                pair(pos, gm, acc, i, massive[b]);
+            }
+            for (int b = 0; b < lightCount; b++) {
+                pair(pos, gm, acc, i, light[b]);
+            }
+        }
+        // test particles only get pulled
+        for (int i = nMassive; i < n; i++) {
+            for (int a = 0; a < massiveCount; a++) {
+                pull(pos, gm, acc, i, massive[a]);
+            }
+        }
+
+        if (lightCount == 0) return;
+        if (nextMember.length < n) nextMember = new int[n];
+        build(pos, gm);
+        for (int b = 0; b < lightCount; b++) {
+            walk(pos, gm, acc, light[b]);
+        }
+        for (int i = nMassive; i < n; i++) {
+            walk(pos, gm, acc, i);
+        }
+    }
+
+    private void split(double[] gm, int nMassive) {
+        if (massive.length < nMassive) {
+            massive = new int[nMassive];
+            light = new int[nMassive];
+        }
+        massiveCount = 0;
+        lightCount = 0;
+        for (int i = 0; i < nMassive; i++) {
+            if (gm[i] >= massiveGm) massive[massiveCount++] = i;
+            else light[lightCount++] = i;
+        }
+    }
+
+    // pull of j on i only
+    private static void pull(double[] pos, double[] gm, double[] acc, int i, int j) {
+        int a = 3 * i;
+        int b = 3 * j;
+        double dx = pos[b] - pos[a];
+        double dy = pos[b + 1] - pos[a + 1];
+        double dz = pos[b + 2] - pos[a + 2];
+        double r2 = dx * dx + dy * dy + dz * dz;
+        if (r2 == 0) return;
+
+        double s = gm[j] / (r2 * Math.sqrt(r2));
+        acc[a] += s * dx;
+        acc[a + 1] += s * dy;
+        acc[a + 2] += s * dz;
+    }
+
+    private static void pair(double[] pos, double[] gm, double[] acc, int i, int j) {
+        int a = 3 * i;
+        int b = 3 * j;
+        double dx = pos[b] - pos[a];
+        double dy = pos[b + 1] - pos[a + 1];
+        double dz = pos[b + 2] - pos[a + 2];
+        double r2 = dx * dx + dy * dy + dz * dz;
+        if (r2 == 0) return;
+
+        double inv = 1.0 / (r2 * Math.sqrt(r2));
+        double si = gm[j] * inv;
+        double sj = gm[i] * inv;
+        acc[a] += si * dx;
+        acc[a + 1] += si * dy;
+        acc[a + 2] += si * dz;
+        acc[b] -= sj * dx;
+        acc[b + 1] -= sj * dy;
+        acc[b + 2] -= sj * dz;
+    }
+
+    /**
+     * Builds the octree over the light bodies.
+     */
+    private void build(double[] pos, double[] gm) {
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, minZ = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE, maxZ = -Double.MAX_VALUE;
+        for (int b = 0; b < lightCount; b++) {
+            int k = 3 * light[b];
+            minX = Math.min(minX, pos[k]);
+            minY = Math.min(minY, pos[k + 1]);
+            minZ = Math.min(minZ, pos[k + 2]);
+            maxX = Math.max(maxX, pos[k]);
+            maxY = Math.max(maxY, pos[k + 1]);
+            maxZ = Math.max(maxZ, pos[k + 2]);
+        }
+        double half = 0.5 * Math.max(maxX - minX, Math.max(maxY - minY, maxZ - minZ));
+        // a little margin so points on the max face still land inside
+        half = half * (1 + 1e-9) + 1e-9;
+
+        sortLight(pos, minX, minY, minZ, half);
+
+        nodeCount = 0;
+        newNode(0.5 * (minX + maxX), 0.5 * (minY + maxY), 0.5 * (minZ + maxZ), half);
+        for (int b = 0; b < lightCount; b++) {
+            int i = light[b];
+            if (gm[i] > 0) insert(pos, gm, i);
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            if (mass[node] > 0) {
+                comX[node] /= mass[node];
+                comY[node] /= mass[node];
+                comZ[node] /= mass[node];
+            }
+        }
+    }
+
+    /**
+     * Puts the light bodies in Morton (z-curve) order, so bodies that are close in space
+     * are also close in the loops that build and walk the tree. That keeps the cells they
+     * touch in cache.
+     */
+    private void sortLight(double[] pos, double minX, double minY, double minZ, double half) {
+        if (keys.length < lightCount) keys = new long[light.length];
+        double scale = (MORTON_CELLS - 1) / (2 * half);
+        for (int b = 0; b < lightCount; b++) {
+            int k = 3 * light[b];
+            long code = spread((long) ((pos[k] - minX) * scale))
+                    | spread((long) ((pos[k + 1] - minY) * scale)) << 1
+                    | spread((long) ((pos[k + 2] - minZ) * scale)) << 2;
+            keys[b] = code << INDEX_BITS | light[b];
+        }
+        Arrays.sort(keys, 0, lightCount);
+        for (int b = 0; b < lightCount; b++) {
+            light[b] = (int) (keys[b] & INDEX_MASK);
+        }
+    }
+
+    // spreads the low 14 bits of v so there are two zero bits between each of them
+    private static long spread(long v) {
+        long result = 0;
+        for (int bit = 0; bit < MORTON_BITS; bit++) {
+            result |= ((v >> bit) & 1L) << (3 * bit);
+        }
+        return result;
+    }
+
+    private void insert(double[] pos, double[] gm, int i) {
+        int k = 3 * i;
+        double x = pos[k], y = pos[k + 1], z = pos[k + 2];
+        int node = 0;
+        int depth = 0;
+        while (true) {
+            if (firstChild[node] == EMPTY) {
+                if (body[node] == EMPTY) {
+                    body[node] = i;
+                    addMass(node, gm[i], x, y, z);
+                    return;
+                }
+                if (body[node] == MERGED || depth >= MAX_DEPTH) {
+                    if (body[node] != MERGED) {
+                        memberHead[node] = body[node];
+                        nextMember[body[node]] = EMPTY;
+                        body[node] = MERGED;
+                    }
+                    nextMember[i] = memberHead[node];
+                    memberHead[node] = i;
+                    addMass(node, gm[i], x, y, z);
+                    return;
+                }
+                // occupied leaf: split it and push the old body one level down
+                int old = body[node];
+                body[node] = EMPTY;
+                subdivide(node);
+                int oldChild = childFor(node, pos[3 * old], pos[3 * old + 1], pos[3 * old + 2]);
+                body[oldChild] = old;
+                addMass(oldChild, gm[old], pos[3 * old], pos[3 * old + 1], pos[3 * old + 2]);
+            }
+            addMass(node, gm[i], x, y, z);
+            node = childFor(node, x, y, z);
+            depth++;
+        }
+    }
+
+    private void addMass(int node, double m, double x, double y, double z) {
+        mass[node] += m;
+        comX[node] += m * x;
+        comY[node] += m * y;
+        comZ[node] += m * z;
+    }
+
+    private int childFor(int node, double x, double y, double z) {
+        int octant = (x >= centerX[node] ? 1 : 0) | (y >= centerY[node] ? 2 : 0) | (z >= centerZ[node] ? 4 : 0);
+        return firstChild[node] + octant;
+    }
+
+    private void subdivide(int node) {
+        double h = 0.5 * halfSize[node];
+        int first = nodeCount;
+        for (int octant = 0; octant < 8; octant++) {
+            newNode(centerX[node] + ((octant & 1) != 0 ? h : -h),
+                    centerY[node] + ((octant & 2) != 0 ? h : -h),
+                    centerZ[node] + ((octant & 4) != 0 ? h : -h), h);
+        }
+        firstChild[node] = first;
+    }
+
+    private void newNode(double x, double y, double z, double half) {
+        if (nodeCount == firstChild.length) allocateNodes(2 * nodeCount);
+        int node = nodeCount++;
+        centerX[node] = x;
+        centerY[node] = y;
+        centerZ[node] = z;
+        halfSize[node] = half;
+        mass[node] = 0;
+        comX[node] = 0;
+        comY[node] = 0;
+        comZ[node] = 0;
+        firstChild[node] = EMPTY;
+        body[node] = EMPTY;
+        memberHead[node] = EMPTY;
+    }
+
+    private void allocateNodes(int capacity) {
+        centerX = grow(centerX, capacity);
+        centerY = grow(centerY, capacity);
+        centerZ = grow(centerZ, capacity);
+        halfSize = grow(halfSize, capacity);
+        mass = grow(mass, capacity);
+        comX = grow(comX, capacity);
+        comY = grow(comY, capacity);
+        comZ = grow(comZ, capacity);
+        firstChild = firstChild == null ? new int[capacity] : Arrays.copyOf(firstChild, capacity);
+        body = body == null ? new int[capacity] : Arrays.copyOf(body, capacity);
+        memberHead = memberHead == null ? new int[capacity] : Arrays.copyOf(memberHead, capacity);
+    }
+
+    private static double[] grow(double[] a, int capacity) {
+        return a == null ? new double[capacity] : Arrays.copyOf(a, capacity);
+    }
+
+    /**
+     * Adds the pull of the tree on light body i to acc. The bodies of a merged leaf are
+     * summed directly, and a cell that holds i is always opened, so i never pulls on itself
+     * through a centre of mass.
+     */
+    private void walk(double[] pos, double[] gm, double[] acc, int i) {
+        int k = 3 * i;
+        double x = pos[k], y = pos[k + 1], z = pos[k + 2];
+        double theta2 = theta * theta;
+        double ax = 0, ay = 0, az = 0;
+
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (mass[node] == 0 || body[node] == i) continue;
+            if (body[node] == MERGED) {
+                for (int j = memberHead[node]; j != EMPTY; j = nextMember[j]) {
+                    if (j != i) pull(pos, gm, acc, i, j);
+                }
+                continue;
+            }
+
+            double dx = comX[node] - x;
+            double dy = comY[node] - y;
+            double dz = comZ[node] - z;
+            double r2 = dx * dx + dy * dy + dz * dz;
+            double size = 2 * halfSize[node];
+
+            if (firstChild[node] == EMPTY || size * size < theta2 * r2 && !(checkOwnCell && contains(node, x, y, z))) {
+                if (r2 == 0) continue;
+                double s = mass[node] / (r2 * Math.sqrt(r2));
+                ax += s * dx;
+                ay += s * dy;
+                az += s * dz;
+            } else {
+                int first = firstChild[node];
+                for (int c = 0; c < 8; c++) {
+                    if (mass[first + c] > 0) stack[top++] = first + c;
+                }
+            }
+        }
+        acc[k] += ax;
+        acc[k + 1] += ay;
+        acc[k + 2] += az;
+    }
+
+    private boolean contains(int node, double x, double y, double z) {
+        double h = halfSize[node];
+        return Math.abs(x - centerX[node]) <= h && Math.abs(y - centerY[node]) <= h && Math.abs(z - centerZ[node]) <= h;
+    }
+}
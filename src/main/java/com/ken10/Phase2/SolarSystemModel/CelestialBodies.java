@@ -13,6 +13,8 @@ public abstract class CelestialBodies {
     protected double distFromOrigin;
     protected double relativeScalingFactor;
     protected double size;
+    // test particles feel gravity but don't pull on anything (probes, debris, ...)
+    protected boolean testParticle;
 
     public CelestialBodies(String name, Vector position, Vector velocity, double mass) {
         this.name = name;
@@ -42,6 +44,8 @@ public abstract class CelestialBodies {
     public double getSize(){return this.size;}
     public double getDistFromOrigin() {return distFromOrigin;}
     public double getRelativeScalingFactor(){return this.relativeScalingFactor;}
+    public boolean isTestParticle(){return testParticle;}
+    public void setTestParticle(boolean testParticle){this.testParticle = testParticle;}
 
     public void printBody(){
         Vector pos = getPosition();
@@ -58,14 +62,28 @@ public abstract class CelestialBodies {
     }
 
     public CelestialBodies deepCopy(){
-        if(this instanceof PlanetModel) return new PlanetModel(getName(), getPosition().copy(),
-                getVelocity().copy(), getMass(), getRelativeScalingFactor(), getSize());
-        else if (this instanceof Earth) return new Earth(getName(), getPosition().copy(),
-                getVelocity().copy(), getMass(), getRelativeScalingFactor(), getSize());
-        else if (this instanceof Titan) return new Titan(getName(), getPosition().copy(),
-                getVelocity().copy(), getMass(), getRelativeScalingFactor(), getSize());
-        else return new Probe(getName(), getPosition().copy(),
-            getVelocity().copy(), getMass(), getRelativeScalingFactor(), getSize());
+        return withState(getPosition().copy(), getVelocity().copy());
+    }
+
+    /**
+     * Copy of this body (same type, name, mass and display data) with a different state.
+     *
+     * @param position new position.
+     * @param velocity new velocity.
+     * @return the copy.
+     */
+    public CelestialBodies withState(Vector position, Vector velocity){
+        CelestialBodies copy;
+        if(this instanceof PlanetModel) copy = new PlanetModel(getName(), position,
+                velocity, getMass(), getRelativeScalingFactor(), getSize());
+        else if (this instanceof Earth) copy = new Earth(getName(), position,
+                velocity, getMass(), getRelativeScalingFactor(), getSize());
+        else if (this instanceof Titan) copy = new Titan(getName(), position,
+                velocity, getMass(), getRelativeScalingFactor(), getSize());
+        else copy = new Probe(getName(), position,
+            velocity, getMass(), getRelativeScalingFactor(), getSize());
+        copy.setTestParticle(isTestParticle());
+        return copy;
     }
 
 }
@@ -0,0 +1,126 @@
+package com.ken10.Phase2.SolarSystemModel;
+
+import java.util.Arrays;
+
+/**
+ * Dual number for forward-mode automatic differentiation: a value together with its
+ * derivatives with respect to a fixed set of inputs. Every operation applies the chain
+ * rule to the derivatives, so running a computation on Duals gives the exact gradient
+ * of the result next to the result itself.
+ * Immutable like Vector, all Duals taking part in one computation need the same size.
+ */
+public final class Dual {
+    private final double value;
+    private final double[] gradient;
+
+    Dual(double value, double[] gradient) {
+        this.value = value;
+        this.gradient = gradient;
+    }
+
+    /**
+     * A number that doesn't depend on any of the size inputs.
+     */
+    public static Dual constant(double value, int size) {
+        return new Dual(value, new double[size]);
+    }
+
+    /**
+     * Input number index out of size, its derivative with respect to itself is 1.
+     */
+    public static Dual variable(double value, int size, int index) {
+        double[] gradient = new double[size];
+        gradient[index] = 1;
+        return new Dual(value, gradient);
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public double getDerivative(int index) {
+        return gradient[index];
+    }
+
+    public double[] getGradient() {
+        return gradient.clone();
+    }
+
+    public int size() {
+        return gradient.length;
+    }
+
+    public Dual add(Dual d) {
+        double[] g = new double[gradient.length];
+        for (int i = 0; i < g.length; i++) {
+            g[i] = gradient[i] + d.gradient[i];
+        }
+        return new Dual(value + d.value, g);
+    }
+
+    public Dual add(double c) {
+        return new Dual(value + c, gradient);
+    }
+
+    public Dual subtract(Dual d) {
+        double[] g = new double[gradient.length];
+        for (int i = 0; i < g.length; i++) {
+            g[i] = gradient[i] - d.gradient[i];
+        }
+        return new Dual(value - d.value, g);
+    }
+
+    public Dual subtract(double c) {
+        return new Dual(value - c, gradient);
+    }
+
+    public Dual multiply(Dual d) {
+        double[] g = new double[gradient.length];
+        for (int i = 0; i < g.length; i++) {
+            g[i] = gradient[i] * d.value + value * d.gradient[i];
+        }
+        return new Dual(value * d.value, g);
+    }
+
+    public Dual multiply(double c) {
+        return scaled(value * c, c);
+    }
+
+    public Dual divide(Dual d) {
+        double q = value / d.value;
+        double[] g = new double[gradient.length];
+        for (int i = 0; i < g.length; i++) {
+            g[i] = (gradient[i] - q * d.gradient[i]) / d.value;
+        }
+        return new Dual(q, g);
+    }
+
+    public Dual divide(double c) {
+        return scaled(value / c, 1 / c);
+    }
+
+    public Dual negate() {
+        return scaled(-value, -1);
+    }
+
+    public Dual sqrt() {
+        double root = Math.sqrt(value);
+        return scaled(root, 0.5 / root);
+    }
+
+    /**
+     * New Dual with the given value and the gradient times factor (chain rule for f(this)).
+     */
+    private Dual scaled(double newValue, double factor) {
+        double[] g = new double[gradient.length];
+        for (int i = 0; i < g.length; i++) {
+            g[i] = gradient[i] * factor;
+        }
+        return new Dual(newValue, g);
+    }
+
+    @Override
+    public String toString() {
+        return value + " " + Arrays.toString(gradient);
+    }
+}
@@ -0,0 +1,68 @@
+package com.ken10.Phase2.SolarSystemModel;
+
+/**
+ * Vector with Dual components, the differentiable counterpart of Vector.
+ */
+public final class DualVector {
+    private final Dual x;
+    private final Dual y;
+    private final Dual z;
+
+    public DualVector(Dual x, Dual y, Dual z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    /**
+     * A vector that doesn't depend on any of the size inputs.
+     */
+    public static DualVector constant(Vector v, int size) {
+        return new DualVector(Dual.constant(v.getX(), size), Dual.constant(v.getY(), size), Dual.constant(v.getZ(), size));
+    }
+
+    /**
+     * Input vector whose components are the inputs index, index + 1 and index + 2.
+     */
+    public static DualVector variable(Vector v, int size, int index) {
+        return new DualVector(Dual.variable(v.getX(), size, index), Dual.variable(v.getY(), size, index + 1),
+                Dual.variable(v.getZ(), size, index + 2));
+    }
+
+    public Dual getX() { return x; }
+    public Dual getY() { return y; }
+    public Dual getZ() { return z; }
+
+    public DualVector add(DualVector v) {
+        return new DualVector(x.add(v.x), y.add(v.y), z.add(v.z));
+    }
+
+    public DualVector subtract(DualVector v) {
+        return new DualVector(x.subtract(v.x), y.subtract(v.y), z.subtract(v.z));
+    }
+
+    public DualVector multiply(double c) {
+        return new DualVector(x.multiply(c), y.multiply(c), z.multiply(c));
+    }
+
+    public DualVector multiply(Dual c) {
+        return new DualVector(x.multiply(c), y.multiply(c), z.multiply(c));
+    }
+
+    public Dual dot(DualVector v) {
+        return x.multiply(v.x).add(y.multiply(v.y)).add(z.multiply(v.z));
+    }
+
+    public Dual magnitude() {
+        return dot(this).sqrt();
+    }
+
+    public Vector toVector() {
+        return new Vector(x.getValue(), y.getValue(), z.getValue());
+    }
+
+    @Override
+    public String toString() {
+        return "(" + x.getValue() + ", " + y.getValue() + ", " + z.getValue() + ")";
+    }
+}
@@ -2,8 +2,8 @@ package com.ken10.Phase2.SolarSystemModel;
 
 
 
-import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -15,49 +15,233 @@ public class GravityCalc {
     /**
      * Calculates acceleration Vectors of each celestial body in space.
      * Uses newtons laws of universal gravity.
-     * Uses Vector operations to form the equation as it's not possible normally. lines 34-42.
+     * Sums into a MutableVector, see accelerationAt.
      *
      * @param bodies planets and rocket.
      * @param bodyIndex position of celestial body in list.
      * @return acceleration.
      */
     public static Vector computeAcceleration(List<CelestialBodies> bodies, int bodyIndex) {
-        Vector acceleration = new Vector(0.0, 0.0, 0.0);
-
-            CelestialBodies currentBody = bodies.get(bodyIndex);
-
+        Vector position = bodies.get(bodyIndex).getPosition();
+        MutableVector acceleration = new MutableVector();
+        accelerationAt(bodies, bodyIndex, position.getX(), position.getY(), position.getZ(), acceleration);
+        return acceleration.toVector();
+    }
 
+    /**
+     * Acceleration at a point caused by the given bodies, without allocating.
+     * Bodies sitting exactly on the point and test particles are skipped.
+     *
+     * @param bodies bodies pulling on the point.
+     * @param skipIndex body to leave out (the one at the point), -1 for none.
+     * @param x position x.
+     * @param y position y.
+     * @param z position z.
+     * @param out receives the acceleration.
+     */
+    public static void accelerationAt(List<CelestialBodies> bodies, int skipIndex,
+                                      double x, double y, double z, MutableVector out) {
+        out.zero();
         for (int i = 0; i < bodies.size(); i++) {
-            if (i == bodyIndex) continue;
+            if (i == skipIndex) continue;
 
             CelestialBodies otherBody = bodies.get(i);
-            Vector differenceVector = currentBody.getPosition().subtract(otherBody.getPosition());
-            double distance = differenceVector.magnitude();
+            if (otherBody.isTestParticle()) continue;
+            Vector otherPosition = otherBody.getPosition();
+            double dx = otherPosition.getX() - x;
+            double dy = otherPosition.getY() - y;
+            double dz = otherPosition.getZ() - z;
+            double r2 = dx * dx + dy * dy + dz * dz;
 
-            if (distance == 0) continue;
+            if (r2 == 0) continue;
 
-            double forceMagnitude = -(g * currentBody.getMass() * otherBody.getMass())/ Math.pow(distance, 2);
-            Vector unitDirection = differenceVector.multiply(1.0/distance);
-            Vector forceVector = unitDirection.multiply(forceMagnitude);
-            Vector bodyAcceleration = forceVector.multiply(1.0/currentBody.getMass());
+            // the body's own mass cancels out of F/m
+            double s = g * otherBody.getMass() / (r2 * Math.sqrt(r2));
+            out.add(s * dx, s * dy, s * dz);
+        }
+    }
 
-            acceleration = acceleration.add(bodyAcceleration);
+    /**
+     * Primitive version of computeAcceleration for every body at once.
+     * Positions are interleaved (x0, y0, z0, x1, ...) and gm holds g * mass per body,
+     * so nothing gets allocated.
+     * Each pair is only visited once: the same 1/r^3 gives equal and opposite
+     * contributions to both bodies (newtons third law), scaled by the other body's gm.
+     * Every body pulls here, test particles included.
+     *
+     * @param pos positions, 3 per body.
+     * @param gm gravitational parameter of each body.
+     * @param n number of bodies.
+     * @param acc output accelerations, 3 per body.
+     */
+    public static void computeAccelerations(double[] pos, double[] gm, int n, double[] acc) {
+        computeAccelerations(pos, gm, n, n, acc);
+    }
+
+    /**
+     * Same as computeAccelerations(pos, gm, n, acc) but only the first nMassive bodies pull,
+     * the ones after them are test particles that only get pulled.
+     *
+     * @param pos positions, 3 per body.
+     * @param gm gravitational parameter of each body.
+     * @param nMassive number of gravitating bodies, they come first.
+     * @param n number of bodies.
+     * @param acc output accelerations, 3 per body.
+     */
+    public static void computeAccelerations(double[] pos, double[] gm, int nMassive, int n, double[] acc) {
+        Arrays.fill(acc, 0, 3 * nMassive, 0.0);
+        for (int i = 0; i < nMassive; i++) {
+            int a = 3 * i;
+            double xi = pos[a], yi = pos[a + 1], zi = pos[a + 2];
+            double gmi = gm[i];
+            double ax = 0, ay = 0, az = 0;
+            for (int j = i + 1; j < nMassive; j++) {
+                int b = 3 * j;
+                double dx = pos[b] - xi;
+                double dy = pos[b + 1] - yi;
+                double dz = pos[b + 2] - zi;
+                double r2 = dx * dx + dy * dy + dz * dz;
+                if (r2 == 0) continue;
+
+                double inv = 1.0 / (r2 * Math.sqrt(r2));
+                double si = gm[j] * inv;
+                double sj = gmi * inv;
+                ax += si * dx;
+                ay += si * dy;
+                az += si * dz;
+                acc[b] -= sj * dx;
+                acc[b + 1] -= sj * dy;
+                acc[b + 2] -= sj * dz;
+            }
+            acc[a] += ax;
+            acc[a + 1] += ay;
+            acc[a + 2] += az;
+        }
+        for (int i = nMassive; i < n; i++) {
+            accelerationAt(pos, gm, nMassive, pos[3 * i], pos[3 * i + 1], pos[3 * i + 2], acc, 3 * i);
         }
+    }
 
-        return acceleration;
+    /**
+     * Pull of the first nSources bodies on a point, written to out[o..o+2].
+     * Sources sitting exactly on the point are skipped.
+     *
+     * @param pos positions, 3 per body.
+     * @param gm gravitational parameter of each body.
+     * @param nSources number of bodies that pull.
+     * @param x position x.
+     * @param y position y.
+     * @param z position z.
+     * @param out output array.
+     * @param o offset in out.
+     */
+    public static void accelerationAt(double[] pos, double[] gm, int nSources,
+                                      double x, double y, double z, double[] out, int o) {
+        double ax = 0, ay = 0, az = 0;
+        for (int j = 0; j < nSources; j++) {
+            int b = 3 * j;
+            double dx = pos[b] - x;
+            double dy = pos[b + 1] - y;
+            double dz = pos[b + 2] - z;
+            double r2 = dx * dx + dy * dy + dz * dz;
+            if (r2 == 0) continue;
+
+            double s = gm[j] / (r2 * Math.sqrt(r2));
+            ax += s * dx;
+            ay += s * dy;
+            az += s * dz;
+        }
+        out[o] = ax;
+        out[o + 1] = ay;
+        out[o + 2] = az;
+    }
+
+    /**
+     * Same as accelerationAt plus the gravity gradient, the derivative of the acceleration
+     * with respect to the position of the point: sum of gm (3 d d^T / r^5 - I / r^3).
+     * That's what the variational equations (state transition matrix) need.
+     *
+     * @param acc output, 3 values.
+     * @param gradient output, 3x3 row major (it's symmetric anyway).
+     */
+    public static void gravityGradientAt(double[] pos, double[] gm, int nSources,
+                                         double x, double y, double z, double[] acc, double[] gradient) {
+        double ax = 0, ay = 0, az = 0;
+        double gxx = 0, gxy = 0, gxz = 0, gyy = 0, gyz = 0, gzz = 0;
+        for (int j = 0; j < nSources; j++) {
+            int b = 3 * j;
+            double dx = pos[b] - x;
+            double dy = pos[b + 1] - y;
+            double dz = pos[b + 2] - z;
+            double r2 = dx * dx + dy * dy + dz * dz;
+            if (r2 == 0) continue;
+
+            double s = gm[j] / (r2 * Math.sqrt(r2));
+            ax += s * dx;
+            ay += s * dy;
+            az += s * dz;
+            double t = 3 * s / r2;
+            gxx += t * dx * dx - s;
+            gyy += t * dy * dy - s;
+            gzz += t * dz * dz - s;
+            gxy += t * dx * dy;
+            gxz += t * dx * dz;
+            gyz += t * dy * dz;
+        }
+        acc[0] = ax;
+        acc[1] = ay;
+        acc[2] = az;
+        gradient[0] = gxx;
+        gradient[1] = gxy;
+        gradient[2] = gxz;
+        gradient[3] = gxy;
+        gradient[4] = gyy;
+        gradient[5] = gyz;
+        gradient[6] = gxz;
+        gradient[7] = gyz;
+        gradient[8] = gzz;
+    }
+
+    /**
+     * Accelerations of all bodies in the list, see computeAccelerations(double[], double[], int, double[]).
+     * Test particles get pulled but don't pull.
+     *
+     * @param bodies planets and rocket.
+     * @return acceleration of each body, same order as bodies.
+     */
+    public static Vector[] computeAccelerations(List<CelestialBodies> bodies) {
+        int n = bodies.size();
+        double[] pos = new double[3 * n];
+        double[] gm = new double[n];
+        double[] acc = new double[3 * n];
+        for (int i = 0; i < n; i++) {
+            CelestialBodies body = bodies.get(i);
+            pos[3 * i] = body.getPosition().getX();
+            pos[3 * i + 1] = body.getPosition().getY();
+            pos[3 * i + 2] = body.getPosition().getZ();
+            gm[i] = body.isTestParticle() ? 0 : g * body.getMass();
+        }
+        computeAccelerations(pos, gm, n, acc);
+
+        Vector[] accelerations = new Vector[n];
+        for (int i = 0; i < n; i++) {
+            accelerations[i] = new Vector(acc[3 * i], acc[3 * i + 1], acc[3 * i + 2]);
+        }
+        return accelerations;
     }
 
     /**
-     * Calculates derivatives at certain times to model planet movement.
+     * Calculates derivatives to model planet movement, gravity doesn't depend on the time
+     * so only the state is needed.
      * Creates new bodies for instances of body objects to hold derivatives.
      * sun remains at the origin.
      *
-     * @param time time -_-
      * @param bodies planets and rocket.
      * @return derivatives at the time.
      */
-    public static ArrayList<CelestialBodies> computeDerivatives(LocalDateTime time, ArrayList<CelestialBodies> bodies) {
+    public static ArrayList<CelestialBodies> computeDerivatives(ArrayList<CelestialBodies> bodies) {
         ArrayList<CelestialBodies> derivatives = new ArrayList<>();
+        Vector[] accelerations = computeAccelerations(bodies);
 
         for (int i = 0; i < bodies.size(); i++) {
             CelestialBodies original = bodies.get(i);
@@ -65,7 +249,7 @@ public class GravityCalc {
             // ds/dt = current velocity
             Vector positionDerivative = original.getVelocity();
 
-            Vector acceleration = computeAcceleration(bodies, i);
+            Vector acceleration = accelerations[i];
 
             //Create a new Body for the derivatives
             CelestialBodies derivativeBody;
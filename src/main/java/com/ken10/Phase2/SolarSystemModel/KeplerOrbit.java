@@ -0,0 +1,116 @@
+package com.ken10.Phase2.SolarSystemModel;
+
+/**
+ * Two-body conic around a point mass, propagated with universal variables so
+ * ellipses and hyperbolas (flybys) go through the same code.
+ * Positions and velocities are relative to the central body.
+ */
+public class KeplerOrbit {
+    private static final int MAX_ITERATIONS = 50;
+
+    private final double mu;
+    private final double sqrtMu;
+    private final double x0, y0, z0;
+    private final double vx0, vy0, vz0;
+    private final double r0;
+    private final double radialVelocity;
+    private final double alpha;
+
+    // last solution, a good first guess for a nearby time
+    private double lastDt;
+    private double lastChi;
+    private double lastR;
+
+    /**
+     * @param mu gravitational parameter of the central body (g * mass).
+     * @param position position at the epoch, relative to the central body.
+     * @param velocity velocity at the epoch, relative to the central body.
+     */
+    public KeplerOrbit(double mu, double[] position, double[] velocity) {
+        this.mu = mu;
+        this.sqrtMu = Math.sqrt(mu);
+        this.x0 = position[0];
+        this.y0 = position[1];
+        this.z0 = position[2];
+        this.vx0 = velocity[0];
+        this.vy0 = velocity[1];
+        this.vz0 = velocity[2];
+        this.r0 = Vector.magnitude(x0, y0, z0);
+        this.radialVelocity = Vector.dot(x0, y0, z0, vx0, vy0, vz0) / sqrtMu;
+        // 1 / semi-major axis, negative for hyperbolas
+        this.alpha = 2 / r0 - Vector.dot(vx0, vy0, vz0, vx0, vy0, vz0) / mu;
+        this.lastR = r0;
+    }
+
+    /**
+     * State dt seconds after the epoch.
+     *
+     * @param dt seconds since the epoch, can be negative.
+     * @param position output, 3 values.
+     * @param velocity output, 3 values, null if not needed.
+     */
+    public void propagate(double dt, double[] position, double[] velocity) {
+        double chi = solve(dt);
+        double z = alpha * chi * chi;
+        double c = stumpffC(z);
+        double s = stumpffS(z);
+        double chi2 = chi * chi;
+
+        double f = 1 - chi2 / r0 * c;
+        double g = dt - chi2 * chi / sqrtMu * s;
+        position[0] = f * x0 + g * vx0;
+        position[1] = f * y0 + g * vy0;
+        position[2] = f * z0 + g * vz0;
+        if (velocity == null) return;
+
+        double r = Vector.magnitude(position[0], position[1], position[2]);
+        double fDot = sqrtMu / (r * r0) * chi * (z * s - 1);
+        double gDot = 1 - chi2 / r * c;
+        velocity[0] = fDot * x0 + gDot * vx0;
+        velocity[1] = fDot * y0 + gDot * vy0;
+        velocity[2] = fDot * z0 + gDot * vz0;
+    }
+
+    public double getMu() {
+        return mu;
+    }
+
+    /**
+     * Newton on the universal Kepler equation, starting from the last solution.
+     */
+    private double solve(double dt) {
+        // d(chi)/dt = sqrt(mu) / r
+        double chi = lastChi + (dt - lastDt) * sqrtMu / lastR;
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            double chi2 = chi * chi;
+            double z = alpha * chi2;
+            double c = stumpffC(z);
+            double s = stumpffS(z);
+            double t = radialVelocity * chi2 * c + (1 - alpha * r0) * chi2 * chi * s + r0 * chi;
+            double r = radialVelocity * chi * (1 - z * s) + (1 - alpha * r0) * chi2 * c + r0;
+            double delta = (t - sqrtMu * dt) / r;
+            chi -= delta;
+            lastR = r;
+            if (Math.abs(delta) <= 1e-13 * Math.max(1, Math.abs(chi))) break;
+        }
+        lastDt = dt;
+        lastChi = chi;
+        return chi;
+    }
+
+    static double stumpffC(double z) {
+        if (Math.abs(z) < 1e-3) return 0.5 - z / 24 + z * z / 720;
+        if (z > 0) return (1 - Math.cos(Math.sqrt(z))) / z;
+        return (Math.cosh(Math.sqrt(-z)) - 1) / -z;
+    }
+
+    static double stumpffS(double z) {
+        if (Math.abs(z) < 1e-3) return 1.0 / 6 - z / 120 + z * z / 5040;
+        if (z > 0) {
+            double sz = Math.sqrt(z);
+            return (sz - Math.sin(sz)) / (sz * sz * sz);
+        }
+        double sz = Math.sqrt(-z);
+        return (Math.sinh(sz) - sz) / (sz * sz * sz);
+    }
+}
@@ -0,0 +1,153 @@
+package com.ken10.Phase2.SolarSystemModel;
+
+/**
+ * Mutable counterpart of DualVector for hot loops, like MutableVector is for Vector.
+ * The value and the derivatives live in arrays that every operation overwrites in place,
+ * so a step of a differentiated integration doesn't create any objects.
+ */
+public final class MutableDualVector {
+    private final int size;
+    private final double[] value = new double[3];
+    // derivative of component k with respect to input i at k * size + i
+    private final double[] gradient;
+
+    /**
+     * Zero vector that doesn't depend on any of the size inputs.
+     */
+    public MutableDualVector(int size) {
+        this.size = size;
+        this.gradient = new double[3 * size];
+    }
+
+    /**
+     * Input vector whose components are the inputs index, index + 1 and index + 2.
+     */
+    public static MutableDualVector variable(Vector v, int size, int index) {
+        MutableDualVector result = new MutableDualVector(size);
+        result.value[0] = v.getX();
+        result.value[1] = v.getY();
+        result.value[2] = v.getZ();
+        for (int k = 0; k < 3; k++) {
+            result.gradient[k * size + index + k] = 1;
+        }
+        return result;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getX() { return value[0]; }
+    public double getY() { return value[1]; }
+    public double getZ() { return value[2]; }
+
+    /**
+     * d component / d input.
+     */
+    public double getDerivative(int component, int input) {
+        return gradient[component * size + input];
+    }
+
+    public MutableDualVector set(MutableDualVector v) {
+        System.arraycopy(v.value, 0, value, 0, 3);
+        System.arraycopy(v.gradient, 0, gradient, 0, gradient.length);
+        return this;
+    }
+
+    public MutableDualVector add(MutableDualVector v) {
+        for (int k = 0; k < 3; k++) {
+            value[k] += v.value[k];
+        }
+        for (int i = 0; i < gradient.length; i++) {
+            gradient[i] += v.gradient[i];
+        }
+        return this;
+    }
+
+    public MutableDualVector add(DualVector v) {
+        Dual[] components = {v.getX(), v.getY(), v.getZ()};
+        for (int k = 0; k < 3; k++) {
+            value[k] += components[k].getValue();
+            for (int i = 0; i < size; i++) {
+                gradient[k * size + i] += components[k].getDerivative(i);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * this += c * v
+     */
+    public MutableDualVector addScaled(MutableDualVector v, double c) {
+        for (int k = 0; k < 3; k++) {
+            value[k] += v.value[k] * c;
+        }
+        for (int i = 0; i < gradient.length; i++) {
+            gradient[i] += v.gradient[i] * c;
+        }
+        return this;
+    }
+
+    public MutableDualVector scale(double c) {
+        for (int k = 0; k < 3; k++) {
+            value[k] *= c;
+        }
+        for (int i = 0; i < gradient.length; i++) {
+            gradient[i] *= c;
+        }
+        return this;
+    }
+
+    /**
+     * this = f(v) for a function with the given value and 3x3 Jacobian (row major) at v,
+     * e.g. the acceleration and gravity gradient from GravityCalc.gravityGradientAt.
+     * The chain rule makes the derivatives jacobian times those of v.
+     */
+    public MutableDualVector chain(double[] f, double[] jacobian, MutableDualVector v) {
+        System.arraycopy(f, 0, value, 0, 3);
+        for (int k = 0; k < 3; k++) {
+            for (int i = 0; i < size; i++) {
+                gradient[k * size + i] = jacobian[3 * k] * v.gradient[i]
+                        + jacobian[3 * k + 1] * v.gradient[size + i]
+                        + jacobian[3 * k + 2] * v.gradient[2 * size + i];
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Gradient of the distance to a constant point into out (size values).
+     *
+     * @return the distance.
+     */
+    public double distance(double px, double py, double pz, double[] out) {
+        double rx = value[0] - px, ry = value[1] - py, rz = value[2] - pz;
+        double r = Vector.magnitude(rx, ry, rz);
+        for (int i = 0; i < size; i++) {
+            out[i] = (rx * gradient[i] + ry * gradient[size + i] + rz * gradient[2 * size + i]) / r;
+        }
+        return r;
+    }
+
+    /**
+     * @return an immutable copy.
+     */
+    public DualVector toDualVector() {
+        return new DualVector(component(0), component(1), component(2));
+    }
+
+    private Dual component(int k) {
+        double[] g = new double[size];
+        System.arraycopy(gradient, k * size, g, 0, size);
+        return new Dual(value[k], g);
+    }
+
+    public Vector toVector() {
+        return new Vector(value[0], value[1], value[2]);
+    }
+
+    @Override
+    public String toString() {
+        return "(" + value[0] + ", " + value[1] + ", " + value[2] + ")";
+    }
+}
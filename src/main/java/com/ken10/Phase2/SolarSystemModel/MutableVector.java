@@ -0,0 +1,147 @@
+package com.ken10.Phase2.SolarSystemModel;
+
+/**
+ * Mutable counterpart of Vector for hot loops.
+ * Every operation works in place and returns this so calls can be chained,
+ * e.g. sum.set(k1).addScaled(k2, 2).addScaled(k3, 2).add(k4).scale(h / 6)
+ * without creating any temporary objects.
+ */
+public class MutableVector {
+    private double x;
+    private double y;
+    private double z;
+
+    public MutableVector() {
+    }
+
+    public MutableVector(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    public MutableVector(Vector v) {
+        this(v.getX(), v.getY(), v.getZ());
+    }
+
+    public double getX() { return x; }
+    public double getY() { return y; }
+    public double getZ() { return z; }
+
+    public MutableVector set(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        return this;
+    }
+
+    public MutableVector set(Vector v) {
+        return set(v.getX(), v.getY(), v.getZ());
+    }
+
+    public MutableVector set(MutableVector v) {
+        return set(v.x, v.y, v.z);
+    }
+
+    public MutableVector zero() {
+        return set(0, 0, 0);
+    }
+
+    public MutableVector add(double x, double y, double z) {
+        this.x += x;
+        this.y += y;
+        this.z += z;
+        return this;
+    }
+
+    public MutableVector add(Vector v) {
+        return add(v.getX(), v.getY(), v.getZ());
+    }
+
+    public MutableVector add(MutableVector v) {
+        return add(v.x, v.y, v.z);
+    }
+
+    public MutableVector subtract(Vector v) {
+        return add(-v.getX(), -v.getY(), -v.getZ());
+    }
+
+    public MutableVector subtract(MutableVector v) {
+        return add(-v.x, -v.y, -v.z);
+    }
+
+    public MutableVector scale(double c) {
+        return set(x * c, y * c, z * c);
+    }
+
+    /**
+     * this += c * v
+     */
+    public MutableVector addScaled(Vector v, double c) {
+        return add(v.getX() * c, v.getY() * c, v.getZ() * c);
+    }
+
+    /**
+     * this += c * v
+     */
+    public MutableVector addScaled(MutableVector v, double c) {
+        return add(v.x * c, v.y * c, v.z * c);
+    }
+
+    /**
+     * this = base + c * v
+     */
+    public MutableVector fma(Vector base, double c, Vector v) {
+        return set(Math.fma(c, v.getX(), base.getX()),
+                Math.fma(c, v.getY(), base.getY()),
+                Math.fma(c, v.getZ(), base.getZ()));
+    }
+
+    /**
+     * this = base + c * v
+     */
+    public MutableVector fma(MutableVector base, double c, MutableVector v) {
+        return set(Math.fma(c, v.x, base.x),
+                Math.fma(c, v.y, base.y),
+                Math.fma(c, v.z, base.z));
+    }
+
+    public double magnitudeSquared() {
+        return x * x + y * y + z * z;
+    }
+
+    public double magnitude() {
+        return Math.sqrt(magnitudeSquared());
+    }
+
+    public double dot(MutableVector v) {
+        return x * v.x + y * v.y + z * v.z;
+    }
+
+    public double distanceSquaredTo(double x, double y, double z) {
+        return Vector.distanceSquared(this.x, this.y, this.z, x, y, z);
+    }
+
+    public double distanceSquaredTo(Vector v) {
+        return distanceSquaredTo(v.getX(), v.getY(), v.getZ());
+    }
+
+    public double distanceSquaredTo(MutableVector v) {
+        return distanceSquaredTo(v.x, v.y, v.z);
+    }
+
+    public double distanceTo(Vector v) {
+        return Math.sqrt(distanceSquaredTo(v));
+    }
+
+    /**
+     * @return an (immutable by convention) Vector with the current values.
+     */
+    public Vector toVector() {
+        return new Vector(x, y, z);
+    }
+
+    public String toString() {
+        return "(" + x + ", " + y + ", " + z + ")";
+    }
+}
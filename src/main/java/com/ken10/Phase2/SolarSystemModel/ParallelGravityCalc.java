@@ -0,0 +1,236 @@
+package com.ken10.Phase2.SolarSystemModel;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Direct summation like GravityCalc.computeAccelerations, spread over a ForkJoinPool.
+ * <p>
+ * The pairs (i < j) are cut into one chunk per pool thread, with about the same number
+ * of pairs each. Every chunk adds its equal and opposite contributions into its own
+ * accumulator, so the threads never write to the same array, and the accumulators are
+ * summed into acc afterwards. A chunk starting at row r only ever writes bodies r and up,
+ * so its accumulator only covers those. Below threshold bodies it just calls the single threaded
+ * kernel, small systems like SolarSystem.createPlanets() don't pay for forking.
+ * Test particles are split over the pool separately, they only read the massive bodies.
+ */
+public class ParallelGravityCalc implements AccelerationProvider {
+    public static final int DEFAULT_THRESHOLD = 1024;
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+    private final int chunks;
+
+    private int[] rowStart;
+    // accumulators[c][k] belongs to coordinate 3 * rowStart[c] + k
+    private double[][] accumulators = new double[0][];
+
+    public ParallelGravityCalc() {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    public ParallelGravityCalc(int threshold) {
+        this(threshold, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param threshold number of bodies from which on the work is split.
+     * @param pool pool to run the chunks on.
+     */
+    public ParallelGravityCalc(int threshold, ForkJoinPool pool) {
+        this.threshold = threshold;
+        this.pool = pool;
+        // one accumulator per thread, the chunks have equal pair counts already
+        this.chunks = pool.getParallelism();
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * The chunks decide the order the pairs get summed in, so they go in with the threshold.
+     */
+    @Override
+    public String cacheKey() {
+        return AccelerationProvider.super.cacheKey() + "/threshold=" + threshold + "/chunks=" + chunks;
+    }
+
+    /**
+     * Below threshold the results are GravityCalc's, whatever the pool, so is the key.
+     */
+    @Override
+    public String cacheKey(int n) {
+        return n < threshold ? GravityCalc.class.getName() : cacheKey();
+    }
+
+    @Override
+    public void computeAccelerations(double[] pos, double[] gm, int nMassive, int n, double[] acc) {
+        if (n < threshold) {
+            GravityCalc.computeAccelerations(pos, gm, nMassive, n, acc);
+            return;
+        }
+        prepare(nMassive);
+        pool.invoke(new PairTask(pos, gm, nMassive, 0, chunks));
+        pool.invoke(new ReduceTask(acc, 0, 3 * nMassive));
+        // every test particle only writes its own slot, no accumulators needed
+        pool.invoke(new ParticleTask(pos, gm, nMassive, acc, nMassive, n));
+    }
+
+    /**
+     * Splits the rows of the pair triangle into chunks of equal pair count
+     * and gives every chunk an accumulator for the rows from its first one on.
+     */
+    private void prepare(int n) {
+        if (rowStart == null || rowStart[chunks] != n) {
+            rowStart = new int[chunks + 1];
+            double totalPairs = n * (n - 1) / 2.0;
+            int row = 0;
+            double pairsBefore = 0;
+            for (int c = 1; c < chunks; c++) {
+                double target = totalPairs * c / chunks;
+                while (row < n && pairsBefore + (n - 1 - row) <= target) {
+                    pairsBefore += n - 1 - row;
+                    row++;
+                }
+                rowStart[c] = row;
+            }
+            rowStart[chunks] = n;
+            accumulators = new double[chunks][];
+            for (int c = 0; c < chunks; c++) {
+                accumulators[c] = new double[3 * (n - rowStart[c])];
+            }
+        }
+    }
+
+    /**
+     * All pairs (i, j > i) for the rows of one chunk, into that chunk's accumulator.
+     */
+    private void pairs(double[] pos, double[] gm, int n, int chunk) {
+        double[] acc = accumulators[chunk];
+        Arrays.fill(acc, 0.0);
+        int base = 3 * rowStart[chunk];
+        for (int i = rowStart[chunk]; i < rowStart[chunk + 1]; i++) {
+            int a = 3 * i;
+            double xi = pos[a], yi = pos[a + 1], zi = pos[a + 2];
+            double gmi = gm[i];
+            double ax = 0, ay = 0, az = 0;
+            for (int j = i + 1; j < n; j++) {
+                int b = 3 * j;
+                double dx = pos[b] - xi;
+                double dy = pos[b + 1] - yi;
+                double dz = pos[b + 2] - zi;
+                double r2 = dx * dx + dy * dy + dz * dz;
+                if (r2 == 0) continue;
+
+                double inv = 1.0 / (r2 * Math.sqrt(r2));
+                double si = gm[j] * inv;
+                double sj = gmi * inv;
+                ax += si * dx;
+                ay += si * dy;
+                az += si * dz;
+                acc[b - base] -= sj * dx;
+                acc[b - base + 1] -= sj * dy;
+                acc[b - base + 2] -= sj * dz;
+            }
+            acc[a - base] += ax;
+            acc[a - base + 1] += ay;
+            acc[a - base + 2] += az;
+        }
+    }
+
+    private class PairTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final double[] pos;
+        private final double[] gm;
+        private final int n;
+        private final int from;
+        private final int to;
+
+        PairTask(double[] pos, double[] gm, int n, int from, int to) {
+            this.pos = pos;
+            this.gm = gm;
+            this.n = n;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                pairs(pos, gm, n, from);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new PairTask(pos, gm, n, from, mid), new PairTask(pos, gm, n, mid, to));
+        }
+    }
+
+    private static class ParticleTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int MIN_PARTICLES = 256;
+        private final double[] pos;
+        private final double[] gm;
+        private final int nMassive;
+        private final double[] acc;
+        private final int from;
+        private final int to;
+
+        ParticleTask(double[] pos, double[] gm, int nMassive, double[] acc, int from, int to) {
+            this.pos = pos;
+            this.gm = gm;
+            this.nMassive = nMassive;
+            this.acc = acc;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= MIN_PARTICLES) {
+                for (int i = from; i < to; i++) {
+                    GravityCalc.accelerationAt(pos, gm, nMassive, pos[3 * i], pos[3 * i + 1], pos[3 * i + 2], acc, 3 * i);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ParticleTask(pos, gm, nMassive, acc, from, mid),
+                    new ParticleTask(pos, gm, nMassive, acc, mid, to));
+        }
+    }
+
+    /**
+     * Sums the chunk accumulators into acc, split over index ranges.
+     */
+    private class ReduceTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int MIN_RANGE = 3 * 1024;
+        private final double[] acc;
+        private final int from;
+        private final int to;
+
+        ReduceTask(double[] acc, int from, int to) {
+            this.acc = acc;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= MIN_RANGE) {
+                for (int k = from; k < to; k++) {
+                    double sum = 0;
+                    // chunks starting past this body never touch it
+                    for (int c = 0; c < chunks && 3 * rowStart[c] <= k; c++) {
+                        sum += accumulators[c][k - 3 * rowStart[c]];
+                    }
+                    acc[k] = sum;
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ReduceTask(acc, from, mid), new ReduceTask(acc, mid, to));
+        }
+    }
+}
@@ -1,12 +1,17 @@
 package com.ken10.Phase2.SolarSystemModel;
 
+import com.ken10.Phase2.StatesCalculations.EphemerisCache;
 import com.ken10.Phase2.StatesCalculations.EphemerisLoader;
+import com.ken10.Phase2.StatesCalculations.Timeline;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 
 import static com.ken10.Phase2.SolarSystemModel.Vector.getDistance;
 
+/**
+ * The spaceship. Its mass doesn't matter for the planets, so probes are test particles by default.
+ */
 public class Probe extends CelestialBodies {
     private double distanceToTarget;
     public static final double MASS = 50000;
@@ -28,6 +33,7 @@ public class Probe extends CelestialBodies {
 
     public Probe(String name, Vector position, Vector velocity) {
         super(name, position, velocity, MASS);
+        this.testParticle = true;
         this.initialPosition = position;
         this.initialVelocity = velocity;
         this.currentThrust = new Vector(0, 0, 0);
@@ -41,14 +47,17 @@ public class Probe extends CelestialBodies {
     }
     public Probe(String name, Vector position, Vector velocity, double mass, double scaling, double size){
         super(name, position, velocity, mass, scaling, size);
+        this.testParticle = true;
     }
 
     public Probe(String name, Vector position, Vector velocity, double scaling, double size){
         super(name, position, velocity, MASS, scaling, size);
+        this.testParticle = true;
     }
 
     public Probe(String name, Vector position, Vector velocity, boolean isNuclearEngine) {
         super(name, position, velocity, MASS);
+        this.testParticle = true;
         this.initialPosition = position;
         this.initialVelocity = velocity;
         this.currentThrust = new Vector(0, 0, 0);
@@ -156,13 +165,10 @@ public class Probe extends CelestialBodies {
     }
 
     public static void main(String[] args) {
-        EphemerisLoader EPH = new EphemerisLoader(2);
-        EPH.solve();
+        Timeline EPH = EphemerisCache.getDefault().load(new EphemerisLoader(2));
 
-        Vector earthPosition = EPH.history.get(LocalDateTime.of(2025, 4, 1, 0, 0, 0))
-                .get(BodyID.EARTH.index()).getPosition();
-        Vector titanPosition = EPH.history.get(LocalDateTime.of(2025, 4, 1, 0, 0, 0))
-                .get(BodyID.TITAN.index()).getPosition();
+        Vector earthPosition = EPH.position(BodyID.EARTH, LocalDateTime.of(2025, 4, 1, 0, 0, 0));
+        Vector titanPosition = EPH.position(BodyID.TITAN, LocalDateTime.of(2025, 4, 1, 0, 0, 0));
 
 // Get direction vector from Earth to Titan
         Vector earthToTitan = titanPosition.subtract(earthPosition);
@@ -1,10 +1,11 @@
 package com.ken10.Phase2.SolarSystemModel;
 
-import com.ken10.Phase2.StatesCalculations.EphemerisLoader;
+import com.ken10.Phase2.StatesCalculations.LazyEphemeris;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import static com.ken10.Phase2.SolarSystemModel.Vector.getDistance;
 
@@ -312,16 +313,56 @@ public class SolarSystem {
         return bodies;
     }
 
+    /**
+     * Appends a main-belt like population of small bodies on circular orbits around the sun,
+     * for large-N runs (see BarnesHutTree).
+     * Orbits are 2.2 - 3.3 AU with up to 10 degrees inclination, masses 1e15 - 1e19 kg.
+     *
+     * @param bodies system to add to, the sun must be at index 0.
+     * @param count number of asteroids.
+     * @param seed random seed so runs can be repeated.
+     */
+    public static void addAsteroidBelt(ArrayList<CelestialBodies> bodies, int count, long seed) {
+        final double AU = 1.495978707E8;
+        Random random = new Random(seed);
+        CelestialBodies sun = bodies.get(BodyID.SUN.index());
+        double sunGm = GravityCalc.g * sun.getMass();
+
+        for (int i = 0; i < count; i++) {
+            double r = (2.2 + 1.1 * random.nextDouble()) * AU;
+            double phase = 2 * Math.PI * random.nextDouble();
+            double node = 2 * Math.PI * random.nextDouble();
+            double inclination = Math.toRadians(10) * random.nextDouble();
+            double mass = Math.pow(10, 15 + 4 * random.nextDouble());
+            double speed = Math.sqrt(sunGm / r);
+
+            // position and velocity in the orbital plane, then tilted around the line of nodes
+            double px = r * Math.cos(phase), py = r * Math.sin(phase);
+            double vx = -speed * Math.sin(phase), vy = speed * Math.cos(phase);
+            Vector position = tilt(px, py, node, inclination).add(sun.getPosition());
+            Vector velocity = tilt(vx, vy, node, inclination).add(sun.getVelocity());
+
+            bodies.add(new PlanetModel("asteroid" + i, position, velocity, mass, 1.0, 0.05 * earthSize));
+        }
+    }
+
+    private static Vector tilt(double x, double y, double node, double inclination) {
+        double yTilted = y * Math.cos(inclination);
+        double z = y * Math.sin(inclination);
+        return new Vector(x * Math.cos(node) - yTilted * Math.sin(node),
+                x * Math.sin(node) + yTilted * Math.cos(node), z);
+    }
+
     public static void main(String[] args) {
-        EphemerisLoader eph = new EphemerisLoader(2);
-        eph.solve();
         LocalDateTime t0 = LocalDateTime.of(2025,4,1,0,0,0);
+        // only the three months scanned below get integrated, a week at a time
+        LazyEphemeris eph = new LazyEphemeris(createPlanets(), t0, t0.plusYears(1), 2, 7 * 24 * 60, 16L << 20);
         LocalDateTime t1 = t0.plusMonths(3);
         double minDistance = Double.MAX_VALUE;
         LocalDateTime timeClosest = t0;
         for(LocalDateTime t = t0; t.isBefore(t1); t = t.plusDays(1)) {
-            Vector earth = eph.history.get(t).get(BodyID.EARTH.index()).getPosition();
-            Vector titan  = eph.history.get(t).get(BodyID.TITAN.index()).getPosition();
+            Vector earth = eph.position(BodyID.EARTH, t);
+            Vector titan  = eph.position(BodyID.TITAN, t);
             if(getDistance(earth, titan) < minDistance){
             minDistance = getDistance(earth, titan);
             timeClosest = t;
@@ -46,12 +46,41 @@ public class Vector {
     public Vector divide(double val) {return new Vector(this.x / val, this.y / val, this.z / val);}
 
     public static double getDistance(Vector v1, Vector v2) {
-        Vector newVector = new Vector(v1.x - v2.x, v1.y - v2.y, v1.z - v2.z);
-        return newVector.magnitude();
+        return distance(v1.x, v1.y, v1.z, v2.x, v2.y, v2.z);
     }
 
     public double getDistance(Vector v) {
-        return new Vector(this.x - v.x, this.y - v.y, this.z - v.z).magnitude();
+        return getDistance(this, v);
+    }
+
+    // Allocation free helpers on raw coordinates, for hot loops
+
+    public static double magnitude(double x, double y, double z) {
+        return Math.sqrt(x * x + y * y + z * z);
+    }
+
+    public static double distanceSquared(double x1, double y1, double z1, double x2, double y2, double z2) {
+        double dx = x1 - x2;
+        double dy = y1 - y2;
+        double dz = z1 - z2;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    public static double distance(double x1, double y1, double z1, double x2, double y2, double z2) {
+        return Math.sqrt(distanceSquared(x1, y1, z1, x2, y2, z2));
+    }
+
+    public static double dot(double x1, double y1, double z1, double x2, double y2, double z2) {
+        return x1 * x2 + y1 * y2 + z1 * z2;
+    }
+
+    /**
+     * dst[d..d+2] += c * src[s..s+2], for interleaved xyz arrays.
+     */
+    public static void addScaled(double[] dst, int d, double[] src, int s, double c) {
+        dst[d] += c * src[s];
+        dst[d + 1] += c * src[s + 1];
+        dst[d + 2] += c * src[s + 2];
     }
 
     public Vector cross(Vector v) {
@@ -0,0 +1,334 @@
+package com.ken10.Phase2.StatesCalculations;
+
+import com.ken10.Phase2.SolarSystemModel.CelestialBodies;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+
+/**
+ * Adams-Bashforth-Moulton predictor-corrector on the flat arrays, of a fixed order or
+ * picking its own order as it goes.
+ * <p>
+ * The derivatives of the last order steps are kept, the Adams-Bashforth predictor
+ * extrapolates them to the next step and the Adams-Moulton corrector uses the
+ * accelerations at the predicted positions. That's two force evaluations per step
+ * (PECE), or one when the final evaluation is skipped (PEC, the predicted
+ * derivatives are kept instead). PEC goes unstable quickly above order 4 or so.
+ * The first order - 1 steps are RK4 steps to fill the derivative history (START_ORDER - 1
+ * with variable order).
+ * <p>
+ * With variable order the step stays fixed, so every order costs the same force
+ * evaluations and the order only decides the error. After each step the local error of
+ * orders k - 1, k and k + 1 is estimated from the backward differences of the stored
+ * derivatives (h * gamma*_j * nabla^j f) and the order moves one towards the smallest.
+ * It goes down as soon as a lower order does as well, up only after k steps at the same
+ * order. The differences stop shrinking once they are down to rounding or the step is
+ * too long for the motion, so that is where the order settles.
+ */
+public class AdamsBashforthMoultonSolver extends ArrayRK4Solver {
+    public static final int MAX_ORDER = 12;
+    // variable order starts here: a few low order steps at the start leave an error in
+    // the fast moons that grows along track for the rest of the run
+    private static final int START_ORDER = 8;
+    // gamma*_j of the Adams-Moulton backward difference form, up to the k + 1 estimate
+    private static final double[] MOULTON_GAMMA = moultonGamma(MAX_ORDER + 2);
+
+    private final int maxOrder;
+    private final boolean variableOrder;
+    private final boolean finalEvaluation;
+    // predictors[k] and correctors[k] are the weights of order k
+    private final double[][] predictors = new double[MAX_ORDER + 1][];
+    private final double[][] correctors = new double[MAX_ORDER + 1][];
+    private int order;
+    private int stepsAtOrder;
+
+    // derivative history as a ring, slot newest holds the derivatives of the current state
+    private double[][] historyVel;
+    private double[][] historyAcc;
+    private int newest;
+    private int stored;
+    private double[] predictedPos;
+    private double[] predictedVel;
+    private double[] predictedAcc;
+
+    private long forceEvaluations;
+
+    /**
+     * PECE that picks its order, up to MAX_ORDER.
+     */
+    public AdamsBashforthMoultonSolver(ArrayList<CelestialBodies> planetarySystem, LocalDateTime startTime, LocalDateTime endTime,
+                                       int stepSizeMins) {
+        this(planetarySystem, startTime, endTime, stepSizeMins, MAX_ORDER, true, true);
+    }
+
+    /**
+     * PECE with the given order.
+     */
+    public AdamsBashforthMoultonSolver(ArrayList<CelestialBodies> planetarySystem, LocalDateTime startTime, LocalDateTime endTime,
+                                       int stepSizeMins, int order) {
+        this(planetarySystem, startTime, endTime, stepSizeMins, order, true);
+    }
+
+    /**
+     * @param order number of past derivatives used, 1 to MAX_ORDER.
+     * @param finalEvaluation true for PECE (2 force evaluations per step), false for PEC (1).
+     */
+    public AdamsBashforthMoultonSolver(ArrayList<CelestialBodies> planetarySystem, LocalDateTime startTime, LocalDateTime endTime,
+                                       int stepSizeMins, int order, boolean finalEvaluation) {
+        this(planetarySystem, startTime, endTime, stepSizeMins, order, finalEvaluation, false);
+    }
+
+    /**
+     * @param order the order, or the highest one the solver may pick with variableOrder.
+     * @param variableOrder true to let the solver pick the order every step.
+     */
+    public AdamsBashforthMoultonSolver(ArrayList<CelestialBodies> planetarySystem, LocalDateTime startTime, LocalDateTime endTime,
+                                       int stepSizeMins, int order, boolean finalEvaluation, boolean variableOrder) {
+        super(planetarySystem, startTime, endTime, stepSizeMins);
+        if (order < 1 || order > MAX_ORDER) {
+            throw new IllegalArgumentException("order has to be between 1 and " + MAX_ORDER + ": " + order);
+        }
+        this.maxOrder = order;
+        this.variableOrder = variableOrder;
+        this.finalEvaluation = finalEvaluation;
+        for (int k = variableOrder ? 1 : order; k <= order; k++) {
+            predictors[k] = bashforthCoefficients(k);
+            correctors[k] = moultonCoefficients(k);
+        }
+        this.order = startOrder();
+        // the k + 1 estimate needs k + 2 derivatives
+        int capacity = variableOrder ? order + 2 : order;
+        this.historyVel = new double[capacity][3 * n];
+        this.historyAcc = new double[capacity][3 * n];
+    }
+
+    private int startOrder() {
+        return variableOrder ? Math.min(START_ORDER, maxOrder) : maxOrder;
+    }
+
+    @Override
+    protected void loadState() {
+        super.loadState();
+        predictedPos = new double[3 * n];
+        predictedVel = new double[3 * n];
+        predictedAcc = new double[3 * n];
+        System.arraycopy(pos, 0, predictedPos, 0, FIRST_MOVING);
+        // the derivative history doesn't belong to the new state anymore
+        stored = 0;
+        if (historyVel != null) {
+            historyVel = new double[historyVel.length][3 * n];
+            historyAcc = new double[historyAcc.length][3 * n];
+            order = startOrder();
+            stepsAtOrder = 0;
+        }
+    }
+
+    @Override
+    public void step() {
+        double h = stepSizeMins * 60.0;
+        if (stored == 0) {
+            push(vel, null);
+        }
+        if (stored < order) {
+            rk4(h);
+            push(vel, null);
+        } else {
+            adams(h);
+            if (variableOrder) {
+                chooseOrder(h);
+            }
+        }
+        advanceTime();
+        recordState();
+    }
+
+    private void adams(double h) {
+        int len = 3 * n;
+        double[] predictor = predictors[order];
+        double[] corrector = correctors[order];
+        // P: extrapolate the stored derivatives
+        for (int k = FIRST_MOVING; k < len; k++) {
+            double dp = 0, dv = 0;
+            for (int i = 0; i < order; i++) {
+                int slot = slot(i);
+                dp += predictor[i] * historyVel[slot][k];
+                dv += predictor[i] * historyAcc[slot][k];
+            }
+            predictedPos[k] = pos[k] + h * dp;
+            predictedVel[k] = vel[k] + h * dv;
+        }
+        // E
+        accelerations(predictedPos, predictedAcc);
+        // C: corrector[0] belongs to the new point, the rest to the stored ones
+        for (int k = FIRST_MOVING; k < len; k++) {
+            double dp = corrector[0] * predictedVel[k];
+            double dv = corrector[0] * predictedAcc[k];
+            for (int i = 1; i < order; i++) {
+                int slot = slot(i - 1);
+                dp += corrector[i] * historyVel[slot][k];
+                dv += corrector[i] * historyAcc[slot][k];
+            }
+            pos[k] += h * dp;
+            vel[k] += h * dv;
+        }
+        if (finalEvaluation) {
+            // E
+            push(vel, null);
+        } else {
+            push(predictedVel, predictedAcc);
+        }
+    }
+
+    /**
+     * Stores the derivatives of the current state as the newest ones.
+     *
+     * @param acc accelerations to store, null to compute them at pos.
+     */
+    private void push(double[] velocity, double[] acc) {
+        newest = (newest + 1) % historyVel.length;
+        System.arraycopy(velocity, 0, historyVel[newest], 0, 3 * n);
+        if (acc == null) {
+            accelerations(pos, historyAcc[newest]);
+        } else {
+            System.arraycopy(acc, 0, historyAcc[newest], 0, 3 * n);
+        }
+        stored = Math.min(historyVel.length, stored + 1);
+    }
+
+    /**
+     * @return slot of the derivatives i steps back.
+     */
+    private int slot(int i) {
+        return (newest - i + historyVel.length) % historyVel.length;
+    }
+
+    /**
+     * Moves the order one towards the neighbour with the smallest error estimate, the
+     * derivatives of the new state have to be pushed already.
+     */
+    private void chooseOrder(double h) {
+        stepsAtOrder++;
+        double current = errorEstimate(order, h);
+        double lower = order > 1 ? errorEstimate(order - 1, h) : Double.POSITIVE_INFINITY;
+        if (order > 2) {
+            lower = Math.max(lower, errorEstimate(order - 2, h));
+        }
+        if (lower <= current) {
+            order--;
+            stepsAtOrder = 0;
+        } else if (order < maxOrder && stored >= order + 2 && stepsAtOrder >= order
+                && errorEstimate(order + 1, h) < current) {
+            order++;
+            stepsAtOrder = 0;
+        }
+    }
+
+    /**
+     * Local error of order j, h * gamma*_j times the j-th backward difference of the
+     * stored derivatives, in the norm DormandPrinceSolver uses with its default tolerances.
+     */
+    private double errorEstimate(int j, double h) {
+        double scale = h * Math.abs(MOULTON_GAMMA[j]);
+        double error = 0;
+        for (int k = FIRST_MOVING; k < 3 * n; k++) {
+            double dv = 0, da = 0;
+            double binomial = 1;
+            for (int i = 0; i <= j; i++) {
+                int slot = slot(i);
+                double weight = i % 2 == 0 ? binomial : -binomial;
+                dv += weight * historyVel[slot][k];
+                da += weight * historyAcc[slot][k];
+                binomial = binomial * (j - i) / (i + 1);
+            }
+            double ep = scale * Math.abs(dv)
+                    / (DormandPrinceSolver.DEFAULT_ABS_TOL + DormandPrinceSolver.DEFAULT_REL_TOL * Math.abs(pos[k]));
+            double ev = scale * Math.abs(da)
+                    / (DormandPrinceSolver.DEFAULT_ABS_TOL + DormandPrinceSolver.DEFAULT_REL_TOL * Math.abs(vel[k]));
+            error = Math.max(error, Math.max(ep, ev));
+        }
+        return error;
+    }
+
+    @Override
+    protected void accelerations(double[] pos, double[] acc) {
+        super.accelerations(pos, acc);
+        forceEvaluations++;
+    }
+
+    public long getForceEvaluations() {
+        return forceEvaluations;
+    }
+
+    /**
+     * The order of the next step, it changes as the solver goes with variable order.
+     */
+    public int getOrder() {
+        return order;
+    }
+
+    public int getMaxOrder() {
+        return maxOrder;
+    }
+
+    public boolean isVariableOrder() {
+        return variableOrder;
+    }
+
+    @Override
+    public String cacheKey() {
+        return super.cacheKey() + (variableOrder ? "/variable/maxOrder=" : "/order=") + maxOrder
+                + (finalEvaluation ? "/PECE" : "/PEC");
+    }
+
+    /**
+     * Adams-Bashforth weights of f(n), f(n-1), ... from the backward difference form.
+     */
+    static double[] bashforthCoefficients(int order) {
+        double[] gamma = new double[order];
+        for (int j = 0; j < order; j++) {
+            gamma[j] = 1;
+            for (int i = 0; i < j; i++) {
+                gamma[j] -= gamma[i] / (j + 1 - i);
+            }
+        }
+        return toOrdinates(gamma);
+    }
+
+    /**
+     * Adams-Moulton weights of f(n+1), f(n), ... from the backward difference form.
+     */
+    static double[] moultonCoefficients(int order) {
+        return toOrdinates(moultonGamma(order));
+    }
+
+    /**
+     * gamma*_0 .. gamma*_(count - 1) of the Adams-Moulton backward difference form,
+     * 1, -1/2, -1/12, -1/24, ...
+     */
+    static double[] moultonGamma(int count) {
+        double[] gamma = new double[count];
+        for (int j = 0; j < count; j++) {
+            gamma[j] = j == 0 ? 1 : 0;
+            for (int i = 0; i < j; i++) {
+                gamma[j] -= gamma[i] / (j + 1 - i);
+            }
+        }
+        return gamma;
+    }
+
+    // beta_i = (-1)^i * sum over j >= i of gamma_j * (j choose i)
+    private static double[] toOrdinates(double[] gamma) {
+        int order = gamma.length;
+        double[] beta = new double[order];
+        for (int i = 0; i < order; i++) {
+            double binomial = 1;
+            double sum = 0;
+            for (int j = i; j < order; j++) {
+                sum += gamma[j] * binomial;
+                binomial = binomial * (j + 1) / (j + 1 - i);
+            }
+            beta[i] = i % 2 == 0 ? sum : -sum;
+        }
+        return beta;
+    }
+}
@@ -0,0 +1,95 @@
+package com.ken10.Phase2.StatesCalculations;
+
+import com.ken10.Phase2.SolarSystemModel.CelestialBodies;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+
+/**
+ * RK4 on the flat arrays of ArraySolver.
+ * Same method as RK4Solver but all stage buffers are allocated once
+ * and reused, so a step doesn't create any objects.
+ */
+public class ArrayRK4Solver extends ArraySolver {
+    private double[] stagePos;
+    private double[] stageVel;
+    private double[] stageAcc;
+    private double[] sumVel;
+    private double[] sumAcc;
+
+    public ArrayRK4Solver(ArrayList<CelestialBodies> planetarySystem, LocalDateTime startTime, LocalDateTime endTime, int stepSizeMins) {
+        super(planetarySystem, startTime, endTime, stepSizeMins);
+    }
+
+    public ArrayRK4Solver(int stepSizeMins) {
+        super(stepSizeMins);
+    }
+
+    @Override
+    protected void loadState() {
+        super.loadState();
+        stagePos = new double[3 * n];
+        stageVel = new double[3 * n];
+        stageAcc = new double[3 * n];
+        sumVel = new double[3 * n];
+        sumAcc = new double[3 * n];
+        // the pinned bodies still pull on the others, their stage positions never change
+        System.arraycopy(pos, 0, stagePos, 0, FIRST_MOVING);
+    }
+
+    /**
+     * Advance the solution by one step using RK4 method
+     */
+    @Override
+    public void step() {
+        rk4(stepSizeMins * 60.0);
+        advanceTime();
+        recordState();
+    }
+
+    /**
+     * One RK4 step of h seconds on pos and vel.
+     * sumVel/sumAcc collect k1 + 2k2 + 2k3 + k4 while the stages run.
+     *
+     * @param h step in seconds.
+     */
+    protected void rk4(double h) {
+        int len = 3 * n;
+
+        // k1
+        accelerations(pos, stageAcc);
+        for (int k = FIRST_MOVING; k < len; k++) {
+            sumVel[k] = vel[k];
+            sumAcc[k] = stageAcc[k];
+            stagePos[k] = pos[k] + h / 2 * vel[k];
+            stageVel[k] = vel[k] + h / 2 * stageAcc[k];
+        }
+
+        // k2
+        accelerations(stagePos, stageAcc);
+        for (int k = FIRST_MOVING; k < len; k++) {
+            double v = stageVel[k];
+            sumVel[k] += 2 * v;
+            sumAcc[k] += 2 * stageAcc[k];
+            stagePos[k] = pos[k] + h / 2 * v;
+            stageVel[k] = vel[k] + h / 2 * stageAcc[k];
+        }
+
+        // k3
+        accelerations(stagePos, stageAcc);
+        for (int k = FIRST_MOVING; k < len; k++) {
+            double v = stageVel[k];
+            sumVel[k] += 2 * v;
+            sumAcc[k] += 2 * stageAcc[k];
+            stagePos[k] = pos[k] + h * v;
+            stageVel[k] = vel[k] + h * stageAcc[k];
+        }
+
+        // k4
+        accelerations(stagePos, stageAcc);
+        for (int k = FIRST_MOVING; k < len; k++) {
+            pos[k] += h / 6 * (sumVel[k] + stageVel[k]);
+            vel[k] += h / 6 * (sumAcc[k] + stageAcc[k]);
+        }
+    }
+}
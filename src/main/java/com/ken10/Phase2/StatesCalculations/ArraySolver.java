@@ -0,0 +1,180 @@
+package com.ken10.Phase2.StatesCalculations;
+
+import com.ken10.Phase2.SolarSystemModel.AccelerationProvider;
+import com.ken10.Phase2.SolarSystemModel.CelestialBodies;
+import com.ken10.Phase2.SolarSystemModel.GravityCalc;
+import com.ken10.Phase2.SolarSystemModel.ParallelGravityCalc;
+import com.ken10.Phase2.SolarSystemModel.Vector;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Solver that keeps the planetary system in flat double[] arrays instead of
+ * CelestialBodies objects, so the integration loop doesn't allocate.
+ * Positions and velocities are interleaved per body (x0, y0, z0, x1, ...).
+ * History and planetarySystem keep working as before, the arrays are only
+ * turned back into bodies when a state gets recorded.
+ * <p>
+ * Massive bodies get the first slots of the arrays and test particles the rest,
+ * order[slot] is the index of the body in planetarySystem.
+ */
+public abstract class ArraySolver extends Solver {
+    // the sun (body 0) stays where it starts, same as GravityCalc.computeDerivatives
+    protected static final int FIRST_MOVING = 3;
+
+    protected int n;
+    protected int nMassive;
+    protected int[] order;
+    protected double[] pos;
+    protected double[] vel;
+    protected double[] gm;
+    // direct summation, goes parallel by itself for large body counts
+    protected AccelerationProvider accelerationProvider = new ParallelGravityCalc();
+
+    // subclasses size their own arrays in loadState, before their fields are initialized
+    @SuppressWarnings("this-escape")
+    public ArraySolver(ArrayList<CelestialBodies> planetarySystem, LocalDateTime startTime, LocalDateTime endTime, int stepSizeMins) {
+        super(planetarySystem, startTime, endTime, stepSizeMins);
+        loadState();
+    }
+
+    @SuppressWarnings("this-escape")
+    public ArraySolver(int stepSizeMins) {
+        super(stepSizeMins);
+        loadState();
+    }
+
+    /**
+     * Copies planetarySystem into the arrays.
+     */
+    protected void loadState() {
+        n = planetarySystem.size();
+        pos = new double[3 * n];
+        vel = new double[3 * n];
+        gm = new double[n];
+        order = new int[n];
+        int slot = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < n; i++) {
+                if (planetarySystem.get(i).isTestParticle() == (pass == 1)) {
+                    order[slot++] = i;
+                }
+            }
+            if (pass == 0) nMassive = slot;
+        }
+        for (int i = 0; i < n; i++) {
+            CelestialBodies body = planetarySystem.get(order[i]);
+            Vector p = body.getPosition();
+            Vector v = body.getVelocity();
+            pos[3 * i] = p.getX();
+            pos[3 * i + 1] = p.getY();
+            pos[3 * i + 2] = p.getZ();
+            vel[3 * i] = v.getX();
+            vel[3 * i + 1] = v.getY();
+            vel[3 * i + 2] = v.getZ();
+            gm[i] = i < nMassive ? GravityCalc.g * body.getMass() : 0;
+        }
+    }
+
+    /**
+     * Writes the arrays back into the bodies of planetarySystem.
+     */
+    protected void storeState() {
+        for (int i = 0; i < n; i++) {
+            CelestialBodies body = planetarySystem.get(order[i]);
+            body.setPosition(new Vector(pos[3 * i], pos[3 * i + 1], pos[3 * i + 2]));
+            body.setVelocity(new Vector(vel[3 * i], vel[3 * i + 1], vel[3 * i + 2]));
+        }
+    }
+
+    /**
+     * @param bodyIndex index of the body in planetarySystem.
+     * @return where the body sits in the arrays.
+     */
+    protected int slotOf(int bodyIndex) {
+        for (int slot = 0; slot < n; slot++) {
+            if (order[slot] == bodyIndex) return slot;
+        }
+        throw new IllegalArgumentException("No body at index " + bodyIndex);
+    }
+
+    /**
+     * Accelerations of all bodies for the given positions.
+     *
+     * @param pos positions, 3 per body.
+     * @param acc output, 3 per body.
+     */
+    protected void accelerations(double[] pos, double[] acc) {
+        accelerationProvider.computeAccelerations(pos, gm, nMassive, n, acc);
+    }
+
+    /**
+     * Kinetic plus potential energy of the massive bodies, handy to see how well an
+     * integrator holds up over long runs. The pinned sun only adds its potential.
+     *
+     * @return total energy in kg km^2/s^2.
+     */
+    public double totalEnergy() {
+        double energy = 0;
+        for (int i = 0; i < nMassive; i++) {
+            int a = 3 * i;
+            energy += 0.5 * gm[i] * Vector.dot(vel[a], vel[a + 1], vel[a + 2], vel[a], vel[a + 1], vel[a + 2]);
+            for (int j = i + 1; j < nMassive; j++) {
+                int b = 3 * j;
+                energy -= gm[i] * gm[j] / Vector.distance(pos[a], pos[a + 1], pos[a + 2], pos[b], pos[b + 1], pos[b + 2]);
+            }
+        }
+        // gm is g * mass, so everything above is g times too big
+        return energy / GravityCalc.g;
+    }
+
+    public AccelerationProvider getAccelerationProvider() {
+        return accelerationProvider;
+    }
+
+    /**
+     * Switches how accelerations get computed, e.g. to a BarnesHutTree for large body counts.
+     * Direct summation (ParallelGravityCalc) is the default.
+     *
+     * @param accelerationProvider the provider to use from the next step on.
+     */
+    public void setAccelerationProvider(AccelerationProvider accelerationProvider) {
+        this.accelerationProvider = accelerationProvider;
+    }
+
+    /**
+     * Names this solver and every setting that changes the states it records, EphemerisCache
+     * keys the files on it. Solvers with settings (tolerances, order, scheme) add them.
+     */
+    public String cacheKey() {
+        return getClass().getName();
+    }
+
+    @Override
+    public void solve() {
+        super.solve();
+        storeState();
+    }
+
+    /**
+     * Records the arrays to history. Falls back to the bodies while the
+     * arrays are not set up yet (Solver records the initial state in its constructor).
+     */
+    @Override
+    protected void recordState() {
+        if (pos == null) {
+            super.recordState();
+            return;
+        }
+        if (!recordHistory) return;
+        CelestialBodies[] snapshot = new CelestialBodies[n];
+        for (int i = 0; i < n; i++) {
+            snapshot[order[i]] = planetarySystem.get(order[i]).withState(
+                    new Vector(pos[3 * i], pos[3 * i + 1], pos[3 * i + 2]),
+                    new Vector(vel[3 * i], vel[3 * i + 1], vel[3 * i + 2]));
+        }
+        history.put(getTime(), new ArrayList<>(Arrays.asList(snapshot)));
+    }
+}
@@ -0,0 +1,373 @@
+package com.ken10.Phase2.StatesCalculations;
+
+import com.ken10.Phase2.SolarSystemModel.CelestialBodies;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+
+/**
+ * Bulirsch-Stoer on the flat arrays of ArraySolver: modified midpoint steps with
+ * 2, 4, 6, ... substeps, extrapolated to zero substep size (Richardson, in h^2).
+ * <p>
+ * Like DormandPrinceSolver, stepSizeMins is only the output interval: the internal steps
+ * go up to maxStep and run past the output times, a state in the middle of a step comes
+ * from the quintic Hermite through position, velocity and acceleration at both of its
+ * ends. An internal step is accepted as soon as the last two extrapolations agree to
+ * absTol + relTol * |value| for every moving coordinate, and rejected when that doesn't
+ * happen within MAX_COLUMNS midpoint runs. The next step grows when it converged early
+ * and shrinks when it needed many columns, so cruise gets hour scale steps and close
+ * encounters small ones.
+ */
+public class BulirschStoerSolver extends ArraySolver {
+    public static final double DEFAULT_ABS_TOL = 1e-6;
+    public static final double DEFAULT_REL_TOL = 1e-12;
+    // seconds, with day long steps the quintic between them is off by ~0.2 km around the moon
+    public static final double DEFAULT_MAX_STEP = 43200;
+
+    private static final int MAX_COLUMNS = 8;
+    // the column we'd like to converge in, earlier means grow, later means shrink
+    private static final int TARGET_COLUMN = 5;
+    private static final double MIN_STEP = 1e-3;
+    private static final int[] SUBSTEPS = {2, 4, 6, 8, 10, 12, 14, 16};
+
+    private final double absTol;
+    private final double relTol;
+    private final double maxStep;
+
+    // table[j] is column j of the last extrapolation row, positions then velocities (6 per body)
+    private double[][] table;
+    private double[] estimate;
+    private double[] midPos;
+    private double[] midVel;
+    private double[] prevPos;
+    private double[] prevVel;
+    private double[] acc0;
+    private double[] acc;
+    private boolean acc0Ready;
+    // the integration runs ahead of pos and vel, which hold the state at the last output time
+    protected double[] yPos;
+    protected double[] yVel;
+    private double yTime;
+    // both ends of the last step that passed an output time, position, velocity and acceleration
+    private double[][] ends;
+    private double denseStart;
+    private double denseLength;
+    private double h;
+    private boolean stopped;
+
+    private long acceptedSteps;
+    private long rejectedSteps;
+    private long forceEvaluations;
+
+    public BulirschStoerSolver(ArrayList<CelestialBodies> planetarySystem, LocalDateTime startTime, LocalDateTime endTime, int stepSizeMins) {
+        this(planetarySystem, startTime, endTime, stepSizeMins, DEFAULT_ABS_TOL, DEFAULT_REL_TOL);
+    }
+
+    public BulirschStoerSolver(ArrayList<CelestialBodies> planetarySystem, LocalDateTime startTime, LocalDateTime endTime,
+                               int stepSizeMins, double absTol, double relTol) {
+        this(planetarySystem, startTime, endTime, stepSizeMins, absTol, relTol, DEFAULT_MAX_STEP);
+    }
+
+    /**
+     * @param stepSizeMins output interval in minutes, the internal steps are chosen by the solver.
+     * @param absTol absolute tolerance, km for positions and km/s for velocities.
+     * @param relTol relative tolerance.
+     * @param maxStep longest internal step in seconds, independent of the output interval.
+     */
+    public BulirschStoerSolver(ArrayList<CelestialBodies> planetarySystem, LocalDateTime startTime, LocalDateTime endTime,
+                               int stepSizeMins, double absTol, double relTol, double maxStep) {
+        super(planetarySystem, startTime, endTime, stepSizeMins);
+        if (!(maxStep >= MIN_STEP)) {
+            throw new IllegalArgumentException("maxStep has to be at least " + MIN_STEP + " s, not " + maxStep);
+        }
+        this.absTol = absTol;
+        this.relTol = relTol;
+        this.maxStep = maxStep;
+        this.h = Math.min(maxStep, stepSizeMins * 60.0);
+    }
+
+    @Override
+    protected void loadState() {
+        super.loadState();
+        table = new double[MAX_COLUMNS][6 * n];
+        estimate = new double[6 * n];
+        midPos = new double[3 * n];
+        midVel = new double[3 * n];
+        prevPos = new double[3 * n];
+        prevVel = new double[3 * n];
+        acc0 = new double[3 * n];
+        acc = new double[3 * n];
+        System.arraycopy(pos, 0, midPos, 0, FIRST_MOVING);
+        System.arraycopy(pos, 0, prevPos, 0, FIRST_MOVING);
+        yPos = pos.clone();
+        yVel = vel.clone();
+        yTime = timeSeconds;
+        ends = new double[6][3 * n];
+        acc0Ready = false;
+    }
+
+    /**
+     * Advances the output by stepSizeMins. The internal steps only go as far as needed to
+     * pass the new output time, the last one is cut short only at the end of the run.
+     */
+    @Override
+    public void step() {
+        if (stopped) return;
+        long target = timeSeconds + stepSizeMins * 60L;
+        double limit = Math.max(target, toSeconds(endTime));
+        while (yTime < target) {
+            boolean cut = yTime + h >= limit;
+            double hTry = cut ? limit - yTime : h;
+            double factor = extrapolate(hTry);
+            if (factor > 0) {
+                boolean passes = yTime + hTry > target;
+                if (passes) {
+                    keepEnd(0);
+                }
+                accept();
+                acceptedSteps++;
+                yTime = cut ? limit : yTime + hTry;
+                if (passes) {
+                    // the acceleration at the end is the first one of the next step anyway
+                    accelerations(yPos, acc0);
+                    forceEvaluations++;
+                    acc0Ready = true;
+                    keepEnd(3);
+                    denseStart = yTime - hTry;
+                    denseLength = hTry;
+                }
+                afterStep(yTime, hTry);
+                if (stopped) {
+                    // pos and vel get the state the run stopped at, timeSeconds stays at the last output
+                    System.arraycopy(yPos, FIRST_MOVING, pos, FIRST_MOVING, 3 * n - FIRST_MOVING);
+                    System.arraycopy(yVel, FIRST_MOVING, vel, FIRST_MOVING, 3 * n - FIRST_MOVING);
+                    return;
+                }
+                if (!cut) {
+                    h = Math.min(maxStep, hTry * factor);
+                }
+            } else {
+                rejectedSteps++;
+                h = hTry * -factor;
+                if (h < MIN_STEP) {
+                    throw new IllegalStateException("Step size underflow at " + toDateTime((long) yTime)
+                            + ", tolerances too tight?");
+                }
+            }
+        }
+        if (yTime == target) {
+            System.arraycopy(yPos, FIRST_MOVING, pos, FIRST_MOVING, 3 * n - FIRST_MOVING);
+            System.arraycopy(yVel, FIRST_MOVING, vel, FIRST_MOVING, 3 * n - FIRST_MOVING);
+        } else {
+            interpolate((target - denseStart) / denseLength);
+        }
+        advanceTime();
+        recordState();
+    }
+
+    /**
+     * Copies yPos, yVel and acc0 into ends[first ..], 0 for the start of a step and 3 for its end.
+     */
+    private void keepEnd(int first) {
+        System.arraycopy(yPos, 0, ends[first], 0, 3 * n);
+        System.arraycopy(yVel, 0, ends[first + 1], 0, 3 * n);
+        System.arraycopy(acc0, 0, ends[first + 2], 0, 3 * n);
+    }
+
+    /**
+     * Writes the state at fraction s of the kept step into pos and vel, positions from the
+     * quintic Hermite and velocities from its derivative.
+     */
+    private void interpolate(double s) {
+        double hs = denseLength;
+        double s2 = s * s, s3 = s2 * s, s4 = s3 * s, s5 = s4 * s;
+        double p0 = 1 - 10 * s3 + 15 * s4 - 6 * s5;
+        double v0 = (s - 6 * s3 + 8 * s4 - 3 * s5) * hs;
+        double a0 = (s2 - 3 * s3 + 3 * s4 - s5) / 2 * hs * hs;
+        double p1 = 10 * s3 - 15 * s4 + 6 * s5;
+        double v1 = (-4 * s3 + 7 * s4 - 3 * s5) * hs;
+        double a1 = (s3 - 2 * s4 + s5) / 2 * hs * hs;
+        // the same weights differentiated by time
+        double dp0 = (-30 * s2 + 60 * s3 - 30 * s4) / hs;
+        double dv0 = 1 - 18 * s2 + 32 * s3 - 15 * s4;
+        double da0 = (2 * s - 9 * s2 + 12 * s3 - 5 * s4) / 2 * hs;
+        double dv1 = -12 * s2 + 28 * s3 - 15 * s4;
+        double da1 = (3 * s2 - 8 * s3 + 5 * s4) / 2 * hs;
+        double[] startPos = ends[0], startVel = ends[1], startAcc = ends[2];
+        double[] endPos = ends[3], endVel = ends[4], endAcc = ends[5];
+        for (int c = FIRST_MOVING; c < 3 * n; c++) {
+            pos[c] = p0 * startPos[c] + v0 * startVel[c] + a0 * startAcc[c]
+                    + p1 * endPos[c] + v1 * endVel[c] + a1 * endAcc[c];
+            vel[c] = dp0 * (startPos[c] - endPos[c]) + dv0 * startVel[c] + da0 * startAcc[c]
+                    + dv1 * endVel[c] + da1 * endAcc[c];
+        }
+    }
+
+    /**
+     * Called after every accepted internal step, yPos and yVel hold the new state.
+     * pos, vel and timeSeconds are still those of the last output.
+     *
+     * @param time end of the step that was just taken, epoch seconds.
+     * @param h length of the step, in seconds.
+     */
+    protected void afterStep(double time, double h) {
+    }
+
+    /**
+     * Ends the run, e.g. from afterStep when a probe crashed. pos and vel get the state
+     * of the last internal step, step does nothing from then on and solve returns.
+     */
+    protected void stop() {
+        stopped = true;
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    @Override
+    public void solve() {
+        long end = toSeconds(endTime);
+        while (!stopped && timeSeconds < end) {
+            step();
+        }
+        storeState();
+    }
+
+    /**
+     * Runs midpoint steps of H with more and more substeps until the extrapolation converges.
+     *
+     * @return factor for the next step if it converged (result in estimate), minus the factor to
+     * shrink this step with if it didn't.
+     */
+    private double extrapolate(double H) {
+        int len = 3 * n;
+        // a rejected step is retried from the same state
+        if (!acc0Ready) {
+            accelerations(yPos, acc0);
+            forceEvaluations++;
+            acc0Ready = true;
+        }
+
+        double error = Double.MAX_VALUE;
+        for (int k = 0; k < MAX_COLUMNS; k++) {
+            midpoint(H, SUBSTEPS[k]);
+            error = 0;
+            // Neville: estimate becomes T(k,j) while table[j] moves from T(k-1,j) to T(k,j)
+            for (int j = 0; j <= k; j++) {
+                double[] column = table[j];
+                if (j == k) {
+                    System.arraycopy(estimate, 0, column, 0, 2 * len);
+                    break;
+                }
+                double ratio = (double) SUBSTEPS[k] / SUBSTEPS[k - j - 1];
+                double denominator = ratio * ratio - 1;
+                for (int c = 0; c < 2 * len; c++) {
+                    double current = estimate[c];
+                    double correction = (current - column[c]) / denominator;
+                    column[c] = current;
+                    estimate[c] = current + correction;
+                }
+            }
+            if (k == 0) continue;
+
+            for (int c = FIRST_MOVING; c < len; c++) {
+                error = Math.max(error, errorOf(table[k - 1][c], estimate[c], yPos[c]));
+                error = Math.max(error, errorOf(table[k - 1][len + c], estimate[len + c], yVel[c]));
+            }
+            if (error <= 1) {
+                double factor = Math.min(4, Math.max(0.2, 0.94 * Math.pow(0.65 / Math.max(error, 1e-10), 1.0 / (2 * k + 1))));
+                // converging late means the step is too long for the tableau, don't let it grow
+                if (k > TARGET_COLUMN) factor = Math.min(factor, 0.7);
+                // converging early: the error alone would keep a short step short, the next
+                // column costs work(k + 1) / work(k) as much and allows that much longer a step
+                if (k < TARGET_COLUMN) factor = Math.min(4, factor * work(k + 1) / work(k));
+                return factor;
+            }
+        }
+        return -Math.max(0.2, Math.min(0.7, 0.94 * Math.pow(0.65 / error, 1.0 / (2 * MAX_COLUMNS - 1))));
+    }
+
+    /**
+     * Force evaluations of a step that converges in column k.
+     */
+    private static double work(int k) {
+        double work = 1;
+        for (int j = 0; j <= k; j++) {
+            work += SUBSTEPS[j];
+        }
+        return work;
+    }
+
+    private double errorOf(double previous, double current, double start) {
+        double scale = absTol + relTol * Math.max(Math.abs(start), Math.abs(current));
+        return Math.abs(current - previous) / scale;
+    }
+
+    /**
+     * Modified midpoint over H with m substeps, the result goes into estimate.
+     */
+    private void midpoint(double H, int m) {
+        int len = 3 * n;
+        double hs = H / m;
+        // z0 is the current state, z1 one euler substep on
+        for (int c = FIRST_MOVING; c < len; c++) {
+            prevPos[c] = yPos[c];
+            prevVel[c] = yVel[c];
+            midPos[c] = yPos[c] + hs * yVel[c];
+            midVel[c] = yVel[c] + hs * acc0[c];
+        }
+        for (int s = 1; s < m; s++) {
+            accelerations(midPos, acc);
+            // z(s+1) = z(s-1) + 2 hs f(z(s)), written over z(s-1) and swapped in
+            for (int c = FIRST_MOVING; c < len; c++) {
+                prevPos[c] += 2 * hs * midVel[c];
+                prevVel[c] += 2 * hs * acc[c];
+            }
+            double[] swap = prevPos;
+            prevPos = midPos;
+            midPos = swap;
+            swap = prevVel;
+            prevVel = midVel;
+            midVel = swap;
+        }
+        accelerations(midPos, acc);
+        forceEvaluations += m;
+        for (int c = FIRST_MOVING; c < len; c++) {
+            estimate[c] = 0.5 * (midPos[c] + prevPos[c] + hs * midVel[c]);
+            estimate[len + c] = 0.5 * (midVel[c] + prevVel[c] + hs * acc[c]);
+        }
+    }
+
+    /**
+     * Takes over the extrapolated state.
+     */
+    private void accept() {
+        int len = 3 * n;
+        System.arraycopy(estimate, FIRST_MOVING, yPos, FIRST_MOVING, len - FIRST_MOVING);
+        System.arraycopy(estimate, len + FIRST_MOVING, yVel, FIRST_MOVING, len - FIRST_MOVING);
+        acc0Ready = false;
+    }
+
+    public long getAcceptedSteps() {
+        return acceptedSteps;
+    }
+
+    public long getRejectedSteps() {
+        return rejectedSteps;
+    }
+
+    public long getForceEvaluations() {
+        return forceEvaluations;
+    }
+
+    @Override
+    public String cacheKey() {
+        return super.cacheKey() + "/absTol=" + absTol + "/relTol=" + relTol + "/maxStep=" + maxStep;
+    }
+
+    public String getStatistics() {
+        return "accepted steps: " + acceptedSteps + ", rejected steps: " + rejectedSteps
+                + ", force evaluations: " + forceEvaluations;
+    }
+}
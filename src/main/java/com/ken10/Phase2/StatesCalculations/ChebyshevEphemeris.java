@@ -0,0 +1,273 @@
+package com.ken10.Phase2.StatesCalculations;
+
+import com.ken10.Phase2.SolarSystemModel.BodyID;
+import com.ken10.Phase2.SolarSystemModel.Vector;
+
+import java.time.LocalDateTime;
+
+/**
+ * Compressed ephemeris in the style of the JPL DE files: every body's span is cut into
+ * equal granules and each coordinate gets a Chebyshev polynomial per granule. Velocities
+ * come from the derivative of the same polynomial.
+ * <p>
+ * fit picks the degree per body, starting low and going up until the positions are within
+ * the tolerance at the recorded samples. A body that still misses it at MAX_DEGREE gets
+ * granules half as long, until a granule would be shorter than the timeline step or that
+ * stops making the error smaller. Slow bodies end up with a few granules at MIN_DEGREE,
+ * fast moons with more and higher degrees.
+ */
+public class ChebyshevEphemeris implements EphemerisProvider {
+    public static final int MIN_DEGREE = 3;
+    public static final int MAX_DEGREE = 24;
+    // samples compared per granule at most before a degree is checked against all of them
+    private static final int CHECKS = 256;
+
+    private final long startSeconds;
+    private final double spanSeconds;
+    private final int bodies;
+    // per body: granule length, granule count, terms (degree + 1) and the
+    // coefficients, granule g coordinate k starting at (3 * g + k) * terms
+    private final double[] granuleSeconds;
+    private final int[] granules;
+    private final int[] terms;
+    private final double[][] coefficients;
+    private double maxError;
+
+    private ChebyshevEphemeris(long startSeconds, double spanSeconds, int bodies) {
+        this.startSeconds = startSeconds;
+        this.spanSeconds = spanSeconds;
+        this.bodies = bodies;
+        this.granuleSeconds = new double[bodies];
+        this.granules = new int[bodies];
+        this.terms = new int[bodies];
+        this.coefficients = new double[bodies][];
+    }
+
+    /**
+     * Fits all bodies of a finished solve.
+     *
+     * @param timeline    the recorded states, at least two samples.
+     * @param granuleDays length of the granules to start from, they get shortened when needed.
+     * @param toleranceKm largest position error allowed at the samples, more than 0.
+     * @throws IllegalArgumentException if a body misses the tolerance even with granules of one step.
+     */
+    public static ChebyshevEphemeris fit(Timeline timeline, double granuleDays, double toleranceKm) {
+        if (timeline.size() < 2) {
+            throw new IllegalArgumentException("Need at least two samples to fit");
+        }
+        if (!(toleranceKm > 0) || Double.isInfinite(toleranceKm)) {
+            throw new IllegalArgumentException("Tolerance has to be a positive number of km, not " + toleranceKm);
+        }
+        if (!(granuleDays > 0) || Double.isInfinite(granuleDays)) {
+            throw new IllegalArgumentException("Granules have to be a positive number of days, not " + granuleDays);
+        }
+        DenseEphemeris dense = new DenseEphemeris(timeline);
+        double span = (double) (timeline.size() - 1) * timeline.getStepSeconds();
+        ChebyshevEphemeris ephemeris = new ChebyshevEphemeris(timeline.getStartSeconds(), span, timeline.getBodyCount());
+        int startGranules = Math.max(1, (int) Math.ceil(span / (granuleDays * 86400)));
+        for (int body = 0; body < ephemeris.bodies; body++) {
+            ephemeris.fitBody(timeline, dense, body, startGranules, toleranceKm);
+        }
+        return ephemeris;
+    }
+
+    private void fitBody(Timeline timeline, DenseEphemeris dense, int body, int count, double toleranceKm) {
+        double[] position = new double[3];
+        double best = Double.POSITIVE_INFINITY;
+        double bestDays = 0;
+        int bestDegree = 0;
+        while (true) {
+            double length = spanSeconds / count;
+            double previous = best;
+            for (int degree = MIN_DEGREE; degree <= MAX_DEGREE; degree++) {
+                int n = degree + 1;
+                double[] c = new double[count * 3 * n];
+                double[][] values = new double[n][3];
+                for (int g = 0; g < count; g++) {
+                    // Chebyshev nodes of the granule
+                    for (int k = 0; k < n; k++) {
+                        double tau = Math.cos(Math.PI * (k + 0.5) / n);
+                        dense.stateAt(body, startSeconds + length * (g + (tau + 1) / 2), values[k], null);
+                    }
+                    for (int j = 0; j < n; j++) {
+                        for (int coord = 0; coord < 3; coord++) {
+                            double sum = 0;
+                            for (int k = 0; k < n; k++) {
+                                sum += values[k][coord] * Math.cos(Math.PI * j * (k + 0.5) / n);
+                            }
+                            c[(3 * g + coord) * n + j] = (j == 0 ? 1.0 : 2.0) * sum / n;
+                        }
+                    }
+                }
+                granuleSeconds[body] = length;
+                granules[body] = count;
+                terms[body] = n;
+                coefficients[body] = c;
+
+                // a thinned out pass first, only a degree that passes it is worth every sample
+                int stride = Math.max(1, (timeline.size() - 1) / (count * CHECKS));
+                double error = fitError(timeline, body, stride, position);
+                if (error <= toleranceKm && stride > 1) {
+                    error = fitError(timeline, body, 1, position);
+                }
+                if (error <= toleranceKm) {
+                    maxError = Math.max(maxError, error);
+                    return;
+                }
+                if (error < best) {
+                    best = error;
+                    bestDays = length / 86400;
+                    bestDegree = degree;
+                }
+            }
+            count *= 2;
+            // granules under one step would only fit the interpolation between the samples, and
+            // once halving stops paying off the error is down to the samples themselves
+            if (spanSeconds / count < timeline.getStepSeconds() || best > previous / 2) {
+                throw new IllegalArgumentException("Body " + body + " can't be fitted within " + toleranceKm
+                        + " km, the best was " + best + " km at degree " + bestDegree + " with granules of "
+                        + bestDays + " days");
+            }
+        }
+    }
+
+    /**
+     * Largest distance between the fit and every stride-th sample of body.
+     */
+    private double fitError(Timeline timeline, int body, int stride, double[] position) {
+        double[] sample = new double[3];
+        double error = 0;
+        for (int i = 0; i < timeline.size(); i += stride) {
+            timeline.position(i, body, sample);
+            positionAt(body, timeline.getSeconds(i), position);
+            error = Math.max(error, Vector.distance(sample[0], sample[1], sample[2], position[0], position[1], position[2]));
+        }
+        return error;
+    }
+
+    /**
+     * Position of one body, Clenshaw's recurrence per coordinate.
+     *
+     * @param epochSeconds time as Solver.toSeconds gives it, fractions are fine.
+     */
+    public void positionAt(int body, double epochSeconds, double[] out) {
+        int n = terms[body];
+        int g = granule(body, epochSeconds);
+        double tau = tau(body, g, epochSeconds);
+        double[] c = coefficients[body];
+        for (int coord = 0; coord < 3; coord++) {
+            int o = (3 * g + coord) * n;
+            double b1 = 0, b2 = 0;
+            for (int j = n - 1; j >= 1; j--) {
+                double b = 2 * tau * b1 - b2 + c[o + j];
+                b2 = b1;
+                b1 = b;
+            }
+            out[coord] = tau * b1 - b2 + c[o];
+        }
+    }
+
+    /**
+     * Velocity of one body, the time derivative of the position polynomial.
+     */
+    public void velocityAt(int body, double epochSeconds, double[] out) {
+        int n = terms[body];
+        int g = granule(body, epochSeconds);
+        double tau = tau(body, g, epochSeconds);
+        double[] c = coefficients[body];
+        double scale = 2 / granuleSeconds[body];
+        for (int coord = 0; coord < 3; coord++) {
+            int o = (3 * g + coord) * n;
+            // T_j and T_j' by their recurrences, T_0' = 0 and T_1' = 1
+            double t0 = 1, t1 = tau, d0 = 0, d1 = 1;
+            double sum = n > 1 ? c[o + 1] : 0;
+            for (int j = 2; j < n; j++) {
+                double t2 = 2 * tau * t1 - t0;
+                double d2 = 2 * t1 + 2 * tau * d1 - d0;
+                sum += c[o + j] * d2;
+                t0 = t1;
+                t1 = t2;
+                d0 = d1;
+                d1 = d2;
+            }
+            out[coord] = sum * scale;
+        }
+    }
+
+    /**
+     * Positions of all bodies, 3 per body in planetarySystem order.
+     */
+    public void positionsAt(double epochSeconds, double[] out) {
+        double[] p = new double[3];
+        for (int body = 0; body < bodies; body++) {
+            positionAt(body, epochSeconds, p);
+            System.arraycopy(p, 0, out, 3 * body, 3);
+        }
+    }
+
+    private int granule(int body, double epochSeconds) {
+        double offset = epochSeconds - startSeconds;
+        if (offset < 0 || offset > spanSeconds) {
+            throw new IllegalArgumentException("Time " + Solver.toDateTime((long) Math.floor(epochSeconds))
+                    + " is outside of the ephemeris (" + getStartTime() + " to " + getEndTime() + ")");
+        }
+        return Math.min((int) (offset / granuleSeconds[body]), granules[body] - 1);
+    }
+
+    private double tau(int body, int granule, double epochSeconds) {
+        double local = epochSeconds - startSeconds - granule * granuleSeconds[body];
+        return 2 * local / granuleSeconds[body] - 1;
+    }
+
+    @Override
+    public Vector position(BodyID body, LocalDateTime time) {
+        double[] p = new double[3];
+        positionAt(body.index(), Solver.toSeconds(time), p);
+        return new Vector(p[0], p[1], p[2]);
+    }
+
+    @Override
+    public Vector velocity(BodyID body, LocalDateTime time) {
+        double[] v = new double[3];
+        velocityAt(body.index(), Solver.toSeconds(time), v);
+        return new Vector(v[0], v[1], v[2]);
+    }
+
+    /**
+     * Largest position error any body had against the samples when it was fitted, km.
+     */
+    public double getMaxError() {
+        return maxError;
+    }
+
+    public int getDegree(int body) {
+        return terms[body] - 1;
+    }
+
+    public double getGranuleDays(int body) {
+        return granuleSeconds[body] / 86400;
+    }
+
+    /**
+     * Memory taken by the coefficients.
+     */
+    public long getSizeBytes() {
+        long size = 0;
+        for (double[] c : coefficients) {
+            size += 8L * c.length;
+        }
+        return size;
+    }
+
+    public int getBodyCount() {
+        return bodies;
+    }
+
+    public LocalDateTime getStartTime() {
+        return Solver.toDateTime(startSeconds);
+    }
+
+    public LocalDateTime getEndTime() {
+        return Solver.toDateTime(startSeconds + Math.round(spanSeconds));
+    }
+}
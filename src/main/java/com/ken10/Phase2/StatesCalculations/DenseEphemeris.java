@@ -0,0 +1,206 @@
+package com.ken10.Phase2.StatesCalculations;
+
+import com.ken10.Phase2.SolarSystemModel.BodyID;
+import com.ken10.Phase2.SolarSystemModel.CelestialBodies;
+import com.ken10.Phase2.SolarSystemModel.Vector;
+
+import java.nio.DoubleBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * Planet states on an even time grid with dense output in between: positions come from
+ * the cubic Hermite polynomial through the positions and velocities at both ends of the
+ * grid interval, velocities from its derivative. The error goes with step^4, so the
+ * planets can be stored at a much coarser step than the probe takes and still be queried
+ * at any RK4 stage time.
+ * <p>
+ * The samples are kept in a Timeline.
+ */
+public class DenseEphemeris implements EphemerisProvider {
+    private final Timeline timeline;
+    private final long startSeconds;
+    private final double stepSeconds;
+    private final int bodies;
+    private final double[] gm;
+    private final DoubleBuffer data;
+    private final int samples;
+
+    /**
+     * Interpolates between the samples of timeline, it needs at least two.
+     */
+    public DenseEphemeris(Timeline timeline) {
+        this.timeline = timeline;
+        this.startSeconds = timeline.getStartSeconds();
+        this.stepSeconds = timeline.getStepSeconds();
+        this.bodies = timeline.getBodyCount();
+        this.gm = timeline.getGm();
+        this.data = timeline.data();
+        this.samples = timeline.size();
+    }
+
+    /**
+     * See Timeline.record.
+     */
+    public static DenseEphemeris record(ArraySolver solver) {
+        return new DenseEphemeris(Timeline.record(solver));
+    }
+
+    /**
+     * See Timeline.fromHistory.
+     */
+    public static DenseEphemeris fromHistory(Map<LocalDateTime, ArrayList<CelestialBodies>> history,
+                                             LocalDateTime start, LocalDateTime end, int stepSizeMins) {
+        return new DenseEphemeris(Timeline.fromHistory(history, start, end, stepSizeMins));
+    }
+
+    /**
+     * Positions of all bodies at the given time, 3 per body in planetarySystem order.
+     *
+     * @param epochSeconds time as Solver.toSeconds gives it, fractions are fine.
+     * @param out output, at least 3 * getBodyCount() values.
+     */
+    public void positionsAt(double epochSeconds, double[] out) {
+        int interval = interval(epochSeconds);
+        // the weights of hermiteBasis, as locals so the RK4 stages don't allocate
+        double s = (epochSeconds - startSeconds) / stepSeconds - interval;
+        double s2 = s * s, s3 = s2 * s;
+        double b0 = 2 * s3 - 3 * s2 + 1;
+        double b1 = (s3 - 2 * s2 + s) * stepSeconds;
+        double b2 = -2 * s3 + 3 * s2;
+        double b3 = (s3 - s2) * stepSeconds;
+        int p0 = interval * 6 * bodies;
+        int v0 = p0 + 3 * bodies;
+        int p1 = p0 + 6 * bodies;
+        int v1 = p1 + 3 * bodies;
+        for (int k = 0; k < 3 * bodies; k++) {
+            out[k] = b0 * data.get(p0 + k) + b1 * data.get(v0 + k) + b2 * data.get(p1 + k) + b3 * data.get(v1 + k);
+        }
+    }
+
+    /**
+     * Position and velocity of one body at the given time.
+     *
+     * @param velocity output, null if not needed.
+     */
+    public void stateAt(int body, double epochSeconds, double[] position, double[] velocity) {
+        int interval = interval(epochSeconds);
+        // the weights of hermiteBasis, see positionsAt
+        double s = (epochSeconds - startSeconds) / stepSeconds - interval;
+        double s2 = s * s, s3 = s2 * s;
+        double b0 = 2 * s3 - 3 * s2 + 1;
+        double b1 = (s3 - 2 * s2 + s) * stepSeconds;
+        double b2 = -2 * s3 + 3 * s2;
+        double b3 = (s3 - s2) * stepSeconds;
+        double b4 = (6 * s2 - 6 * s) / stepSeconds;
+        double b5 = 3 * s2 - 4 * s + 1;
+        double b7 = 3 * s2 - 2 * s;
+        int p0 = interval * 6 * bodies + 3 * body;
+        int v0 = p0 + 3 * bodies;
+        int p1 = p0 + 6 * bodies;
+        int v1 = p1 + 3 * bodies;
+        for (int k = 0; k < 3; k++) {
+            double pa = data.get(p0 + k), va = data.get(v0 + k), pb = data.get(p1 + k), vb = data.get(v1 + k);
+            position[k] = b0 * pa + b1 * va + b2 * pb + b3 * vb;
+            if (velocity != null) {
+                velocity[k] = b4 * pa + b5 * va - b4 * pb + b7 * vb;
+            }
+        }
+    }
+
+    /**
+     * Cubic Hermite between two states h seconds apart, for callers that have the two
+     * states at hand instead of a whole ephemeris.
+     *
+     * @param ends position and velocity at the start, then at the end, 12 values.
+     * @param s    fraction of the interval, 0 at the start and 1 at the end.
+     * @param velocity output, null if not needed.
+     */
+    public static void hermite(double[] ends, double h, double s, double[] position, double[] velocity) {
+        double[] basis = new double[velocity == null ? 4 : 8];
+        hermiteBasis(s, h, basis);
+        for (int k = 0; k < 3; k++) {
+            position[k] = basis[0] * ends[k] + basis[1] * ends[3 + k] + basis[2] * ends[6 + k] + basis[3] * ends[9 + k];
+            if (velocity != null) {
+                velocity[k] = basis[4] * ends[k] + basis[5] * ends[3 + k] + basis[6] * ends[6 + k] + basis[7] * ends[9 + k];
+            }
+        }
+    }
+
+    /**
+     * The cubic Hermite basis at fraction s of an interval h seconds long, positionsAt and
+     * stateAt inline the same weights. basis[0..3] weigh the position at the start, the
+     * velocity at the start, the position at the end and the velocity at the end. If basis
+     * has 8 values, basis[4..7] get their time derivatives, the weights for the velocity.
+     */
+    public static void hermiteBasis(double s, double h, double[] basis) {
+        double s2 = s * s, s3 = s2 * s;
+        basis[0] = 2 * s3 - 3 * s2 + 1;
+        basis[1] = (s3 - 2 * s2 + s) * h;
+        basis[2] = -2 * s3 + 3 * s2;
+        basis[3] = (s3 - s2) * h;
+        if (basis.length < 8) return;
+        basis[4] = (6 * s2 - 6 * s) / h;
+        basis[5] = 3 * s2 - 4 * s + 1;
+        basis[6] = -basis[4];
+        basis[7] = 3 * s2 - 2 * s;
+    }
+
+    /**
+     * Grid interval the time falls in, the end of the grid belongs to the last interval.
+     */
+    private int interval(double epochSeconds) {
+        double offset = (epochSeconds - startSeconds) / stepSeconds;
+        if (offset < 0 || offset > samples - 1) {
+            throw new IllegalArgumentException("Time " + Solver.toDateTime((long) Math.floor(epochSeconds))
+                    + " is outside of the ephemeris (" + getStartTime() + " to " + getEndTime() + ")");
+        }
+        if (samples < 2) {
+            throw new IllegalStateException("The ephemeris needs at least two samples to interpolate");
+        }
+        return Math.min((int) offset, samples - 2);
+    }
+
+    @Override
+    public Vector position(BodyID body, LocalDateTime time) {
+        double[] p = new double[3];
+        stateAt(body.index(), Solver.toSeconds(time), p, null);
+        return new Vector(p[0], p[1], p[2]);
+    }
+
+    @Override
+    public Vector velocity(BodyID body, LocalDateTime time) {
+        double[] p = new double[3];
+        double[] v = new double[3];
+        stateAt(body.index(), Solver.toSeconds(time), p, v);
+        return new Vector(v[0], v[1], v[2]);
+    }
+
+    /**
+     * g * mass per body in planetarySystem order, 0 for test particles.
+     */
+    public double[] getGm() {
+        return gm.clone();
+    }
+
+    public int getBodyCount() {
+        return bodies;
+    }
+
+    public long getStartSeconds() {
+        return startSeconds;
+    }
+
+    public LocalDateTime getStartTime() {
+        return Solver.toDateTime(startSeconds);
+    }
+
+    public LocalDateTime getEndTime() {
+        return timeline.getEndTime();
+    }
+
+    public Timeline getTimeline() {
+        return timeline;
+    }
+}
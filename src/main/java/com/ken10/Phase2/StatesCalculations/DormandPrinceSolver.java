@@ -0,0 +1,302 @@
+package com.ken10.Phase2.StatesCalculations;
+
+import com.ken10.Phase2.SolarSystemModel.CelestialBodies;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+
+/**
+ * Adaptive Dormand-Prince 5(4) on the flat arrays of ArraySolver.
+ * <p>
+ * stepSizeMins is only the output interval here: every step() records one state
+ * stepSizeMins later. The internal steps are chosen by the tolerances alone, up to
+ * maxStep, and run past the output times; a state in the middle of a step comes from
+ * the 4th order continuous extension of Dormand and Prince (Hairer, Norsett and Wanner,
+ * Solving ODEs I, II.6), which needs no extra force evaluations. The error estimate comes
+ * from the embedded 4th order solution, a step is rejected when any moving coordinate is
+ * off by more than absTol + relTol * |value| (max norm, so one close encounter is enough
+ * to shrink it). The last stage is the first stage of the next step (FSAL), so an accepted
+ * step costs 6 force evaluations and a rejected one 6 as well.
+ */
+public class DormandPrinceSolver extends ArraySolver {
+    public static final double DEFAULT_ABS_TOL = 1e-6;
+    public static final double DEFAULT_REL_TOL = 1e-12;
+    // seconds, a day keeps the moon resolved even if the tolerances would allow more
+    public static final double DEFAULT_MAX_STEP = 86400;
+
+    private static final double SAFETY = 0.9;
+    private static final double MAX_GROWTH = 5.0;
+    private static final double MIN_SHRINK = 0.2;
+    private static final double MIN_STEP = 1e-3;
+
+    // Butcher tableau, row s holds the a coefficients of stage s
+    private static final double[][] A = {
+            {},
+            {1.0 / 5},
+            {3.0 / 40, 9.0 / 40},
+            {44.0 / 45, -56.0 / 15, 32.0 / 9},
+            {19372.0 / 6561, -25360.0 / 2187, 64448.0 / 6561, -212.0 / 729},
+            {9017.0 / 3168, -355.0 / 33, 46732.0 / 5247, 49.0 / 176, -5103.0 / 18656},
+            {35.0 / 384, 0, 500.0 / 1113, 125.0 / 192, -2187.0 / 6784, 11.0 / 84}
+    };
+    // 5th order weights minus 4th order weights, gives the error estimate
+    private static final double[] E = {
+            71.0 / 57600, 0, -71.0 / 16695, 71.0 / 1920, -17253.0 / 339200, 22.0 / 525, -1.0 / 40
+    };
+    private static final int STAGES = 7;
+    // continuous extension, weights of the stages for the 4th order correction term
+    private static final double[] D = {
+            -12715105075.0 / 11282082432.0, 0, 87487479700.0 / 32700410799.0, -10690763975.0 / 1880347072.0,
+            701980252875.0 / 199316789632.0, -1453857185.0 / 822651844.0, 69997945.0 / 29380423.0
+    };
+
+    private final double absTol;
+    private final double relTol;
+    private final double maxStep;
+
+    // kVel[s] and kAcc[s] are the derivatives of stage s
+    private double[][] kVel;
+    private double[][] kAcc;
+    private double[] stagePos;
+    private boolean firstStageReady;
+    // the integration runs ahead of pos and vel, which hold the state at the last output time
+    private double[] yPos;
+    private double[] yVel;
+    private double yTime;
+    // continuous extension of the last step that passed an output time, positions then velocities
+    private double[][] dense;
+    private double denseStart;
+    private double denseLength;
+    // next internal step to try, seconds
+    private double h;
+
+    private long acceptedSteps;
+    private long rejectedSteps;
+    private long forceEvaluations;
+
+    public DormandPrinceSolver(ArrayList<CelestialBodies> planetarySystem, LocalDateTime startTime, LocalDateTime endTime, int stepSizeMins) {
+        this(planetarySystem, startTime, endTime, stepSizeMins, DEFAULT_ABS_TOL, DEFAULT_REL_TOL);
+    }
+
+    public DormandPrinceSolver(ArrayList<CelestialBodies> planetarySystem, LocalDateTime startTime, LocalDateTime endTime,
+                               int stepSizeMins, double absTol, double relTol) {
+        this(planetarySystem, startTime, endTime, stepSizeMins, absTol, relTol, DEFAULT_MAX_STEP);
+    }
+
+    /**
+     * @param stepSizeMins output interval in minutes, the internal steps are chosen by the solver.
+     * @param absTol absolute tolerance, km for positions and km/s for velocities.
+     * @param relTol relative tolerance.
+     * @param maxStep longest internal step in seconds, independent of the output interval.
+     */
+    public DormandPrinceSolver(ArrayList<CelestialBodies> planetarySystem, LocalDateTime startTime, LocalDateTime endTime,
+                               int stepSizeMins, double absTol, double relTol, double maxStep) {
+        super(planetarySystem, startTime, endTime, stepSizeMins);
+        if (!(maxStep >= MIN_STEP)) {
+            throw new IllegalArgumentException("maxStep has to be at least " + MIN_STEP + " s, not " + maxStep);
+        }
+        this.absTol = absTol;
+        this.relTol = relTol;
+        this.maxStep = maxStep;
+        this.h = Math.min(maxStep, stepSizeMins * 60.0);
+    }
+
+    @Override
+    protected void loadState() {
+        super.loadState();
+        kVel = new double[STAGES][3 * n];
+        kAcc = new double[STAGES][3 * n];
+        stagePos = new double[3 * n];
+        System.arraycopy(pos, 0, stagePos, 0, FIRST_MOVING);
+        yPos = pos.clone();
+        yVel = vel.clone();
+        yTime = timeSeconds;
+        dense = new double[5][6 * n];
+        firstStageReady = false;
+    }
+
+    /**
+     * Advances the output by stepSizeMins. The internal steps only go as far as needed to
+     * pass the new output time, the last one is cut short only at the end of the run.
+     */
+    @Override
+    public void step() {
+        long target = timeSeconds + stepSizeMins * 60L;
+        double limit = Math.max(target, toSeconds(endTime));
+        while (yTime < target) {
+            boolean cut = yTime + h >= limit;
+            double hTry = cut ? limit - yTime : h;
+            double error = dopri(hTry);
+            if (error <= 1) {
+                if (yTime + hTry > target) {
+                    prepareDense(hTry);
+                }
+                accept();
+                acceptedSteps++;
+                yTime = cut ? limit : yTime + hTry;
+                // a cut step says little about the step size that would have worked
+                if (!cut) {
+                    h = Math.min(maxStep, hTry * growth(error));
+                }
+            } else {
+                rejectedSteps++;
+                h = hTry * Math.max(MIN_SHRINK, SAFETY * Math.pow(error, -0.2));
+                if (h < MIN_STEP) {
+                    throw new IllegalStateException("Step size underflow at " + toDateTime((long) yTime)
+                            + ", tolerances too tight?");
+                }
+            }
+        }
+        if (yTime == target) {
+            System.arraycopy(yPos, FIRST_MOVING, pos, FIRST_MOVING, 3 * n - FIRST_MOVING);
+            System.arraycopy(yVel, FIRST_MOVING, vel, FIRST_MOVING, 3 * n - FIRST_MOVING);
+        } else {
+            interpolate((target - denseStart) / denseLength);
+        }
+        advanceTime();
+        recordState();
+    }
+
+    /**
+     * Continuous extension of the step of h seconds from yPos and yVel that dopri just
+     * computed, has to run before accept.
+     */
+    private void prepareDense(double h) {
+        int len = 3 * n;
+        double[] y0 = dense[0], dy = dense[1], start = dense[2], end = dense[3], correction = dense[4];
+        for (int k = FIRST_MOVING; k < len; k++) {
+            for (int half = 0; half < 2; half++) {
+                // positions have the stage velocities as derivatives, velocities the accelerations
+                double[][] stages = half == 0 ? kVel : kAcc;
+                int c = half * len + k;
+                y0[c] = half == 0 ? yPos[k] : yVel[k];
+                dy[c] = (half == 0 ? stagePos[k] : kVel[6][k]) - y0[c];
+                start[c] = h * stages[0][k] - dy[c];
+                end[c] = dy[c] - h * stages[6][k] - start[c];
+                double sum = 0;
+                for (int j = 0; j < STAGES; j++) {
+                    sum += D[j] * stages[j][k];
+                }
+                correction[c] = h * sum;
+            }
+        }
+        denseStart = yTime;
+        denseLength = h;
+    }
+
+    /**
+     * Writes the state at fraction theta of the prepared step into pos and vel.
+     */
+    private void interpolate(double theta) {
+        int len = 3 * n;
+        double rest = 1 - theta;
+        for (int k = FIRST_MOVING; k < len; k++) {
+            pos[k] = dense(k, theta, rest);
+            vel[k] = dense(len + k, theta, rest);
+        }
+    }
+
+    private double dense(int c, double theta, double rest) {
+        return dense[0][c] + theta * (dense[1][c] + rest * (dense[2][c] + theta * (dense[3][c] + rest * dense[4][c])));
+    }
+
+    private static double growth(double error) {
+        if (error == 0) return MAX_GROWTH;
+        return Math.min(MAX_GROWTH, SAFETY * Math.pow(error, -0.2));
+    }
+
+    /**
+     * Runs the stages of one step of h seconds from yPos and yVel without touching them.
+     * The 5th order result is left in stagePos and kVel[6].
+     *
+     * @return error estimate relative to the tolerances, <= 1 means the step is good.
+     */
+    private double dopri(double h) {
+        int len = 3 * n;
+        if (!firstStageReady) {
+            System.arraycopy(yVel, 0, kVel[0], 0, len);
+            acceleration(yPos, kAcc[0]);
+            firstStageReady = true;
+        }
+
+        for (int s = 1; s < STAGES; s++) {
+            double[] a = A[s];
+            double[] stageVel = kVel[s];
+            for (int k = FIRST_MOVING; k < len; k++) {
+                double p = yPos[k];
+                double v = yVel[k];
+                for (int j = 0; j < s; j++) {
+                    p += h * a[j] * kVel[j][k];
+                    v += h * a[j] * kAcc[j][k];
+                }
+                stagePos[k] = p;
+                stageVel[k] = v;
+            }
+            acceleration(stagePos, kAcc[s]);
+        }
+
+        double error = 0;
+        for (int k = FIRST_MOVING; k < len; k++) {
+            double errPos = 0;
+            double errVel = 0;
+            for (int j = 0; j < STAGES; j++) {
+                errPos += E[j] * kVel[j][k];
+                errVel += E[j] * kAcc[j][k];
+            }
+            double scalePos = absTol + relTol * Math.max(Math.abs(yPos[k]), Math.abs(stagePos[k]));
+            double scaleVel = absTol + relTol * Math.max(Math.abs(yVel[k]), Math.abs(kVel[6][k]));
+            error = Math.max(error, Math.abs(h * errPos) / scalePos);
+            error = Math.max(error, Math.abs(h * errVel) / scaleVel);
+        }
+        return error;
+    }
+
+    /**
+     * Takes over the result of the last dopri call, its last stage is the next first stage.
+     */
+    private void accept() {
+        int len = 3 * n;
+        System.arraycopy(stagePos, FIRST_MOVING, yPos, FIRST_MOVING, len - FIRST_MOVING);
+        System.arraycopy(kVel[6], FIRST_MOVING, yVel, FIRST_MOVING, len - FIRST_MOVING);
+        double[] swap = kVel[0];
+        kVel[0] = kVel[6];
+        kVel[6] = swap;
+        swap = kAcc[0];
+        kAcc[0] = kAcc[6];
+        kAcc[6] = swap;
+    }
+
+    private void acceleration(double[] pos, double[] acc) {
+        accelerations(pos, acc);
+        forceEvaluations++;
+    }
+
+    public long getAcceptedSteps() {
+        return acceptedSteps;
+    }
+
+    public long getRejectedSteps() {
+        return rejectedSteps;
+    }
+
+    public long getForceEvaluations() {
+        return forceEvaluations;
+    }
+
+    /**
+     * Step size the next internal step will try, in seconds.
+     */
+    public double getCurrentStep() {
+        return h;
+    }
+
+    @Override
+    public String cacheKey() {
+        return super.cacheKey() + "/absTol=" + absTol + "/relTol=" + relTol + "/maxStep=" + maxStep;
+    }
+
+    public String getStatistics() {
+        return "accepted steps: " + acceptedSteps + ", rejected steps: " + rejectedSteps
+                + ", force evaluations: " + forceEvaluations;
+    }
+}
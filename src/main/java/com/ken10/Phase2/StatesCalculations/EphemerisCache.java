@@ -0,0 +1,180 @@
+package com.ken10.Phase2.StatesCalculations;
+
+import com.ken10.Phase2.SolarSystemModel.CelestialBodies;
+import com.ken10.Phase2.SolarSystemModel.Vector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * Keeps recorded Timelines on disk so the planets only get integrated once per setup.
+ * <p>
+ * A file is named after a SHA-256 of everything that changes the result: the initial
+ * state and mass of every body, start, end, step size, and the cacheKey() of the solver
+ * and of its acceleration provider, which carry their settings (scheme, order, tolerances,
+ * theta). The key can't see the code though: bump VERSION with any change to a solver or
+ * a kernel that changes the states it records, files of the old version are then ignored.
+ * A provider without a cacheKey (a lambda) can't be told apart from others, solvers using
+ * one are recorded every time.
+ * <p>
+ * A file holds a 72 byte header (magic, version, bodies, samples, start and step in seconds,
+ * the key) followed by the samples in Timeline's layout, little endian.
+ * <p>
+ * Files are read back with FileChannel.map, so the Timeline sits on the page cache:
+ * nothing gets copied onto the heap, and every JVM on the machine using the same file
+ * shares one copy of it.
+ */
+public class EphemerisCache {
+    private static final long MAGIC = 0x5036455048454D31L; // "P6EPHEM1"
+    // bump when the numerics change, see above
+    private static final int VERSION = 4;
+    private static final int HEADER = 72;
+
+    private final Path directory;
+
+    public EphemerisCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Cache in the directory given by -Dephemeris.cache, otherwise p6-ephemeris in the
+     * user's cache directory ($XDG_CACHE_HOME, or ~/.cache), so users don't share files.
+     */
+    public static EphemerisCache getDefault() {
+        String directory = System.getProperty("ephemeris.cache");
+        if (directory != null) return new EphemerisCache(Path.of(directory));
+        String cache = System.getenv("XDG_CACHE_HOME");
+        Path base = cache != null && !cache.isEmpty() ? Path.of(cache) : Path.of(System.getProperty("user.home"), ".cache");
+        return new EphemerisCache(base.resolve("p6-ephemeris"));
+    }
+
+    /**
+     * Timeline of what solver would record, from the cache if it's there. Otherwise the
+     * solver gets run (see Timeline.record) and the result stored, so the solver is only
+     * stepped on a miss.
+     */
+    public Timeline load(ArraySolver solver) {
+        CelestialBodies[] template = solver.planetarySystem.toArray(new CelestialBodies[0]);
+        byte[] key = key(solver);
+        if (key == null) return Timeline.record(solver);
+        Path file = directory.resolve("ephemeris-" + HexFormat.of().formatHex(key, 0, 16) + ".bin");
+
+        Timeline cached = Files.isRegularFile(file) ? read(file, key, template) : null;
+        if (cached != null) return cached;
+
+        Timeline timeline = Timeline.record(solver);
+        try {
+            write(timeline, key, file);
+            Timeline mapped = read(file, key, template);
+            return mapped != null ? mapped : timeline;
+        } catch (IOException e) {
+            // the cache is only a shortcut, carry on with the timeline in memory
+            System.err.println("Could not write ephemeris cache " + file + ": " + e.getMessage());
+            return timeline;
+        }
+    }
+
+    /**
+     * @return null if the file is not a complete cache file for this key.
+     */
+    private static Timeline read(Path file, byte[] key, CelestialBodies[] template) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER) return null;
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            if (map.getLong(0) != MAGIC || map.getInt(8) != VERSION || map.getInt(12) != template.length) return null;
+            int samples = map.getInt(16);
+            byte[] stored = new byte[32];
+            map.get(40, stored);
+            if (!Arrays.equals(stored, key) || size != HEADER + 8L * 6 * template.length * samples) return null;
+
+            // the mapping stays valid after the channel is closed
+            DoubleBuffer data = map.slice(HEADER, (int) (size - HEADER)).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            return new Timeline(map.getLong(24), map.getLong(32), template, data, samples);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes to a temporary file first and moves it in place, so other processes never
+     * see half a file.
+     */
+    private void write(Timeline timeline, byte[] key, Path file) throws IOException {
+        int doubles = 6 * timeline.getBodyCount() * timeline.size();
+        long size = HEADER + 8L * doubles;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Timeline too large to map (" + size + " bytes)");
+        }
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, "ephemeris-", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                map.order(ByteOrder.LITTLE_ENDIAN);
+                map.putLong(0, MAGIC);
+                map.putInt(8, VERSION);
+                map.putInt(12, timeline.getBodyCount());
+                map.putInt(16, timeline.size());
+                map.putLong(24, timeline.getStartSeconds());
+                map.putLong(32, timeline.getStepSeconds());
+                map.put(40, key);
+                map.slice(HEADER, (int) (size - HEADER)).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer()
+                        .put(0, timeline.data(), 0, doubles);
+                map.force();
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * SHA-256 over everything the recorded states depend on.
+     *
+     * @return null if the acceleration provider has no cacheKey.
+     */
+    private static byte[] key(ArraySolver solver) {
+        ByteBuffer buffer = ByteBuffer.allocate(24 + 60 * solver.planetarySystem.size()).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(VERSION);
+        buffer.putLong(solver.timeSeconds);
+        buffer.putLong(Solver.toSeconds(solver.endTime));
+        buffer.putInt(solver.stepSizeMins);
+        for (CelestialBodies body : solver.planetarySystem) {
+            putVector(buffer, body.getPosition());
+            putVector(buffer, body.getVelocity());
+            buffer.putDouble(body.getMass());
+            buffer.putInt(body.isTestParticle() ? 1 : 0);
+        }
+        String provider = solver.getAccelerationProvider().cacheKey(solver.planetarySystem.size());
+        if (provider == null) return null;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(buffer.array(), 0, buffer.position());
+            digest.update((solver.cacheKey() + "|" + provider).getBytes(StandardCharsets.UTF_8));
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static void putVector(ByteBuffer buffer, Vector v) {
+        buffer.putDouble(v.getX());
+        buffer.putDouble(v.getY());
+        buffer.putDouble(v.getZ());
+    }
+}
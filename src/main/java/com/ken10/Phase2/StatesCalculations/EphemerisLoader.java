@@ -12,14 +12,16 @@ import java.util.List;
 //To run this code(load all the states in a specified time frame) you create an instance of
 //EphemerisLoader and then call EphemerisLoader.getPlanetStates()
 // and get all states in the timeframe you specify the start date, end date and then call
-public final class EphemerisLoader extends RK4Solver implements EphemerisProvider {
+public final class EphemerisLoader extends ArrayRK4Solver implements EphemerisProvider {
 
 public final ArrayList<CelestialBodies> initialState;
+private final LocalDateTime startTime;
 private RK4Probe simulation;
 
     public EphemerisLoader(ArrayList<CelestialBodies> planetarySystem, LocalDateTime startTime, LocalDateTime endTime, int stepSizeMins) {
         super(planetarySystem, startTime, endTime, stepSizeMins);
         this.initialState = planetarySystem;
+        this.startTime = startTime;
     }
     public EphemerisLoader(int stepSizeMins) {
         super(SolarSystem.createPlanets(),
@@ -27,6 +29,7 @@ private RK4Probe simulation;
                 LocalDateTime.of(2026, 4, 1, 0, 0),
                 stepSizeMins);
         this.initialState = planetarySystem;
+        this.startTime = START_TIME;
     }
     public EphemerisLoader(int stepSizeMins, int durationYears) {
         super(SolarSystem.createPlanets(),
@@ -34,19 +37,21 @@ private RK4Probe simulation;
                 LocalDateTime.of(2025+durationYears, 4, 1, 0, 0),
                 stepSizeMins);
         this.initialState = planetarySystem;
+        this.startTime = START_TIME;
     }
 
     public EphemerisLoader(int stepSizeMins,Probe probe, int duration) {
         super(SolarSystem.createPlanets(), START_TIME, START_TIME.plusYears(duration), stepSizeMins);
         this.initialState = planetarySystem;
+        this.startTime = START_TIME;
         loadHistory(probe, duration);
     }
 
     private void loadHistory(Probe probe, int duration) {
-        stepSizeMins = stepSizeMins/2;
         solve();
-        stepSizeMins = stepSizeMins*2;
-        RK4Probe simulation = new RK4Probe(probe, history, stepSizeMins);
+        // the probe gets its mid-step planets from the dense output, so the planets only need its step
+        DenseEphemeris ephemeris = DenseEphemeris.fromHistory(history, START_TIME, START_TIME.plusYears(duration), stepSizeMins);
+        RK4Probe simulation = new RK4Probe(probe, ephemeris, stepSizeMins);
         simulation.solve();
         this.simulation = simulation;
         endTime = simulation.getClosestDistTime();
@@ -54,13 +59,11 @@ private RK4Probe simulation;
         for (LocalDateTime time = START_TIME; time.isBefore(endTime) || time.isEqual(endTime); time = time.plusMinutes(stepSizeMins))
         {
             ArrayList<CelestialBodies> currentState = history.get(time);
-            currentState.add(simulation.historyProbe.get(time));
+            currentState.add(simulation.getHistoryProbe().get(time));
             history.replace(time, currentState);
-            if(time.plusMinutes(stepSizeMins/2).isBefore(endTime))
-                history.remove(time.plusMinutes(stepSizeMins/2));
         }
 
-        for(var time = endTime.plusMinutes(stepSizeMins/2); time.isBefore(START_TIME.plusYears(duration))||time.isEqual(START_TIME.plusYears(duration)); time = time.plusMinutes(stepSizeMins/2)){
+        for(var time = endTime.plusMinutes(stepSizeMins); time.isBefore(START_TIME.plusYears(duration))||time.isEqual(START_TIME.plusYears(duration)); time = time.plusMinutes(stepSizeMins)){
             history.remove(time);
         }
     }
@@ -72,6 +75,7 @@ private RK4Probe simulation;
     @Override
     public Vector position(BodyID body, LocalDateTime currentTime) {
         ArrayList<CelestialBodies> currentState = history.get(currentTime);
+        if (currentState == null) return interpolate(body, currentTime, false);
         CelestialBodies cb = currentState.get(body.index());
         return cb.getPosition();
         //We need to find the position of the planets in the current state
@@ -81,11 +85,46 @@ private RK4Probe simulation;
     @Override
     public Vector velocity(BodyID body, LocalDateTime currentTime) {
         ArrayList<CelestialBodies> currentState = history.get(currentTime);
+        if (currentState == null) return interpolate(body, currentTime, true);
         CelestialBodies cb = currentState.get(body.index());
         return cb.getVelocity();
         //We need to find the velocity of the planets in the current state
     }
 
+    /**
+     * Times between the history entries, Hermite (DenseEphemeris.hermite) between the two
+     * states around it.
+     */
+    private Vector interpolate(BodyID body, LocalDateTime currentTime, boolean velocity) {
+        long step = 60L * stepSizeMins;
+        long offset = toSeconds(currentTime) - toSeconds(startTime);
+        long before = Math.floorDiv(offset, step) * step;
+        LocalDateTime t0 = startTime.plusSeconds(before);
+        ArrayList<CelestialBodies> state0 = history.get(t0);
+        ArrayList<CelestialBodies> state1 = history.get(t0.plusSeconds(step));
+        if (state0 == null || state1 == null) {
+            throw new IllegalArgumentException("Time " + currentTime + " is outside of the history");
+        }
+
+        double[] ends = new double[12];
+        CelestialBodies b0 = state0.get(body.index());
+        CelestialBodies b1 = state1.get(body.index());
+        copy(b0.getPosition(), ends, 0);
+        copy(b0.getVelocity(), ends, 3);
+        copy(b1.getPosition(), ends, 6);
+        copy(b1.getVelocity(), ends, 9);
+        double[] p = new double[3];
+        double[] v = velocity ? new double[3] : null;
+        DenseEphemeris.hermite(ends, step, (offset - before) / (double) step, p, v);
+        return velocity ? new Vector(v[0], v[1], v[2]) : new Vector(p[0], p[1], p[2]);
+    }
+
+    private static void copy(Vector v, double[] out, int o) {
+        out[o] = v.getX();
+        out[o + 1] = v.getY();
+        out[o + 2] = v.getZ();
+    }
+
 
 
     public static void main(String[] args) {
@@ -6,6 +6,11 @@ import com.ken10.Phase2.SolarSystemModel.Vector;
 
 import java.time.LocalDateTime;
 
+/**
+ * Position and velocity of a body at any time in the span the provider covers, in
+ * between its stored states implementations interpolate.
+ * A time outside of that span is an IllegalArgumentException, never null.
+ */
 public interface EphemerisProvider {
     Vector position(BodyID body, LocalDateTime time);
     Vector velocity(BodyID body, LocalDateTime time);
@@ -0,0 +1,188 @@
+package com.ken10.Phase2.StatesCalculations;
+
+import com.ken10.Phase2.SolarSystemModel.BodyID;
+import com.ken10.Phase2.SolarSystemModel.CelestialBodies;
+import com.ken10.Phase2.SolarSystemModel.Vector;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Ephemeris that only integrates the part of the span that gets asked for.
+ * <p>
+ * The span is cut into segments of segmentMinutes. The first query in a segment integrates
+ * it (and any segments before it that were never reached) and keeps it as a Timeline.
+ * Segments are kept least recently used first and dropped once they take more than the
+ * memory budget. The state at the start of every segment reached so far stays as a
+ * checkpoint (6 doubles per body), so a dropped segment is integrated again from its own
+ * checkpoint only. Each segment runs on a fresh solver, which gives the same states as one
+ * solver over the whole span for one-step methods like RK4.
+ */
+public class LazyEphemeris implements EphemerisProvider {
+
+    /**
+     * Builds the solver for one segment, e.g. ArrayRK4Solver::new.
+     */
+    @FunctionalInterface
+    public interface SolverFactory {
+        ArraySolver create(ArrayList<CelestialBodies> planetarySystem, LocalDateTime start, LocalDateTime end, int stepSizeMins);
+    }
+
+    private final SolverFactory factory;
+    private final CelestialBodies[] template;
+    private final long startSeconds;
+    private final long endSeconds;
+    private final int stepSizeMins;
+    private final long segmentSeconds;
+    private final int segmentCount;
+    private final int maxSegments;
+    // checkpoints.get(k) is the state at the start of segment k, Timeline's sample layout
+    private final ArrayList<double[]> checkpoints = new ArrayList<>();
+    private final LinkedHashMap<Integer, Timeline> segments;
+    private int computed;
+
+    /**
+     * RK4 (ArrayRK4Solver) like EphemerisLoader.
+     */
+    public LazyEphemeris(ArrayList<CelestialBodies> planetarySystem, LocalDateTime start, LocalDateTime end,
+                         int stepSizeMins, int segmentMinutes, long memoryBudgetBytes) {
+        this(planetarySystem, start, end, stepSizeMins, segmentMinutes, memoryBudgetBytes, ArrayRK4Solver::new);
+    }
+
+    /**
+     * @param segmentMinutes    length of a segment, a multiple of stepSizeMins.
+     * @param memoryBudgetBytes how much the kept segments may take, at least one is always kept.
+     */
+    public LazyEphemeris(ArrayList<CelestialBodies> planetarySystem, LocalDateTime start, LocalDateTime end,
+                         int stepSizeMins, int segmentMinutes, long memoryBudgetBytes, SolverFactory factory) {
+        if (segmentMinutes <= 0 || segmentMinutes % stepSizeMins != 0) {
+            throw new IllegalArgumentException("Segment of " + segmentMinutes + " minutes is not a multiple of the "
+                    + stepSizeMins + " minute step");
+        }
+        this.factory = factory;
+        this.startSeconds = Solver.toSeconds(start);
+        this.endSeconds = Solver.toSeconds(end);
+        this.stepSizeMins = stepSizeMins;
+        this.segmentSeconds = 60L * segmentMinutes;
+        this.segmentCount = (int) Math.max(1, (endSeconds - startSeconds + segmentSeconds - 1) / segmentSeconds);
+
+        int bodies = planetarySystem.size();
+        this.template = new CelestialBodies[bodies];
+        double[] initial = new double[6 * bodies];
+        for (int i = 0; i < bodies; i++) {
+            template[i] = planetarySystem.get(i).deepCopy();
+            Vector p = template[i].getPosition();
+            Vector v = template[i].getVelocity();
+            initial[3 * i] = p.getX();
+            initial[3 * i + 1] = p.getY();
+            initial[3 * i + 2] = p.getZ();
+            initial[3 * (bodies + i)] = v.getX();
+            initial[3 * (bodies + i) + 1] = v.getY();
+            initial[3 * (bodies + i) + 2] = v.getZ();
+        }
+        checkpoints.add(initial);
+
+        long segmentBytes = 8L * 6 * bodies * (segmentMinutes / stepSizeMins + 1);
+        this.maxSegments = (int) Math.max(1, Math.min(Integer.MAX_VALUE, memoryBudgetBytes / segmentBytes));
+        this.segments = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Timeline> eldest) {
+                return size() > maxSegments;
+            }
+        };
+    }
+
+    /**
+     * The segment holding the given time, integrated if it isn't kept.
+     */
+    private synchronized Timeline segment(long epochSeconds) {
+        if (epochSeconds < startSeconds || epochSeconds > endSeconds) {
+            throw new IllegalArgumentException("Time " + Solver.toDateTime(epochSeconds)
+                    + " is outside of the ephemeris (" + getStartTime() + " to " + getEndTime() + ")");
+        }
+        int k = (int) Math.min((epochSeconds - startSeconds) / segmentSeconds, segmentCount - 1);
+        Timeline timeline = segments.get(k);
+        if (timeline != null) return timeline;
+
+        // every segment reached so far left a checkpoint, go on from the last one at or before k
+        for (int s = Math.min(k, checkpoints.size() - 1); s <= k; s++) {
+            timeline = integrate(s);
+            if (s + 1 == checkpoints.size() && s + 1 < segmentCount) {
+                checkpoints.add(lastState(timeline));
+            }
+            segments.put(s, timeline);
+        }
+        return timeline;
+    }
+
+    private Timeline integrate(int segment) {
+        double[] state = checkpoints.get(segment);
+        int bodies = template.length;
+        ArrayList<CelestialBodies> system = new ArrayList<>(bodies);
+        for (int i = 0; i < bodies; i++) {
+            int p = 3 * i, v = 3 * (bodies + i);
+            system.add(template[i].withState(new Vector(state[p], state[p + 1], state[p + 2]),
+                    new Vector(state[v], state[v + 1], state[v + 2])));
+        }
+        long from = startSeconds + segment * segmentSeconds;
+        long to = Math.min(from + segmentSeconds, endSeconds);
+        computed++;
+        return Timeline.record(factory.create(system, Solver.toDateTime(from), Solver.toDateTime(to), stepSizeMins));
+    }
+
+    private double[] lastState(Timeline timeline) {
+        int bodies = template.length;
+        int last = timeline.size() - 1;
+        double[] state = new double[6 * bodies];
+        double[] v = new double[3];
+        for (int i = 0; i < bodies; i++) {
+            timeline.position(last, i, v);
+            System.arraycopy(v, 0, state, 3 * i, 3);
+            timeline.velocity(last, i, v);
+            System.arraycopy(v, 0, state, 3 * (bodies + i), 3);
+        }
+        return state;
+    }
+
+    /**
+     * Exact on the step grid, Hermite in between (see Timeline).
+     */
+    @Override
+    public Vector position(BodyID body, LocalDateTime time) {
+        return segment(Solver.toSeconds(time)).position(body, time);
+    }
+
+    @Override
+    public Vector velocity(BodyID body, LocalDateTime time) {
+        return segment(Solver.toSeconds(time)).velocity(body, time);
+    }
+
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    public int getMaxSegments() {
+        return maxSegments;
+    }
+
+    public synchronized int getCachedSegments() {
+        return segments.size();
+    }
+
+    /**
+     * How many times a segment got integrated, regenerated ones included.
+     */
+    public synchronized int getComputedSegments() {
+        return computed;
+    }
+
+    public LocalDateTime getStartTime() {
+        return Solver.toDateTime(startSeconds);
+    }
+
+    public LocalDateTime getEndTime() {
+        return Solver.toDateTime(endSeconds);
+    }
+}
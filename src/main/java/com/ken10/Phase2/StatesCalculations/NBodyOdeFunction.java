@@ -0,0 +1,147 @@
+package com.ken10.Phase2.StatesCalculations;
+
+import com.ken10.Phase1.OdeFunction;
+import com.ken10.Phase2.SolarSystemModel.AccelerationProvider;
+import com.ken10.Phase2.SolarSystemModel.CelestialBodies;
+import com.ken10.Phase2.SolarSystemModel.GravityCalc;
+import com.ken10.Phase2.SolarSystemModel.Vector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The gravitational N-body problem as a Phase1 OdeFunction, so the Phase1 solvers
+ * (EulerSolver, RungeKutta4Solver, ...) can run the solar system.
+ * <p>
+ * The state is packed as [x, y, z, vx, vy, vz] per body in list order, time is in seconds.
+ * Body 0 stays where it starts (the sun in SolarSystem.createPlanets), same as ArraySolver.
+ * Test particles feel the other bodies but don't pull on them.
+ * pack/unpack/toBodies convert between the packed state and CelestialBodies at the edges.
+ * <p>
+ * Keeps scratch arrays, so one instance shouldn't be evaluated from two threads at once.
+ */
+public class NBodyOdeFunction implements OdeFunction {
+    private final int n;
+    private final int nMassive;
+    // order[slot] is the body index, massive bodies get the first slots like in ArraySolver
+    private final int[] order;
+    private final double[] gm;
+    private final double[] pos;
+    private final double[] acc;
+    private final AccelerationProvider accelerationProvider;
+
+    public NBodyOdeFunction(List<CelestialBodies> bodies) {
+        this(bodies, GravityCalc::computeAccelerations);
+    }
+
+    /**
+     * @param bodies masses and test particle flags are taken from here, the states come with evaluate.
+     * @param accelerationProvider how to compute the accelerations, e.g. a BarnesHutTree for large N.
+     */
+    public NBodyOdeFunction(List<CelestialBodies> bodies, AccelerationProvider accelerationProvider) {
+        this.n = bodies.size();
+        this.order = new int[n];
+        this.gm = new double[n];
+        this.pos = new double[3 * n];
+        this.acc = new double[3 * n];
+        this.accelerationProvider = accelerationProvider;
+        int slot = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < n; i++) {
+                if (bodies.get(i).isTestParticle() == (pass == 1)) {
+                    order[slot++] = i;
+                }
+            }
+        }
+        int massive = 0;
+        for (int s = 0; s < n; s++) {
+            CelestialBodies body = bodies.get(order[s]);
+            if (!body.isTestParticle()) {
+                gm[s] = GravityCalc.g * body.getMass();
+                massive++;
+            }
+        }
+        this.nMassive = massive;
+    }
+
+    public int getBodyCount() {
+        return n;
+    }
+
+    @Override
+    public double[] evaluate(double time, double[] state) {
+        double[] derivatives = new double[state.length];
+        evaluate(time, state, derivatives);
+        return derivatives;
+    }
+
+    @Override
+    public void evaluate(double time, double[] state, double[] derivatives) {
+        for (int s = 0; s < n; s++) {
+            int b = 6 * order[s];
+            pos[3 * s] = state[b];
+            pos[3 * s + 1] = state[b + 1];
+            pos[3 * s + 2] = state[b + 2];
+        }
+        accelerationProvider.computeAccelerations(pos, gm, nMassive, n, acc);
+        for (int s = 0; s < n; s++) {
+            int i = order[s];
+            int b = 6 * i;
+            if (i == 0) {
+                for (int k = 0; k < 6; k++) {
+                    derivatives[b + k] = 0;
+                }
+                continue;
+            }
+            derivatives[b] = state[b + 3];
+            derivatives[b + 1] = state[b + 4];
+            derivatives[b + 2] = state[b + 5];
+            derivatives[b + 3] = acc[3 * s];
+            derivatives[b + 4] = acc[3 * s + 1];
+            derivatives[b + 5] = acc[3 * s + 2];
+        }
+    }
+
+    /**
+     * @return [x, y, z, vx, vy, vz] per body, in list order.
+     */
+    public static double[] pack(List<CelestialBodies> bodies) {
+        double[] state = new double[6 * bodies.size()];
+        for (int i = 0; i < bodies.size(); i++) {
+            Vector p = bodies.get(i).getPosition();
+            Vector v = bodies.get(i).getVelocity();
+            int b = 6 * i;
+            state[b] = p.getX();
+            state[b + 1] = p.getY();
+            state[b + 2] = p.getZ();
+            state[b + 3] = v.getX();
+            state[b + 4] = v.getY();
+            state[b + 5] = v.getZ();
+        }
+        return state;
+    }
+
+    /**
+     * Writes a packed state back into the bodies.
+     */
+    public static void unpack(double[] state, List<CelestialBodies> bodies) {
+        for (int i = 0; i < bodies.size(); i++) {
+            int b = 6 * i;
+            bodies.get(i).setPosition(new Vector(state[b], state[b + 1], state[b + 2]));
+            bodies.get(i).setVelocity(new Vector(state[b + 3], state[b + 4], state[b + 5]));
+        }
+    }
+
+    /**
+     * Copies of the bodies with the packed state, e.g. for a history entry.
+     */
+    public static ArrayList<CelestialBodies> toBodies(double[] state, List<CelestialBodies> bodies) {
+        ArrayList<CelestialBodies> result = new ArrayList<>(bodies.size());
+        for (int i = 0; i < bodies.size(); i++) {
+            int b = 6 * i;
+            result.add(bodies.get(i).withState(new Vector(state[b], state[b + 1], state[b + 2]),
+                    new Vector(state[b + 3], state[b + 4], state[b + 5])));
+        }
+        return result;
+    }
+}
@@ -11,6 +11,8 @@ import java.util.ArrayList;
  * Works very accurately.
  */
 public class RK4Solver extends Solver {
+    private final MutableVector update = new MutableVector();
+
     /**
      * Initializes a RK4 solver.
      *
@@ -31,82 +33,42 @@ public class RK4Solver extends Solver {
     public void step() {
         // Calculate the derivatives at the current time step using GravityCalc
         int h = stepSizeMins * 60;
-        LocalDateTime t = time;
-        LocalDateTime t2 = t.plusSeconds(h/2);
-        LocalDateTime t4 = t.plusSeconds(h);
         ArrayList<CelestialBodies> y1 = planetarySystem;
         int n = y1.size();
-        ArrayList<CelestialBodies> k1 = GravityCalc.computeDerivatives(time, y1);
-
-        // Compute y2: Estimate the state at t + stepSize / 2
-        ArrayList<CelestialBodies> y2 = new ArrayList<>();
-        for (int i = 0; i < n ; i++) {
-            CelestialBodies original = y1.get(i);
-            CelestialBodies k1Body = k1.get(i);
-
-            Vector newPosition = original.getPosition().add(k1Body.getPosition().multiply(h / 2));
-            Vector newVelocity = original.getVelocity().add(k1Body.getVelocity().multiply(h / 2));
+        ArrayList<CelestialBodies> k1 = GravityCalc.computeDerivatives(y1);
 
-            CelestialBodies newBody = createNewBody(original, newPosition, newVelocity);
-            y2.add(newBody);
-        }
-        ArrayList<CelestialBodies> k2 = GravityCalc.computeDerivatives(t2, y2);
+        // Estimate the state at t + stepSize / 2 with k1, then again with k2, then at t + stepSize with k3
+        ArrayList<CelestialBodies> k2 = GravityCalc.computeDerivatives(stage(y1, k1, h / 2.0));
+        ArrayList<CelestialBodies> k3 = GravityCalc.computeDerivatives(stage(y1, k2, h / 2.0));
+        ArrayList<CelestialBodies> k4 = GravityCalc.computeDerivatives(stage(y1, k3, h));
 
-        // Compute y3: Estimate the state at t + stepSize / 2 (using y2)
-        ArrayList<CelestialBodies> y3 = new ArrayList<>();
+        // Update the planetary system's state using the RK4 formula
         for (int i = 0; i < n ; i++) {
-            CelestialBodies original = y2.get(i);
+            CelestialBodies body = y1.get(i);
+            CelestialBodies k1Body = k1.get(i);
             CelestialBodies k2Body = k2.get(i);
-
-            Vector newPosition = original.getPosition().add(k2Body.getPosition().multiply(h / 2));
-            Vector newVelocity = original.getVelocity().add(k2Body.getVelocity().multiply(h / 2));
-
-            CelestialBodies newBody = createNewBody(original, newPosition, newVelocity);
-            y3.add(newBody);
-        }
-        ArrayList<CelestialBodies> k3 = GravityCalc.computeDerivatives(t2, y3);
-
-
-        // Compute y4: Estimate the state at t + stepSize (using y3)
-        ArrayList<CelestialBodies> y4 = new ArrayList<>();
-        for (int i = 0; i < n ; i++) {
-            CelestialBodies original = y3.get(i);
             CelestialBodies k3Body = k3.get(i);
-
-            Vector newPosition = original.getPosition().add(k3Body.getPosition().multiply(h));
-            Vector newVelocity = original.getVelocity().add(k3Body.getVelocity().multiply(h));
-
-            CelestialBodies newBody = createNewBody(original, newPosition, newVelocity);
-            y4.add(newBody);
-        }
-        ArrayList<CelestialBodies> k4 = GravityCalc.computeDerivatives(t4, y4);
-
-        var newState = new ArrayList<CelestialBodies>();
-        // Update the planetary system's state using the RK4 formula
-        for (int i = 0; i < n ; i++) {
-           CelestialBodies body = y1.get(i);
-           CelestialBodies k1Body = k1.get(i);
-           CelestialBodies k2Body = k2.get(i);
-           CelestialBodies k3Body = k3.get(i);
-           CelestialBodies k4Body = k4.get(i);
-
-            Vector positionUpdate = k1Body.getPosition()
-                    .add(k2Body.getPosition().multiply(2))
-                    .add(k3Body.getPosition().multiply(2))
-                    .add(k4Body.getPosition()).multiply(h / 6);
-            body.setPosition(body.getPosition().add(positionUpdate));
-
-            Vector velocityUpdate = k1Body.getVelocity()
-                    .add(k2Body.getVelocity().multiply(2))
-                    .add(k3Body.getVelocity().multiply(2))
+            CelestialBodies k4Body = k4.get(i);
+
+            update.set(k1Body.getPosition())
+                    .addScaled(k2Body.getPosition(), 2)
+                    .addScaled(k3Body.getPosition(), 2)
+                    .add(k4Body.getPosition())
+                    .scale(h / 6.0)
+                    .add(body.getPosition());
+            body.setPosition(update.toVector());
+
+            update.set(k1Body.getVelocity())
+                    .addScaled(k2Body.getVelocity(), 2)
+                    .addScaled(k3Body.getVelocity(), 2)
                     .add(k4Body.getVelocity())
-                    .multiply(h / 6);
-            body.setVelocity(body.getVelocity().add(velocityUpdate));
-
+                    .scale(h / 6.0)
+                    .add(body.getVelocity());
+            body.setVelocity(update.toVector());
         }
 
 
-        time = time.plusMinutes(stepSizeMins);
+        advanceTime();
         //printState();
         recordState();
 
@@ -114,25 +76,24 @@ public class RK4Solver extends Solver {
 
 
     /**
-     * Creates a temporary celestial body for cases of planet or rocket.
+     * Intermediate RK4 state: y + factor * k for every body.
      *
-     * @param original
-     * @param position
-     * @param velocity
-     * @return a new planet or rocket instance.
+     * @param y state at the start of the step.
+     * @param k derivatives of the previous stage.
+     * @param factor step fraction in seconds.
+     * @return temporary bodies holding the stage state.
      */
-    private CelestialBodies createNewBody(CelestialBodies original, Vector position, Vector velocity) {
-        if (original instanceof PlanetModel) {
-            return new PlanetModel(original.getName(), position, velocity, original.getMass(), original.getRelativeScalingFactor(), original.getSize());
-        }
-        else if (original instanceof Earth) {
-            return new Earth(original.getName(), position, velocity, original.getMass(), original.getRelativeScalingFactor(), original.getSize());
-        }
-        else if (original instanceof Titan) {
-            return new Titan(original.getName(), position, velocity, original.getMass(), original.getRelativeScalingFactor(), original.getSize());
+    private ArrayList<CelestialBodies> stage(ArrayList<CelestialBodies> y, ArrayList<CelestialBodies> k, double factor) {
+        ArrayList<CelestialBodies> stage = new ArrayList<>(y.size());
+        for (int i = 0; i < y.size(); i++) {
+            CelestialBodies original = y.get(i);
+            CelestialBodies kBody = k.get(i);
+
+            Vector newPosition = update.fma(original.getPosition(), factor, kBody.getPosition()).toVector();
+            Vector newVelocity = update.fma(original.getVelocity(), factor, kBody.getVelocity()).toVector();
+            stage.add(original.withState(newPosition, newVelocity));
         }
-        else
-            return new Probe(original.getName(), position, velocity, original.getRelativeScalingFactor(), original.getSize());
+        return stage;
     }
 
 
@@ -5,20 +5,26 @@ import com.ken10.Phase2.SolarSystemModel.CelestialBodies;
 import com.ken10.Phase2.SolarSystemModel.SolarSystem;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Hashtable;
 
 /**
  * ODE solver for uses of both Euler and RK4.
  * Computes planetary motion and different timestamps.
+ * <p>
+ * The clock is a long (epoch seconds, UTC) so the step loop doesn't do any date math,
+ * it only becomes a LocalDateTime when a state is recorded to history.
  */
 public abstract class Solver implements ODE_Function {
     protected ArrayList<CelestialBodies> planetarySystem;
-    protected LocalDateTime time;
+    protected long timeSeconds;
     protected LocalDateTime endTime;
     protected int stepSizeMins;
     protected static final LocalDateTime START_TIME = LocalDateTime.of(2025, 4, 1, 0,0);
     public Hashtable<LocalDateTime, ArrayList<CelestialBodies>> history;
+    // false when someone else keeps the states, e.g. Timeline.record
+    protected boolean recordHistory = true;
 
     /**
      * Initialize the ODE solver
@@ -33,7 +39,7 @@ public abstract class Solver implements ODE_Function {
      * @param stepSizeMins Time step size
      */
     public Solver(ArrayList<CelestialBodies> planetarySystem, LocalDateTime startTime, LocalDateTime endTime, int stepSizeMins) {
-        this.time = startTime;
+        this.timeSeconds = toSeconds(startTime);
         this.planetarySystem = planetarySystem;
         this.endTime = endTime;
         this.stepSizeMins = stepSizeMins;
@@ -41,7 +47,7 @@ public abstract class Solver implements ODE_Function {
         recordState();
     }
     public Solver(int stepSizeMins) {
-        this.time = START_TIME;
+        this.timeSeconds = toSeconds(START_TIME);
         this.endTime = LocalDateTime.of(2026, 3, 31, 23, 59, 59);
         this.stepSizeMins = stepSizeMins;
         this.planetarySystem = SolarSystem.createPlanets();
@@ -50,7 +56,7 @@ public abstract class Solver implements ODE_Function {
     }
 
     /**
-     * Advance the solution by one step
+     * Advance the solution by one step and record it
      * This is declared as abstract because of course Euler and RK4 have different
      * ways of calculating the next step
      */
@@ -60,21 +66,49 @@ public abstract class Solver implements ODE_Function {
      * Run the simulation until endTime
      */
     public void solve() {
-        while (time.isBefore(endTime)) {
+        long end = toSeconds(endTime);
+        while (timeSeconds < end) {
             step();
-            recordState();
         }
     }
 
+    /**
+     * Moves the clock on by stepSizeMins.
+     */
+    protected void advanceTime() {
+        timeSeconds += 60L * stepSizeMins;
+    }
+
+    public void setRecordHistory(boolean recordHistory) {
+        this.recordHistory = recordHistory;
+    }
+
+    public boolean isRecordingHistory() {
+        return recordHistory;
+    }
+
+    public LocalDateTime getTime() {
+        return toDateTime(timeSeconds);
+    }
+
+    public static long toSeconds(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    public static LocalDateTime toDateTime(long seconds) {
+        return LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC);
+    }
+
     /**
      * Record current state to history
      */
     protected void recordState() {
+        if (!recordHistory) return;
         ArrayList<CelestialBodies> snapshot = new ArrayList<>();
         for (CelestialBodies body : planetarySystem) {
             snapshot.add(body.deepCopy()); // Deep copy constructor
         }
-        history.put(time, snapshot);
+        history.put(getTime(), snapshot);
     }
 
     public void printState(ArrayList<CelestialBodies> planetarySystem, LocalDateTime time) {
@@ -0,0 +1,112 @@
+package com.ken10.Phase2.StatesCalculations;
+
+import com.ken10.Phase2.SolarSystemModel.CelestialBodies;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+
+/**
+ * Kick-drift-kick leapfrog and Yoshida compositions of it on the flat arrays of ArraySolver.
+ * <p>
+ * The accelerations at the end of a leapfrog substep are the ones the next substep
+ * starts with, so a step costs one force evaluation per substep: 1 for LEAPFROG,
+ * 3 for YOSHIDA4 and 7 for YOSHIDA6. The methods are symplectic, the energy error
+ * oscillates but doesn't drift like it does with RK4, which makes them the better
+ * choice for ephemerides over many years with large steps.
+ */
+public class SymplecticSolver extends ArraySolver {
+
+    public enum Scheme {
+        LEAPFROG(1.0),
+        YOSHIDA4(yoshida4()),
+        YOSHIDA6(yoshida6());
+
+        // fractions of the step each leapfrog substep takes, they add up to 1
+        private final double[] weights;
+
+        Scheme(double... weights) {
+            this.weights = weights;
+        }
+
+        public int forceEvaluationsPerStep() {
+            return weights.length;
+        }
+
+        private static double[] yoshida4() {
+            double cbrt2 = Math.cbrt(2);
+            double w1 = 1 / (2 - cbrt2);
+            double w0 = -cbrt2 / (2 - cbrt2);
+            return new double[]{w1, w0, w1};
+        }
+
+        // Yoshida (1990), solution A
+        private static double[] yoshida6() {
+            double w1 = -1.17767998417887;
+            double w2 = 0.235573213359357;
+            double w3 = 0.784513610477560;
+            double w0 = 1 - 2 * (w1 + w2 + w3);
+            return new double[]{w3, w2, w1, w0, w1, w2, w3};
+        }
+    }
+
+    private final Scheme scheme;
+    private double[] acc;
+    private boolean accReady;
+
+    public SymplecticSolver(ArrayList<CelestialBodies> planetarySystem, LocalDateTime startTime, LocalDateTime endTime,
+                            int stepSizeMins, Scheme scheme) {
+        super(planetarySystem, startTime, endTime, stepSizeMins);
+        this.scheme = scheme;
+    }
+
+    public SymplecticSolver(int stepSizeMins, Scheme scheme) {
+        super(stepSizeMins);
+        this.scheme = scheme;
+    }
+
+    public Scheme getScheme() {
+        return scheme;
+    }
+
+    @Override
+    public String cacheKey() {
+        return super.cacheKey() + "/" + scheme;
+    }
+
+    @Override
+    protected void loadState() {
+        super.loadState();
+        acc = new double[3 * n];
+        accReady = false;
+    }
+
+    @Override
+    public void step() {
+        double h = stepSizeMins * 60.0;
+        if (!accReady) {
+            accelerations(pos, acc);
+            accReady = true;
+        }
+        for (double w : scheme.weights) {
+            leapfrog(w * h);
+        }
+        advanceTime();
+        recordState();
+    }
+
+    /**
+     * One kick-drift-kick substep of h seconds (h can be negative), acc has to
+     * belong to pos when it's called and does again afterwards.
+     */
+    private void leapfrog(double h) {
+        int len = 3 * n;
+        for (int k = FIRST_MOVING; k < len; k++) {
+            vel[k] += h / 2 * acc[k];
+            pos[k] += h * vel[k];
+        }
+        accelerations(pos, acc);
+        for (int k = FIRST_MOVING; k < len; k++) {
+            vel[k] += h / 2 * acc[k];
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package com.ken10.Phase2.StatesCalculations;
+
+import com.ken10.Phase2.SolarSystemModel.BodyID;
+import com.ken10.Phase2.SolarSystemModel.CelestialBodies;
+import com.ken10.Phase2.SolarSystemModel.GravityCalc;
+import com.ken10.Phase2.SolarSystemModel.Vector;
+
+import java.nio.DoubleBuffer;
+import java.time.LocalDateTime;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Solver states on an even time grid, stored flat instead of as a history of
+ * CelestialBodies lists. Sample i is at start + i * step, so finding the sample for a
+ * time is a division, not a hash lookup.
+ * <p>
+ * Sample i starts at i * 6 * bodies with the positions of all bodies followed by their
+ * velocities, bodies in planetarySystem order. Names, masses and types are kept once in
+ * a template, asMap() and state() build bodies from it for code that still wants them.
+ */
+public class Timeline implements EphemerisProvider {
+    private final long startSeconds;
+    private final long stepSeconds;
+    private final CelestialBodies[] template;
+    private final int bodies;
+    private DoubleBuffer data;
+    private int samples;
+    private DenseEphemeris dense;
+
+    private Timeline(long startSeconds, int stepSizeMins, CelestialBodies[] template, int capacity) {
+        this.startSeconds = startSeconds;
+        this.stepSeconds = 60L * stepSizeMins;
+        this.template = template;
+        this.bodies = template.length;
+        this.data = DoubleBuffer.allocate(Math.max(2, capacity) * 6 * bodies);
+    }
+
+    /**
+     * Timeline over samples that are already there, e.g. a file mapped by EphemerisCache.
+     * Nothing gets copied.
+     *
+     * @param template bodies for names, masses and types, in planetarySystem order.
+     * @param data     samples laid out as described above.
+     */
+    Timeline(long startSeconds, long stepSeconds, CelestialBodies[] template, DoubleBuffer data, int samples) {
+        this.startSeconds = startSeconds;
+        this.stepSeconds = stepSeconds;
+        this.template = template;
+        this.bodies = template.length;
+        this.data = data;
+        this.samples = samples;
+    }
+
+    /**
+     * Runs solver to its end time and keeps every step, the solver doesn't fill its
+     * history meanwhile, so no CelestialBodies get created.
+     */
+    public static Timeline record(ArraySolver solver) {
+        long end = Solver.toSeconds(solver.endTime);
+        int steps = (int) Math.ceil((end - solver.timeSeconds) / (solver.stepSizeMins * 60.0));
+        Timeline timeline = new Timeline(solver.timeSeconds, solver.stepSizeMins,
+                solver.planetarySystem.toArray(new CelestialBodies[0]), steps + 1);
+        boolean recording = solver.isRecordingHistory();
+        solver.setRecordHistory(false);
+        try {
+            timeline.add(solver);
+            while (solver.timeSeconds < end) {
+                solver.step();
+                timeline.add(solver);
+            }
+        } finally {
+            solver.setRecordHistory(recording);
+        }
+        return timeline;
+    }
+
+    /**
+     * Copies an existing history, it has to have an entry every stepSizeMins from start to end.
+     */
+    public static Timeline fromHistory(Map<LocalDateTime, ArrayList<CelestialBodies>> history,
+                                       LocalDateTime start, LocalDateTime end, int stepSizeMins) {
+        ArrayList<CelestialBodies> first = history.get(start);
+        if (first == null) {
+            throw new IllegalArgumentException("No state at " + start + " in history");
+        }
+        long startSeconds = Solver.toSeconds(start);
+        int steps = (int) ((Solver.toSeconds(end) - startSeconds) / (60L * stepSizeMins));
+        Timeline timeline = new Timeline(startSeconds, stepSizeMins, first.toArray(new CelestialBodies[0]), steps + 1);
+        for (int s = 0; s <= steps; s++) {
+            LocalDateTime time = start.plusMinutes((long) s * stepSizeMins);
+            ArrayList<CelestialBodies> state = history.get(time);
+            if (state == null) {
+                throw new IllegalArgumentException("No state at " + time + " in history");
+            }
+            timeline.add(state);
+        }
+        return timeline;
+    }
+
+    private int nextSample() {
+        int stride = 6 * bodies;
+        if ((samples + 1) * stride > data.capacity()) {
+            DoubleBuffer bigger = DoubleBuffer.allocate(2 * data.capacity());
+            bigger.put(0, data, 0, samples * stride);
+            data = bigger;
+        }
+        return samples++ * stride;
+    }
+
+    private void add(ArraySolver solver) {
+        int base = nextSample();
+        for (int slot = 0; slot < bodies; slot++) {
+            int body = solver.order[slot];
+            data.put(base + 3 * body, solver.pos, 3 * slot, 3);
+            data.put(base + 3 * (bodies + body), solver.vel, 3 * slot, 3);
+        }
+    }
+
+    private void add(ArrayList<CelestialBodies> state) {
+        int base = nextSample();
+        for (int i = 0; i < bodies; i++) {
+            write(state.get(i).getPosition(), base + 3 * i);
+            write(state.get(i).getVelocity(), base + 3 * (bodies + i));
+        }
+    }
+
+    private void write(Vector v, int o) {
+        data.put(o, v.getX());
+        data.put(o + 1, v.getY());
+        data.put(o + 2, v.getZ());
+    }
+
+    /**
+     * @return the sample at exactly this time, -1 if there is none.
+     */
+    public int indexOf(long epochSeconds) {
+        long offset = epochSeconds - startSeconds;
+        if (offset < 0 || offset % stepSeconds != 0) return -1;
+        long index = offset / stepSeconds;
+        return index < samples ? (int) index : -1;
+    }
+
+    public int indexOf(LocalDateTime time) {
+        return indexOf(Solver.toSeconds(time));
+    }
+
+    public long getSeconds(int index) {
+        return startSeconds + index * stepSeconds;
+    }
+
+    public LocalDateTime getTime(int index) {
+        return Solver.toDateTime(getSeconds(index));
+    }
+
+    /**
+     * Position of one body at sample index into out[0..2].
+     */
+    public void position(int index, int body, double[] out) {
+        data.get(offset(index) + 3 * body, out, 0, 3);
+    }
+
+    public void velocity(int index, int body, double[] out) {
+        data.get(offset(index) + 3 * (bodies + body), out, 0, 3);
+    }
+
+    /**
+     * Positions of all bodies at sample index, 3 per body.
+     */
+    public void positions(int index, double[] out) {
+        data.get(offset(index), out, 0, 3 * bodies);
+    }
+
+    /**
+     * The sample as bodies, new ones on every call.
+     */
+    public ArrayList<CelestialBodies> state(int index) {
+        int base = offset(index);
+        ArrayList<CelestialBodies> state = new ArrayList<>(bodies);
+        for (int i = 0; i < bodies; i++) {
+            int p = base + 3 * i, v = base + 3 * (bodies + i);
+            state.add(template[i].withState(vector(p), vector(v)));
+        }
+        return state;
+    }
+
+    private Vector vector(int o) {
+        return new Vector(data.get(o), data.get(o + 1), data.get(o + 2));
+    }
+
+    int offset(int index) {
+        if (index < 0 || index >= samples) {
+            throw new IndexOutOfBoundsException("Sample " + index + " of " + samples);
+        }
+        return index * 6 * bodies;
+    }
+
+    DoubleBuffer data() {
+        return data;
+    }
+
+    public BodyView body(BodyID body) {
+        return body(body.index());
+    }
+
+    public BodyView body(int body) {
+        if (body < 0 || body >= bodies) {
+            throw new IllegalArgumentException("No body at index " + body);
+        }
+        return new BodyView(body);
+    }
+
+    /**
+     * One body through the whole timeline, reads straight from the flat data.
+     */
+    public final class BodyView {
+        private final int body;
+
+        private BodyView(int body) {
+            this.body = body;
+        }
+
+        public int size() {
+            return samples;
+        }
+
+        public double getX(int index) {
+            return data.get(offset(index) + 3 * body);
+        }
+
+        public double getY(int index) {
+            return data.get(offset(index) + 3 * body + 1);
+        }
+
+        public double getZ(int index) {
+            return data.get(offset(index) + 3 * body + 2);
+        }
+
+        public Vector getPosition(int index) {
+            return vector(offset(index) + 3 * body);
+        }
+
+        public Vector getVelocity(int index) {
+            return vector(offset(index) + 3 * (bodies + body));
+        }
+    }
+
+    /**
+     * Read-only view in the shape of Solver.history, for the GUI and one-off lookups by
+     * time. Every get builds the bodies, loops should use indexOf and positions().
+     */
+    public Map<LocalDateTime, ArrayList<CelestialBodies>> asMap() {
+        return new MapView();
+    }
+
+    /**
+     * The timeline behind a map from asMap(), null for any other map.
+     */
+    public static Timeline fromView(Map<?, ?> map) {
+        return map instanceof MapView view ? view.timeline() : null;
+    }
+
+    private final class MapView extends AbstractMap<LocalDateTime, ArrayList<CelestialBodies>> {
+        Timeline timeline() {
+            return Timeline.this;
+        }
+
+        @Override
+        public ArrayList<CelestialBodies> get(Object key) {
+            if (!(key instanceof LocalDateTime time)) return null;
+            int index = indexOf(time);
+            return index < 0 ? null : state(index);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof LocalDateTime time && indexOf(time) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return samples;
+        }
+
+        @Override
+        public Set<Entry<LocalDateTime, ArrayList<CelestialBodies>>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return samples;
+                }
+
+                @Override
+                public Iterator<Entry<LocalDateTime, ArrayList<CelestialBodies>>> iterator() {
+                    return new Iterator<>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < samples;
+                        }
+
+                        @Override
+                        public Entry<LocalDateTime, ArrayList<CelestialBodies>> next() {
+                            if (next >= samples) throw new NoSuchElementException();
+                            int index = next++;
+                            return new SimpleImmutableEntry<>(getTime(index), state(index));
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    /**
+     * Exact on the grid, in between DenseEphemeris interpolates.
+     */
+    @Override
+    public Vector position(BodyID body, LocalDateTime time) {
+        int index = indexOf(time);
+        return index >= 0 ? vector(offset(index) + 3 * body.index()) : dense().position(body, time);
+    }
+
+    @Override
+    public Vector velocity(BodyID body, LocalDateTime time) {
+        int index = indexOf(time);
+        return index >= 0 ? vector(offset(index) + 3 * (bodies + body.index())) : dense().velocity(body, time);
+    }
+
+    private DenseEphemeris dense() {
+        // made on first use, it only wraps the samples
+        if (dense == null) {
+            dense = new DenseEphemeris(this);
+        }
+        return dense;
+    }
+
+    /**
+     * g * mass per body in planetarySystem order, 0 for test particles.
+     */
+    public double[] getGm() {
+        double[] gm = new double[bodies];
+        for (int i = 0; i < bodies; i++) {
+            gm[i] = template[i].isTestParticle() ? 0 : GravityCalc.g * template[i].getMass();
+        }
+        return gm;
+    }
+
+    public int size() {
+        return samples;
+    }
+
+    public int getBodyCount() {
+        return bodies;
+    }
+
+    public long getStepSeconds() {
+        return stepSeconds;
+    }
+
+    public long getStartSeconds() {
+        return startSeconds;
+    }
+
+    public LocalDateTime getStartTime() {
+        return Solver.toDateTime(startSeconds);
+    }
+
+    public LocalDateTime getEndTime() {
+        return getTime(samples - 1);
+    }
+}
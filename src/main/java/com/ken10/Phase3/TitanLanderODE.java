@@ -16,6 +16,13 @@ public class TitanLanderODE implements OdeFunction {
 
     @Override
     public double[] evaluate(double time, double[] state) {
+        double[] derivatives = new double[6];
+        evaluate(time, state, derivatives);
+        return derivatives;
+    }
+
+    @Override
+    public void evaluate(double time, double[] state, double[] derivatives) {
         double x = state[0];
         double y = state[1];
         double theta = state[2];
@@ -23,15 +30,12 @@ public class TitanLanderODE implements OdeFunction {
         double vy = state[4];
         double omega = state[5];
 
-        double[] derivatives = new double[6];
         derivatives[0] = vx;
         derivatives[1] = vy;
         derivatives[2] = omega;
         derivatives[3] = u * Math.sin(theta);
         derivatives[4] = u * Math.cos(theta) - g;
         derivatives[5] = v;
-
-        return derivatives;
     }
 
 }
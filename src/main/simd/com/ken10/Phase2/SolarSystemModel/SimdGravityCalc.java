@@ -0,0 +1,102 @@
+package com.ken10.Phase2.SolarSystemModel;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Direct summation on SIMD lanes with the (incubating) JDK Vector API.
+ * <p>
+ * The interleaved positions are copied into separate x, y, z arrays first. Then a
+ * whole lane-width batch of target bodies is pulled by one source body per iteration.
+ * It doesn't use newtons third law like GravityCalc, the lanes more than make up for it.
+ * Targets that don't fill a full batch are done with scalar code.
+ * Only the first nMassive bodies are sources, test particles after them are just targets.
+ * <p>
+ * Only compiled with the simd profile (mvn -Psimd ...), get it through
+ * AccelerationProvider.simdOrScalar() so the code still runs without it.
+ */
+public class SimdGravityCalc implements AccelerationProvider {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private double[] x = new double[0];
+    private double[] y = new double[0];
+    private double[] z = new double[0];
+    private double[] ax = new double[0];
+    private double[] ay = new double[0];
+    private double[] az = new double[0];
+
+    @Override
+    public void computeAccelerations(double[] pos, double[] gm, int nMassive, int n, double[] acc) {
+        toSoa(pos, n);
+        int lanes = SPECIES.length();
+        int bound = SPECIES.loopBound(n);
+        DoubleVector zero = DoubleVector.zero(SPECIES);
+
+        for (int i = 0; i < bound; i += lanes) {
+            DoubleVector xi = DoubleVector.fromArray(SPECIES, x, i);
+            DoubleVector yi = DoubleVector.fromArray(SPECIES, y, i);
+            DoubleVector zi = DoubleVector.fromArray(SPECIES, z, i);
+            DoubleVector sumX = zero, sumY = zero, sumZ = zero;
+
+            for (int j = 0; j < nMassive; j++) {
+                DoubleVector dx = DoubleVector.broadcast(SPECIES, x[j]).sub(xi);
+                DoubleVector dy = DoubleVector.broadcast(SPECIES, y[j]).sub(yi);
+                DoubleVector dz = DoubleVector.broadcast(SPECIES, z[j]).sub(zi);
+                DoubleVector r2 = dx.fma(dx, dy.fma(dy, dz.mul(dz)));
+                // r2 == 0 is the target itself (or a body on the same spot), it doesn't pull
+                VectorMask<Double> same = r2.compare(VectorOperators.EQ, 0.0);
+                DoubleVector s = DoubleVector.broadcast(SPECIES, gm[j])
+                        .div(r2.mul(r2.lanewise(VectorOperators.SQRT)))
+                        .blend(zero, same);
+                sumX = s.fma(dx, sumX);
+                sumY = s.fma(dy, sumY);
+                sumZ = s.fma(dz, sumZ);
+            }
+            sumX.intoArray(ax, i);
+            sumY.intoArray(ay, i);
+            sumZ.intoArray(az, i);
+        }
+
+        for (int i = bound; i < n; i++) {
+            double sx = 0, sy = 0, sz = 0;
+            for (int j = 0; j < nMassive; j++) {
+                double dx = x[j] - x[i];
+                double dy = y[j] - y[i];
+                double dz = z[j] - z[i];
+                double r2 = dx * dx + dy * dy + dz * dz;
+                if (r2 == 0) continue;
+                double s = gm[j] / (r2 * Math.sqrt(r2));
+                sx += s * dx;
+                sy += s * dy;
+                sz += s * dz;
+            }
+            ax[i] = sx;
+            ay[i] = sy;
+            az[i] = sz;
+        }
+
+        for (int i = 0; i < n; i++) {
+            acc[3 * i] = ax[i];
+            acc[3 * i + 1] = ay[i];
+            acc[3 * i + 2] = az[i];
+        }
+    }
+
+    private void toSoa(double[] pos, int n) {
+        if (x.length < n) {
+            x = new double[n];
+            y = new double[n];
+            z = new double[n];
+            ax = new double[n];
+            ay = new double[n];
+            az = new double[n];
+        }
+        for (int i = 0; i < n; i++) {
+            x[i] = pos[3 * i];
+            y[i] = pos[3 * i + 1];
+            z[i] = pos[3 * i + 2];
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.ken10.Phase1;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+/**
+ * Lookups by time and decimate, on samples at t = 0, 0.5, 1.0, ...
+ */
+public class TrajectoryTest {
+
+    private static Trajectory samples(int count) {
+        // starts small so it has to grow
+        Trajectory trajectory = new Trajectory(2, 1);
+        for (int i = 0; i < count; i++) {
+            trajectory.add(0.5 * i, new double[]{i, -i});
+        }
+        return trajectory;
+    }
+
+    @Test
+    public void floorIndex() {
+        Trajectory trajectory = samples(10);
+        assertEquals(-1, trajectory.floorIndex(-0.1));
+        assertEquals(0, trajectory.floorIndex(0));
+        assertEquals(0, trajectory.floorIndex(0.49));
+        assertEquals(1, trajectory.floorIndex(0.5));
+        assertEquals(4, trajectory.floorIndex(2.2));
+        assertEquals(9, trajectory.floorIndex(4.5));
+        assertEquals(9, trajectory.floorIndex(100));
+        assertEquals(-1, new Trajectory(2).floorIndex(1));
+    }
+
+    @Test
+    public void nearestIndex() {
+        Trajectory trajectory = samples(10);
+        assertEquals(0, trajectory.nearestIndex(-3));
+        assertEquals(0, trajectory.nearestIndex(0.2));
+        // halfway goes to the earlier sample
+        assertEquals(0, trajectory.nearestIndex(0.25));
+        assertEquals(1, trajectory.nearestIndex(0.3));
+        assertEquals(9, trajectory.nearestIndex(7));
+        assertEquals(-1, new Trajectory(2).nearestIndex(1));
+    }
+
+    @Test
+    public void decimateKeepsEveryStepAndTheLast() {
+        Trajectory decimated = samples(10).decimate(4);
+        assertEquals(4, decimated.size());
+        assertArrayEquals(new double[]{0, 2, 4, 4.5},
+                new double[]{decimated.getTime(0), decimated.getTime(1), decimated.getTime(2), decimated.getTime(3)}, 0);
+        assertArrayEquals(new double[]{8, -8}, decimated.getState(2), 0);
+        assertArrayEquals(new double[]{9, -9}, decimated.getState(3), 0);
+    }
+
+    @Test
+    public void decimateWhenLastIsOnTheStep() {
+        Trajectory decimated = samples(9).decimate(4);
+        assertEquals(3, decimated.size());
+        assertEquals(4, decimated.getTime(2), 0);
+        assertEquals(samples(9).size(), samples(9).decimate(1).size());
+        assertEquals(0, new Trajectory(2).decimate(3).size());
+    }
+
+    @Test
+    public void decimateRejectsStepBelowOne() {
+        assertThrows(IllegalArgumentException.class, () -> samples(3).decimate(0));
+    }
+}
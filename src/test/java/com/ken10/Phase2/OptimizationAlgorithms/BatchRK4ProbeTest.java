@@ -0,0 +1,48 @@
+package com.ken10.Phase2.OptimizationAlgorithms;
+
+import com.ken10.Phase2.SolarSystemModel.BodyID;
+import com.ken10.Phase2.SolarSystemModel.Probe;
+import com.ken10.Phase2.SolarSystemModel.SolarSystem;
+import com.ken10.Phase2.SolarSystemModel.Vector;
+import com.ken10.Phase2.StatesCalculations.ArrayRK4Solver;
+import com.ken10.Phase2.StatesCalculations.Timeline;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The batch against RK4Probe one probe at a time, on a coarse timeline so it stays quick.
+ */
+public class BatchRK4ProbeTest {
+    static final Vector LAUNCH_POSITION = new Vector(-1.4664541759104577E8, -2.8949304626334388E7, 2241.9186033698497);
+    static final Vector LAUNCH_VELOCITY = new Vector(63.28501526589577, -30.337437078355766, -12.818387742029104);
+
+    @Test
+    public void matchesRK4Probe() {
+        Timeline timeline = Timeline.record(new ArrayRK4Solver(SolarSystem.createPlanets(),
+                RK4Probe.startTime, RK4Probe.endTime, 60));
+        List<Probe> probes = new ArrayList<>();
+        for (int k = 0; k < 4; k++) {
+            Vector velocity = LAUNCH_VELOCITY.add(new Vector(0.01 * k, -0.02 * k, 0.005 * k));
+            probes.add(new Probe("probe " + k, LAUNCH_POSITION, velocity));
+        }
+        // starts inside the earth, gets stopped right after launch
+        Vector earth = SolarSystem.createPlanets().get(BodyID.EARTH.index()).getPosition();
+        probes.add(new Probe("crash", earth.add(new Vector(1000, 0, 0)), LAUNCH_VELOCITY));
+
+        BatchRK4Probe batch = new BatchRK4Probe(timeline, 120);
+        batch.solve(probes);
+        assertEquals(probes.size(), batch.size());
+        for (int k = 0; k < probes.size(); k++) {
+            RK4Probe single = new RK4Probe(probes.get(k), timeline, 120);
+            single.solve();
+            assertEquals(probes.get(k).getName(), single.getClosestDistance(), batch.getClosestDistance(k), 0);
+            assertEquals(probes.get(k).getName(), single.getClosestDistTime(), batch.getClosestDistTime(k));
+        }
+        // never moved, so it stayed closest to Titan where it started
+        assertEquals(RK4Probe.startTime, batch.getClosestDistTime(probes.size() - 1));
+    }
+}
@@ -0,0 +1,59 @@
+package com.ken10.Phase2.OptimizationAlgorithms;
+
+import com.ken10.Phase2.SolarSystemModel.BodyID;
+import com.ken10.Phase2.SolarSystemModel.CelestialBodies;
+import com.ken10.Phase2.SolarSystemModel.Probe;
+import com.ken10.Phase2.SolarSystemModel.SolarSystem;
+import com.ken10.Phase2.SolarSystemModel.Vector;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import static com.ken10.Phase2.OptimizationAlgorithms.BatchRK4ProbeTest.LAUNCH_POSITION;
+import static com.ken10.Phase2.OptimizationAlgorithms.BatchRK4ProbeTest.LAUNCH_VELOCITY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Crashes right after launch, and the reference launch against RK4Probe.
+ */
+public class BulirschStoerProbeTest {
+
+    @Test
+    public void probeFiredIntoEarthCrashes() {
+        CelestialBodies earth = SolarSystem.createPlanets().get(BodyID.EARTH.index());
+        Vector down = earth.getPosition().subtract(LAUNCH_POSITION).normalize();
+        Probe probe = new Probe("down", LAUNCH_POSITION, earth.getVelocity().add(down.multiply(5)));
+        BulirschStoerProbe solver = new BulirschStoerProbe(probe, 60);
+        solver.setRecordHistory(false);
+        solver.solve();
+        assertTrue(solver.hasCrashed());
+        assertTrue(solver.isStopped());
+        assertTrue(solver.getTime().isBefore(RK4Probe.startTime.plusMinutes(RK4Probe.LAUNCH_CHECK_MINUTES + 1)));
+    }
+
+    @Test
+    public void referenceLaunchMatchesRK4Probe() {
+        BulirschStoerProbe solver = new BulirschStoerProbe(new Probe("reference", LAUNCH_POSITION, LAUNCH_VELOCITY), 60);
+        solver.setRecordHistory(false);
+        solver.solve();
+        assertFalse(solver.hasCrashed());
+        // RK4Probe at 1 minute steps gets 3.8730e7 km, its planets and flyby are coarser than these
+        assertEquals(3.87468e7, solver.getClosestDistance(), 1e3);
+        assertEquals(0, ChronoUnit.HOURS.between(LocalDateTime.of(2026, 1, 20, 23, 0), solver.getClosestDistTime()), 24);
+    }
+
+    @Test
+    public void closestApproachDoesNotDependOnOutputInterval() {
+        BulirschStoerProbe hourly = new BulirschStoerProbe(new Probe("hourly", LAUNCH_POSITION, LAUNCH_VELOCITY), 60);
+        BulirschStoerProbe daily = new BulirschStoerProbe(new Probe("daily", LAUNCH_POSITION, LAUNCH_VELOCITY), 1440);
+        hourly.setRecordHistory(false);
+        daily.setRecordHistory(false);
+        hourly.solve();
+        daily.solve();
+        assertEquals(hourly.getClosestDistance(), daily.getClosestDistance(), 100);
+        assertEquals(0, ChronoUnit.SECONDS.between(hourly.getClosestDistTime(), daily.getClosestDistTime()), 60);
+    }
+}
@@ -0,0 +1,84 @@
+package com.ken10.Phase2.OptimizationAlgorithms;
+
+import com.ken10.Phase2.SolarSystemModel.Probe;
+import com.ken10.Phase2.SolarSystemModel.SolarSystem;
+import com.ken10.Phase2.SolarSystemModel.Vector;
+import com.ken10.Phase2.StatesCalculations.ArrayRK4Solver;
+import com.ken10.Phase2.StatesCalculations.Timeline;
+import org.junit.Test;
+
+import static com.ken10.Phase2.OptimizationAlgorithms.BatchRK4ProbeTest.LAUNCH_POSITION;
+import static com.ken10.Phase2.OptimizationAlgorithms.BatchRK4ProbeTest.LAUNCH_VELOCITY;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The dual gradients against central differences of the plain values, with a burn on the first day.
+ */
+public class DualRK4ProbeTest {
+    private static final double BURN_END = 86400;
+    private static final double[] BURN = {1e-6, -2e-6, 5e-7};
+    private static final double VELOCITY_DELTA = 1e-5;
+    private static final double THRUST_DELTA = 1e-9;
+
+    // coarse planets and probe steps keep it quick
+    private final Timeline timeline = Timeline.record(new ArrayRK4Solver(SolarSystem.createPlanets(),
+            RK4Probe.startTime, RK4Probe.endTime, 10));
+
+    @Test
+    public void gradientsMatchFiniteDifferences() {
+        DualRK4Probe dual = fly(LAUNCH_VELOCITY, BURN);
+
+        Vector velocityGradient = dual.getVelocityGradient();
+        double[] expected = new double[3];
+        for (int k = 0; k < 3; k++) {
+            double[] step = new double[3];
+            step[k] = VELOCITY_DELTA;
+            Vector dv = new Vector(step[0], step[1], step[2]);
+            expected[k] = difference(dual, fly(LAUNCH_VELOCITY.add(dv), BURN), fly(LAUNCH_VELOCITY.subtract(dv), BURN))
+                    / (2 * VELOCITY_DELTA);
+        }
+        double tolerance = 1e-6 * velocityGradient.magnitude();
+        assertEquals(expected[0], velocityGradient.getX(), tolerance);
+        assertEquals(expected[1], velocityGradient.getY(), tolerance);
+        assertEquals(expected[2], velocityGradient.getZ(), tolerance);
+
+        double[] thrustGradient = dual.getThrustGradient();
+        assertEquals(3, thrustGradient.length);
+        tolerance = 1e-6 * Vector.magnitude(thrustGradient[0], thrustGradient[1], thrustGradient[2]);
+        for (int k = 0; k < 3; k++) {
+            double[] plus = BURN.clone();
+            double[] minus = BURN.clone();
+            plus[k] += THRUST_DELTA;
+            minus[k] -= THRUST_DELTA;
+            double difference = difference(dual, fly(LAUNCH_VELOCITY, plus), fly(LAUNCH_VELOCITY, minus));
+            assertEquals(difference / (2 * THRUST_DELTA), thrustGradient[k], tolerance);
+        }
+    }
+
+    @Test
+    public void coastingMatchesRK4Probe() {
+        DualRK4Probe dual = new DualRK4Probe(new Probe("dual", LAUNCH_POSITION, LAUNCH_VELOCITY), timeline, 20, null);
+        RK4Probe plain = new RK4Probe(new Probe("plain", LAUNCH_POSITION, LAUNCH_VELOCITY), timeline, 20);
+        dual.solve();
+        plain.solve();
+        assertEquals(plain.getClosestDistance(), dual.getClosestDistance(), 0);
+        assertEquals(plain.getClosestDistTime(), dual.getClosestDistTime());
+        assertEquals(0, dual.getThrustGradient().length);
+    }
+
+    private DualRK4Probe fly(Vector velocity, double[] burn) {
+        DualRK4Probe probe = new DualRK4Probe(new Probe("probe", LAUNCH_POSITION, velocity), timeline, 20,
+                new ConstantBurn(0, BURN_END, burn[0], burn[1], burn[2]));
+        probe.solve();
+        return probe;
+    }
+
+    /**
+     * plus minus minus, the difference is only smooth while the closest approach stays in the same step.
+     */
+    private static double difference(DualRK4Probe reference, DualRK4Probe plus, DualRK4Probe minus) {
+        assertEquals(reference.getClosestDistTime(), plus.getClosestDistTime());
+        assertEquals(reference.getClosestDistTime(), minus.getClosestDistTime());
+        return plus.getClosestDistance() - minus.getClosestDistance();
+    }
+}
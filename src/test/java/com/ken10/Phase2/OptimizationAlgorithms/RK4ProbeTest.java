@@ -0,0 +1,34 @@
+package com.ken10.Phase2.OptimizationAlgorithms;
+
+import com.ken10.Phase2.SolarSystemModel.Probe;
+import com.ken10.Phase2.SolarSystemModel.SolarSystem;
+import com.ken10.Phase2.StatesCalculations.ArrayRK4Solver;
+import com.ken10.Phase2.StatesCalculations.DenseEphemeris;
+import com.ken10.Phase2.StatesCalculations.Timeline;
+import org.junit.Test;
+
+import static com.ken10.Phase2.OptimizationAlgorithms.BatchRK4ProbeTest.LAUNCH_POSITION;
+import static com.ken10.Phase2.OptimizationAlgorithms.BatchRK4ProbeTest.LAUNCH_VELOCITY;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Planets at the probe's own step through the dense output against planets at half of it.
+ */
+public class RK4ProbeTest {
+
+    @Test
+    public void denseEphemerisMatchesHalfStepPlanets() {
+        Timeline halfStep = Timeline.record(new ArrayRK4Solver(SolarSystem.createPlanets(),
+                RK4Probe.startTime, RK4Probe.endTime, 60));
+        Timeline fullStep = Timeline.record(new ArrayRK4Solver(SolarSystem.createPlanets(),
+                RK4Probe.startTime, RK4Probe.endTime, 120));
+        RK4Probe reference = new RK4Probe(new Probe("half", LAUNCH_POSITION, LAUNCH_VELOCITY), halfStep, 120);
+        RK4Probe dense = new RK4Probe(new Probe("dense", LAUNCH_POSITION, LAUNCH_VELOCITY),
+                new DenseEphemeris(fullStep), 120);
+        reference.solve();
+        dense.solve();
+        assertEquals(reference.getClosestDistTime(), dense.getClosestDistTime());
+        // the mid-step planets are interpolated instead of integrated, and the planets themselves took longer steps
+        assertEquals(reference.getClosestDistance(), dense.getClosestDistance(), 10);
+    }
+}
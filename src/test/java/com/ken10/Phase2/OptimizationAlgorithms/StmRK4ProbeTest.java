@@ -0,0 +1,51 @@
+package com.ken10.Phase2.OptimizationAlgorithms;
+
+import com.ken10.Phase2.SolarSystemModel.Probe;
+import com.ken10.Phase2.SolarSystemModel.SolarSystem;
+import com.ken10.Phase2.SolarSystemModel.Vector;
+import com.ken10.Phase2.StatesCalculations.ArrayRK4Solver;
+import com.ken10.Phase2.StatesCalculations.Timeline;
+import org.junit.Test;
+
+import static com.ken10.Phase2.OptimizationAlgorithms.BatchRK4ProbeTest.LAUNCH_POSITION;
+import static com.ken10.Phase2.OptimizationAlgorithms.BatchRK4ProbeTest.LAUNCH_VELOCITY;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The gradient from the state transition matrix against central differences of RK4Probe.
+ */
+public class StmRK4ProbeTest {
+    private static final double DELTA = 1e-5;
+
+    @Test
+    public void distanceGradientMatchesFiniteDifferences() {
+        // coarse planets and probe steps keep it quick, both sides see the same ones
+        Timeline timeline = Timeline.record(new ArrayRK4Solver(SolarSystem.createPlanets(),
+                RK4Probe.startTime, RK4Probe.endTime, 10));
+        StmRK4Probe stm = new StmRK4Probe(new Probe("stm", LAUNCH_POSITION, LAUNCH_VELOCITY), timeline, 20);
+        stm.solve();
+        RK4Probe reference = new RK4Probe(new Probe("reference", LAUNCH_POSITION, LAUNCH_VELOCITY), timeline, 20);
+        reference.solve();
+        assertEquals(reference.getClosestDistance(), stm.getClosestDistance(), 0);
+
+        Vector gradient = stm.getDistanceGradient();
+        double[] expected = new double[3];
+        for (int k = 0; k < 3; k++) {
+            double[] step = new double[3];
+            step[k] = DELTA;
+            Vector dv = new Vector(step[0], step[1], step[2]);
+            RK4Probe plus = new RK4Probe(new Probe("plus", LAUNCH_POSITION, LAUNCH_VELOCITY.add(dv)), timeline, 20);
+            RK4Probe minus = new RK4Probe(new Probe("minus", LAUNCH_POSITION, LAUNCH_VELOCITY.subtract(dv)), timeline, 20);
+            plus.solve();
+            minus.solve();
+            // the difference is only smooth while the closest approach stays in the same step
+            assertEquals(reference.getClosestDistTime(), plus.getClosestDistTime());
+            assertEquals(reference.getClosestDistTime(), minus.getClosestDistTime());
+            expected[k] = (plus.getClosestDistance() - minus.getClosestDistance()) / (2 * DELTA);
+        }
+        double tolerance = 1e-6 * gradient.magnitude();
+        assertEquals(expected[0], gradient.getX(), tolerance);
+        assertEquals(expected[1], gradient.getY(), tolerance);
+        assertEquals(expected[2], gradient.getZ(), tolerance);
+    }
+}
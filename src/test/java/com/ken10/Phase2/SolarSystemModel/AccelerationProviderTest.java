@@ -0,0 +1,38 @@
+package com.ken10.Phase2.SolarSystemModel;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Cache keys: lambdas have none unless they are given one.
+ */
+public class AccelerationProviderTest {
+
+    @Test
+    public void lambdasHaveNoKey() {
+        AccelerationProvider exact = GravityCalc::computeAccelerations;
+        AccelerationProvider none = (pos, gm, nMassive, n, acc) -> { };
+        // both declared here, stripping the lambda suffix would give them the same key
+        assertNull(exact.cacheKey());
+        assertNull(none.cacheKey());
+        assertEquals("exact", AccelerationProvider.withKey("exact", exact).cacheKey());
+    }
+
+    @Test
+    public void classesAreKeyedByName() {
+        assertTrue(new ParallelGravityCalc().cacheKey().startsWith(ParallelGravityCalc.class.getName()));
+        assertNotNull(AccelerationProvider.simdOrScalar().cacheKey());
+    }
+
+    @Test
+    public void chunksOnlyCountOnTheParallelPath() {
+        ParallelGravityCalc parallel = new ParallelGravityCalc(100);
+        // the serial path is GravityCalc, so it shares the key of the scalar provider
+        assertEquals(GravityCalc.class.getName(), parallel.cacheKey(99));
+        assertTrue(parallel.cacheKey(100).contains("/chunks="));
+    }
+}
@@ -0,0 +1,103 @@
+package com.ken10.Phase2.SolarSystemModel;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static com.ken10.Phase2.SolarSystemModel.GravityCalcTest.assertClose;
+import static com.ken10.Phase2.SolarSystemModel.GravityCalcTest.randomPositions;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The tree against direct summation with GravityCalc.
+ */
+public class BarnesHutTreeTest {
+    private static final int N_MASSIVE = 300;
+    private static final int N = 400;
+
+    @Test
+    public void thetaZeroIsDirectSummation() {
+        double[] pos = randomPositions(N, 3);
+        double[] gm = lightGm(N, 4);
+        assertMatchesDirect(new BarnesHutTree(0, BarnesHutTree.DEFAULT_MASSIVE_GM), pos, gm, 1e-12);
+    }
+
+    @Test
+    public void defaultThetaIsClose() {
+        double[] pos = randomPositions(N, 5);
+        double[] gm = lightGm(N, 6);
+        assertMatchesDirect(new BarnesHutTree(), pos, gm, 0.05);
+    }
+
+    @Test
+    public void massiveBodiesAreSummedDirectly() {
+        // only bodies above massiveGm pull, so even a coarse tree has nothing to approximate
+        double[] pos = randomPositions(N, 7);
+        double[] gm = new double[N];
+        gm[0] = 1.3e11;
+        gm[1] = 3.8e5;
+        double[] expected = new double[3 * N];
+        double[] acc = new double[3 * N];
+        GravityCalc.computeAccelerations(pos, gm, N_MASSIVE, N, expected);
+        new BarnesHutTree(0.9, BarnesHutTree.DEFAULT_MASSIVE_GM).computeAccelerations(pos, gm, N_MASSIVE, N, acc);
+        for (int i = 0; i < N; i++) {
+            assertClose(expected, acc, 3 * i, 1e-12);
+        }
+    }
+
+    @Test
+    public void coincidentBodiesDontPullThemselves() {
+        // a cluster far out whose members are closer together than MAX_DEPTH can split
+        double[] pos = randomPositions(N, 9);
+        for (int i = 0; i < 8; i++) {
+            pos[3 * i] = 1e8 + i * 1e-8;
+            pos[3 * i + 1] = 1e8;
+            pos[3 * i + 2] = 1e8;
+        }
+        double[] gm = lightGm(N, 10);
+        for (double theta : new double[]{0, 0.5, 0.9}) {
+            BarnesHutTree tree = new BarnesHutTree(theta, BarnesHutTree.DEFAULT_MASSIVE_GM);
+            double[] acc = new double[3 * N];
+            tree.computeAccelerations(pos, gm, N_MASSIVE, N, acc);
+            for (int k = 0; k < acc.length; k++) {
+                assertTrue("acc[" + k + "] at theta " + theta, Double.isFinite(acc[k]));
+            }
+        }
+        assertMatchesDirect(new BarnesHutTree(0, BarnesHutTree.DEFAULT_MASSIVE_GM), pos, gm, 1e-9);
+    }
+
+    @Test
+    public void negativeThetaIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new BarnesHutTree(-0.1, BarnesHutTree.DEFAULT_MASSIVE_GM));
+    }
+
+    private static double[] lightGm(int n, long seed) {
+        Random random = new Random(seed);
+        double[] gm = new double[n];
+        for (int i = 0; i < n; i++) {
+            gm[i] = random.nextDouble() * 100;
+        }
+        return gm;
+    }
+
+    /**
+     * Worst error over all bodies, relative to the rms acceleration since bodies whose
+     * pulls cancel out have hardly any of their own.
+     */
+    private static void assertMatchesDirect(AccelerationProvider provider, double[] pos, double[] gm, double tolerance) {
+        double[] expected = new double[3 * N];
+        double[] acc = new double[3 * N];
+        GravityCalc.computeAccelerations(pos, gm, N_MASSIVE, N, expected);
+        provider.computeAccelerations(pos, gm, N_MASSIVE, N, acc);
+        double squares = 0, worst = 0;
+        for (int i = 0; i < N; i++) {
+            squares += expected[3 * i] * expected[3 * i] + expected[3 * i + 1] * expected[3 * i + 1]
+                    + expected[3 * i + 2] * expected[3 * i + 2];
+            worst = Math.max(worst, Vector.distance(expected[3 * i], expected[3 * i + 1], expected[3 * i + 2],
+                    acc[3 * i], acc[3 * i + 1], acc[3 * i + 2]));
+        }
+        assertEquals(0, worst, tolerance * Math.sqrt(squares / N));
+    }
+}
@@ -0,0 +1,76 @@
+package com.ken10.Phase2.SolarSystemModel;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The pairwise kernel against summing the pull on each body on its own.
+ */
+public class GravityCalcTest {
+
+    @Test
+    public void pairsMatchPerBodySumForSolarSystem() {
+        ArrayList<CelestialBodies> planets = SolarSystem.createPlanets();
+        Vector[] accelerations = GravityCalc.computeAccelerations(planets);
+        for (int i = 0; i < planets.size(); i++) {
+            Vector expected = GravityCalc.computeAcceleration(planets, i);
+            assertClose(expected, accelerations[i], 1e-12);
+        }
+    }
+
+    @Test
+    public void testParticlesArePulledButDoNotPull() {
+        int nMassive = 20, n = 50;
+        double[] pos = randomPositions(n, 1);
+        double[] gm = randomGm(n, 2);
+        double[] acc = new double[3 * n];
+        GravityCalc.computeAccelerations(pos, gm, nMassive, n, acc);
+
+        // the massive bodies see the same as without the particles
+        double[] massiveOnly = new double[3 * nMassive];
+        GravityCalc.computeAccelerations(pos, gm, nMassive, massiveOnly);
+        for (int k = 0; k < 3 * nMassive; k++) {
+            assertEquals(massiveOnly[k], acc[k], 0);
+        }
+        double[] expected = new double[3 * n];
+        for (int i = 0; i < n; i++) {
+            GravityCalc.accelerationAt(pos, gm, nMassive, pos[3 * i], pos[3 * i + 1], pos[3 * i + 2], expected, 3 * i);
+            assertClose(expected, acc, 3 * i, 1e-12);
+        }
+    }
+
+    static double[] randomPositions(int n, long seed) {
+        Random random = new Random(seed);
+        double[] pos = new double[3 * n];
+        for (int k = 0; k < pos.length; k++) {
+            pos[k] = (random.nextDouble() - 0.5) * 1e9;
+        }
+        return pos;
+    }
+
+    static double[] randomGm(int n, long seed) {
+        Random random = new Random(seed);
+        double[] gm = new double[n];
+        for (int i = 0; i < n; i++) {
+            gm[i] = random.nextDouble() * 1e5;
+        }
+        return gm;
+    }
+
+    /**
+     * actual[o..o+2] within tolerance of expected[o..o+2], relative to the size of expected.
+     */
+    static void assertClose(double[] expected, double[] actual, int o, double tolerance) {
+        double size = Vector.magnitude(expected[o], expected[o + 1], expected[o + 2]);
+        assertEquals(0, Vector.distance(expected[o], expected[o + 1], expected[o + 2], actual[o], actual[o + 1], actual[o + 2]),
+                tolerance * size);
+    }
+
+    private static void assertClose(Vector expected, Vector actual, double tolerance) {
+        assertEquals(0, expected.subtract(actual).magnitude(), tolerance * expected.magnitude());
+    }
+}
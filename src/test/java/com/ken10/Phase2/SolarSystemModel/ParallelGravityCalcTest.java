@@ -0,0 +1,69 @@
+package com.ken10.Phase2.SolarSystemModel;
+
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static com.ken10.Phase2.SolarSystemModel.GravityCalcTest.assertClose;
+import static com.ken10.Phase2.SolarSystemModel.GravityCalcTest.randomGm;
+import static com.ken10.Phase2.SolarSystemModel.GravityCalcTest.randomPositions;
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * The forked kernel against GravityCalc, on pools of one and of several threads.
+ */
+public class ParallelGravityCalcTest {
+
+    @Test
+    public void oneThreadMatchesGravityCalc() {
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            double[][] results = compare(new ParallelGravityCalc(16, pool), 200, 150, 0);
+            assertArrayEquals(results[0], results[1], 0);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void threeThreadsMatchGravityCalc() {
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            compare(new ParallelGravityCalc(16, pool), 200, 150, 1e-12);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void reusedForOtherSizes() {
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            ParallelGravityCalc calc = new ParallelGravityCalc(16, pool);
+            compare(calc, 300, 300, 1e-12);
+            compare(calc, 40, 17, 1e-12);
+            compare(calc, 120, 90, 1e-12);
+            // below the threshold it is GravityCalc itself
+            double[][] results = compare(calc, 10, 10, 0);
+            assertArrayEquals(results[0], results[1], 0);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @return what GravityCalc and calc computed for n random bodies, the first nMassive pulling.
+     */
+    private static double[][] compare(ParallelGravityCalc calc, int n, int nMassive, double tolerance) {
+        double[] pos = randomPositions(n, n);
+        double[] gm = randomGm(n, nMassive);
+        double[] expected = new double[3 * n];
+        double[] acc = new double[3 * n];
+        GravityCalc.computeAccelerations(pos, gm, nMassive, n, expected);
+        calc.computeAccelerations(pos, gm, nMassive, n, acc);
+        for (int i = 0; i < n; i++) {
+            assertClose(expected, acc, 3 * i, tolerance);
+        }
+        return new double[][]{expected, acc};
+    }
+}
@@ -0,0 +1,54 @@
+package com.ken10.Phase2.StatesCalculations;
+
+import com.ken10.Phase2.SolarSystemModel.SolarSystem;
+import org.junit.Test;
+
+import static com.ken10.Phase2.StatesCalculations.SolverReference.END;
+import static com.ken10.Phase2.StatesCalculations.SolverReference.START;
+import static com.ken10.Phase2.StatesCalculations.SolverReference.assertMatches;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThrows;
+
+/**
+ * The generated coefficients against the textbook ones, and the solver against the fine RK4 reference.
+ */
+public class AdamsBashforthMoultonSolverTest {
+
+    @Test
+    public void bashforthCoefficients() {
+        assertArrayEquals(new double[]{1}, AdamsBashforthMoultonSolver.bashforthCoefficients(1), 1e-15);
+        assertArrayEquals(new double[]{1.5, -0.5}, AdamsBashforthMoultonSolver.bashforthCoefficients(2), 1e-15);
+        assertArrayEquals(new double[]{23.0 / 12, -16.0 / 12, 5.0 / 12},
+                AdamsBashforthMoultonSolver.bashforthCoefficients(3), 1e-15);
+        assertArrayEquals(new double[]{55.0 / 24, -59.0 / 24, 37.0 / 24, -9.0 / 24},
+                AdamsBashforthMoultonSolver.bashforthCoefficients(4), 1e-14);
+    }
+
+    @Test
+    public void moultonCoefficients() {
+        assertArrayEquals(new double[]{0.5, 0.5}, AdamsBashforthMoultonSolver.moultonCoefficients(2), 1e-15);
+        assertArrayEquals(new double[]{5.0 / 12, 8.0 / 12, -1.0 / 12},
+                AdamsBashforthMoultonSolver.moultonCoefficients(3), 1e-15);
+        assertArrayEquals(new double[]{1, -1.0 / 2, -1.0 / 12, -1.0 / 24},
+                AdamsBashforthMoultonSolver.moultonGamma(4), 1e-15);
+    }
+
+    @Test
+    public void fixedOrderMatchesReference() {
+        assertMatches(new AdamsBashforthMoultonSolver(SolarSystem.createPlanets(), START, END, 60, 8), 0.01);
+        assertMatches(new AdamsBashforthMoultonSolver(SolarSystem.createPlanets(), START, END, 10, 4), 0.01);
+    }
+
+    @Test
+    public void variableOrderMatchesReference() {
+        assertMatches(new AdamsBashforthMoultonSolver(SolarSystem.createPlanets(), START, END, 60), 0.01);
+    }
+
+    @Test
+    public void orderOutOfRangeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new AdamsBashforthMoultonSolver(SolarSystem.createPlanets(),
+                START, END, 60, 0));
+        assertThrows(IllegalArgumentException.class, () -> new AdamsBashforthMoultonSolver(SolarSystem.createPlanets(),
+                START, END, 60, AdamsBashforthMoultonSolver.MAX_ORDER + 1));
+    }
+}
@@ -0,0 +1,68 @@
+package com.ken10.Phase2.StatesCalculations;
+
+import com.ken10.Phase2.SolarSystemModel.SolarSystem;
+import org.junit.Test;
+
+import static com.ken10.Phase2.StatesCalculations.SolverReference.END;
+import static com.ken10.Phase2.StatesCalculations.SolverReference.START;
+import static com.ken10.Phase2.StatesCalculations.SolverReference.assertMatches;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Bulirsch-Stoer against the fine RK4 reference.
+ */
+public class BulirschStoerSolverTest {
+
+    @Test
+    public void hourlyOutputMatchesReference() {
+        assertMatches(new BulirschStoerSolver(SolarSystem.createPlanets(), START, END, 60), 0.01);
+    }
+
+    @Test
+    public void dailyOutputMatchesReference() {
+        assertMatches(new BulirschStoerSolver(SolarSystem.createPlanets(), START, END, 1440), 0.01);
+    }
+
+    @Test
+    public void outputIntervalDoesNotLimitTheSteps() {
+        BulirschStoerSolver everyMinute = new BulirschStoerSolver(SolarSystem.createPlanets(), START, END, 1);
+        BulirschStoerSolver daily = new BulirschStoerSolver(SolarSystem.createPlanets(), START, END, 1440);
+        Timeline minutes = Timeline.record(everyMinute);
+        Timeline days = Timeline.record(daily);
+        // 43200 outputs, but the internal steps are the ones the daily run takes
+        assertEquals(daily.getAcceptedSteps(), everyMinute.getAcceptedSteps(), 10);
+
+        // the outputs in between come from the quintic Hermite
+        double[] expected = new double[3 * days.getBodyCount()];
+        double[] actual = new double[expected.length];
+        for (int i = 0; i < days.size(); i++) {
+            days.positions(i, expected);
+            minutes.positions(minutes.indexOf(days.getSeconds(i)), actual);
+            for (int k = 0; k < expected.length; k++) {
+                assertEquals(expected[k], actual[k], 1e-2);
+            }
+        }
+    }
+
+    @Test
+    public void maxStepLimitsTheSteps() {
+        BulirschStoerSolver capped = new BulirschStoerSolver(SolarSystem.createPlanets(), START, END, 1440,
+                BulirschStoerSolver.DEFAULT_ABS_TOL, BulirschStoerSolver.DEFAULT_REL_TOL, 3600);
+        assertMatches(capped, 0.01);
+        assertTrue(capped.getStatistics(), capped.getAcceptedSteps() >= 30 * 24);
+        assertThrows(IllegalArgumentException.class, () -> new BulirschStoerSolver(SolarSystem.createPlanets(), START, END,
+                60, BulirschStoerSolver.DEFAULT_ABS_TOL, BulirschStoerSolver.DEFAULT_REL_TOL, 0));
+    }
+
+    @Test
+    public void solveRunsToTheEnd() {
+        BulirschStoerSolver solver = new BulirschStoerSolver(SolarSystem.createPlanets(), START, END, 1440);
+        solver.setRecordHistory(false);
+        solver.solve();
+        assertFalse(solver.isStopped());
+        assertEquals(END, solver.getTime());
+    }
+}
@@ -0,0 +1,89 @@
+package com.ken10.Phase2.StatesCalculations;
+
+import com.ken10.Phase2.SolarSystemModel.SolarSystem;
+import com.ken10.Phase2.SolarSystemModel.Vector;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Fits of 60 days at hourly samples, checked at every sample.
+ */
+public class ChebyshevEphemerisTest {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 4, 1, 0, 0);
+
+    private static Timeline timeline;
+
+    private static synchronized Timeline timeline() {
+        if (timeline == null) {
+            timeline = Timeline.record(new ArrayRK4Solver(SolarSystem.createPlanets(), START, START.plusDays(60), 60));
+        }
+        return timeline;
+    }
+
+    @Test
+    public void fitIsWithinTolerance() {
+        // one 60 day granule starts out checking only every 5th sample
+        for (double granuleDays : new double[]{8, 60}) {
+            for (double tolerance : new double[]{1, 1e-3}) {
+                ChebyshevEphemeris fit = ChebyshevEphemeris.fit(timeline(), granuleDays, tolerance);
+                assertTrue(fit.getMaxError() + " km", fit.getMaxError() <= tolerance);
+                assertEquals(0, worstPositionError(fit), tolerance);
+            }
+        }
+    }
+
+    @Test
+    public void velocityMatchesSamples() {
+        ChebyshevEphemeris fit = ChebyshevEphemeris.fit(timeline(), 8, 1e-3);
+        Timeline timeline = timeline();
+        double[] expected = new double[3];
+        double[] actual = new double[3];
+        double worst = 0;
+        for (int i = 0; i < timeline.size(); i++) {
+            for (int body = 0; body < timeline.getBodyCount(); body++) {
+                timeline.velocity(i, body, expected);
+                fit.velocityAt(body, timeline.getSeconds(i), actual);
+                worst = Math.max(worst, Vector.distance(expected[0], expected[1], expected[2], actual[0], actual[1], actual[2]));
+            }
+        }
+        assertEquals(0, worst, 1e-5);
+    }
+
+    @Test
+    public void unreachableToleranceIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ChebyshevEphemeris.fit(timeline(), 8, 1e-9));
+    }
+
+    @Test
+    public void badArgumentsAreRejected() {
+        for (double tolerance : new double[]{0, -1, Double.NaN, Double.POSITIVE_INFINITY}) {
+            assertThrows(IllegalArgumentException.class, () -> ChebyshevEphemeris.fit(timeline(), 8, tolerance));
+        }
+        for (double days : new double[]{0, -1, Double.NaN, Double.POSITIVE_INFINITY}) {
+            assertThrows(IllegalArgumentException.class, () -> ChebyshevEphemeris.fit(timeline(), days, 1));
+        }
+    }
+
+    /**
+     * Largest distance between fit and timeline over all samples and bodies.
+     */
+    private static double worstPositionError(ChebyshevEphemeris fit) {
+        Timeline timeline = timeline();
+        double[] expected = new double[3];
+        double[] actual = new double[3];
+        double worst = 0;
+        for (int i = 0; i < timeline.size(); i++) {
+            for (int body = 0; body < timeline.getBodyCount(); body++) {
+                timeline.position(i, body, expected);
+                fit.positionAt(body, timeline.getSeconds(i), actual);
+                worst = Math.max(worst, Vector.distance(expected[0], expected[1], expected[2], actual[0], actual[1], actual[2]));
+            }
+        }
+        return worst;
+    }
+}
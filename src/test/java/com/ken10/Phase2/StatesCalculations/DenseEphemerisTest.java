@@ -0,0 +1,55 @@
+package com.ken10.Phase2.StatesCalculations;
+
+import com.ken10.Phase2.SolarSystemModel.SolarSystem;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * positionsAt and stateAt inline the Hermite weights, they have to agree with hermiteBasis.
+ */
+public class DenseEphemerisTest {
+
+    @Test
+    public void inlinedWeightsMatchHermite() {
+        LocalDateTime start = LocalDateTime.of(2025, 4, 1, 0, 0);
+        Timeline timeline = Timeline.record(new ArrayRK4Solver(SolarSystem.createPlanets(), start, start.plusDays(5), 720));
+        DenseEphemeris ephemeris = new DenseEphemeris(timeline);
+        int bodies = ephemeris.getBodyCount();
+        double step = timeline.getStepSeconds();
+        double[] positions = new double[3 * bodies];
+        double[] position = new double[3];
+        double[] velocity = new double[3];
+        double[] ends = new double[12];
+        double[] expectedPosition = new double[3];
+        double[] expectedVelocity = new double[3];
+        double[] sample = new double[3];
+        Random random = new Random(18);
+        for (int trial = 0; trial < 50; trial++) {
+            int interval = random.nextInt(timeline.size() - 1);
+            double s = random.nextDouble();
+            double seconds = timeline.getSeconds(interval) + s * step;
+            ephemeris.positionsAt(seconds, positions);
+            for (int body = 0; body < bodies; body++) {
+                for (int end = 0; end < 2; end++) {
+                    timeline.position(interval + end, body, sample);
+                    System.arraycopy(sample, 0, ends, 6 * end, 3);
+                    timeline.velocity(interval + end, body, sample);
+                    System.arraycopy(sample, 0, ends, 6 * end + 3, 3);
+                }
+                // the fraction the way the ephemeris computes it, so only the weights can differ
+                double fraction = (seconds - timeline.getStartSeconds()) / step - interval;
+                DenseEphemeris.hermite(ends, step, fraction, expectedPosition, expectedVelocity);
+                ephemeris.stateAt(body, seconds, position, velocity);
+                for (int k = 0; k < 3; k++) {
+                    assertEquals("positionsAt, body " + body, expectedPosition[k], positions[3 * body + k], 0);
+                    assertEquals("stateAt, body " + body, expectedPosition[k], position[k], 0);
+                    assertEquals("stateAt velocity, body " + body, expectedVelocity[k], velocity[k], 0);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.ken10.Phase2.StatesCalculations;
+
+import com.ken10.Phase2.SolarSystemModel.SolarSystem;
+import org.junit.Test;
+
+import static com.ken10.Phase2.StatesCalculations.SolverReference.END;
+import static com.ken10.Phase2.StatesCalculations.SolverReference.START;
+import static com.ken10.Phase2.StatesCalculations.SolverReference.assertMatches;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Dormand-Prince against the fine RK4 reference.
+ */
+public class DormandPrinceSolverTest {
+
+    @Test
+    public void hourlyOutputMatchesReference() {
+        assertMatches(new DormandPrinceSolver(SolarSystem.createPlanets(), START, END, 60), 0.05);
+    }
+
+    @Test
+    public void dailyOutputMatchesReference() {
+        assertMatches(new DormandPrinceSolver(SolarSystem.createPlanets(), START, END, 1440), 0.05);
+    }
+
+    @Test
+    public void outputIntervalDoesNotLimitTheSteps() {
+        DormandPrinceSolver everyMinute = new DormandPrinceSolver(SolarSystem.createPlanets(), START, END, 1);
+        DormandPrinceSolver daily = new DormandPrinceSolver(SolarSystem.createPlanets(), START, END, 1440);
+        Timeline minutes = Timeline.record(everyMinute);
+        Timeline days = Timeline.record(daily);
+        // 43200 outputs, but the internal steps are the ones the daily run takes
+        assertEquals(daily.getAcceptedSteps(), everyMinute.getAcceptedSteps(), 10);
+
+        // the outputs in between come from the continuous extension
+        double[] expected = new double[3 * days.getBodyCount()];
+        double[] actual = new double[expected.length];
+        for (int i = 0; i < days.size(); i++) {
+            days.positions(i, expected);
+            minutes.positions(minutes.indexOf(days.getSeconds(i)), actual);
+            for (int k = 0; k < expected.length; k++) {
+                assertEquals(expected[k], actual[k], 1e-3);
+            }
+        }
+    }
+
+    @Test
+    public void maxStepLimitsTheSteps() {
+        DormandPrinceSolver capped = new DormandPrinceSolver(SolarSystem.createPlanets(), START, END, 1440,
+                DormandPrinceSolver.DEFAULT_ABS_TOL, DormandPrinceSolver.DEFAULT_REL_TOL, 3600);
+        assertMatches(capped, 0.05);
+        assertTrue(capped.getStatistics(), capped.getAcceptedSteps() >= 30 * 24);
+        assertThrows(IllegalArgumentException.class, () -> new DormandPrinceSolver(SolarSystem.createPlanets(), START, END,
+                60, DormandPrinceSolver.DEFAULT_ABS_TOL, DormandPrinceSolver.DEFAULT_REL_TOL, 0));
+    }
+
+    @Test
+    public void looserToleranceTakesFewerSteps() {
+        DormandPrinceSolver tight = new DormandPrinceSolver(SolarSystem.createPlanets(), START, END, 1440);
+        DormandPrinceSolver loose = new DormandPrinceSolver(SolarSystem.createPlanets(), START, END, 1440, 1e-2, 1e-9);
+        Timeline.record(tight);
+        Timeline.record(loose);
+        assertTrue(tight.getStatistics() + " vs " + loose.getStatistics(),
+                loose.getAcceptedSteps() < tight.getAcceptedSteps());
+    }
+}
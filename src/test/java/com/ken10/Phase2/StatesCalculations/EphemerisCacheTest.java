@@ -0,0 +1,133 @@
+package com.ken10.Phase2.StatesCalculations;
+
+import com.ken10.Phase2.SolarSystemModel.SolarSystem;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Round trips through a cache directory, and files that must not be trusted. A solver that
+ * is still at its start time after load came from the file, one at its end time was recorded.
+ */
+public class EphemerisCacheTest {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 4, 1, 0, 0);
+    private static final LocalDateTime END = START.plusDays(2);
+
+    @Test
+    public void mappedFileIsTheRecordedTimeline() throws IOException {
+        Path directory = Files.createTempDirectory("ephemeris-test");
+        try {
+            EphemerisCache cache = new EphemerisCache(directory);
+            Timeline recorded = Timeline.record(solver());
+            ArraySolver first = solver();
+            Timeline written = cache.load(first);
+            assertEquals(END, first.getTime());
+
+            ArraySolver second = solver();
+            Timeline mapped = cache.load(second);
+            assertEquals(START, second.getTime());
+            assertBitIdentical(recorded, written);
+            assertBitIdentical(recorded, mapped);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void truncatedFileIsRecordedAgain() throws IOException {
+        Path directory = Files.createTempDirectory("ephemeris-test");
+        try {
+            EphemerisCache cache = new EphemerisCache(directory);
+            cache.load(solver());
+            // not the loaded one, that is mapped from the file changed below
+            Timeline recorded = Timeline.record(solver());
+            Path file = onlyFile(directory);
+            long size = Files.size(file);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(size - 8);
+            }
+
+            ArraySolver again = solver();
+            Timeline reloaded = cache.load(again);
+            assertEquals(END, again.getTime());
+            assertBitIdentical(recorded, reloaded);
+            assertEquals(size, Files.size(onlyFile(directory)));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void otherKeyIsRecordedAgain() throws IOException {
+        Path directory = Files.createTempDirectory("ephemeris-test");
+        try {
+            EphemerisCache cache = new EphemerisCache(directory);
+            cache.load(solver());
+            // not the loaded one, that is mapped from the file changed below
+            Timeline recorded = Timeline.record(solver());
+            Path file = onlyFile(directory);
+            // the key is at byte 40 of the header, the file name only has half of it
+            byte[] bytes = Files.readAllBytes(file);
+            bytes[71] ^= 1;
+            Files.write(file, bytes);
+
+            ArraySolver again = solver();
+            Timeline reloaded = cache.load(again);
+            assertEquals(END, again.getTime());
+            assertBitIdentical(recorded, reloaded);
+
+            // different settings go to a file of their own
+            ArraySolver coarser = new ArrayRK4Solver(SolarSystem.createPlanets(), START, END, 120);
+            cache.load(coarser);
+            assertEquals(END, coarser.getTime());
+            try (Stream<Path> files = Files.list(directory)) {
+                assertEquals(2, files.count());
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static ArraySolver solver() {
+        return new ArrayRK4Solver(SolarSystem.createPlanets(), START, END, 60);
+    }
+
+    private static void assertBitIdentical(Timeline expected, Timeline actual) {
+        assertEquals(expected.getStartSeconds(), actual.getStartSeconds());
+        assertEquals(expected.getStepSeconds(), actual.getStepSeconds());
+        assertEquals(expected.size(), actual.size());
+        int doubles = 6 * expected.getBodyCount() * expected.size();
+        for (int i = 0; i < doubles; i++) {
+            assertEquals("value " + i, Double.doubleToRawLongBits(expected.data().get(i)),
+                    Double.doubleToRawLongBits(actual.data().get(i)));
+        }
+    }
+
+    private static Path onlyFile(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> list = files.toList();
+            assertEquals(1, list.size());
+            assertTrue(list.get(0).getFileName().toString().endsWith(".bin"));
+            return list.get(0);
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.ken10.Phase2.StatesCalculations;
+
+import com.ken10.Phase2.SolarSystemModel.BodyID;
+import com.ken10.Phase2.SolarSystemModel.SolarSystem;
+import com.ken10.Phase2.SolarSystemModel.Vector;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+/**
+ * 20 days in segments of 5, with room for only one segment at a time.
+ */
+public class LazyEphemerisTest {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 4, 1, 0, 0);
+    private static final LocalDateTime END = START.plusDays(20);
+    private static final int SEGMENT_MINUTES = 5 * 1440;
+
+    private static LazyEphemeris ephemeris() {
+        // a segment is 121 samples of 11 bodies, 63888 bytes
+        return new LazyEphemeris(SolarSystem.createPlanets(), START, END, 60, SEGMENT_MINUTES, 70_000);
+    }
+
+    @Test
+    public void evictedSegmentIsRegenerated() {
+        LazyEphemeris ephemeris = ephemeris();
+        assertEquals(4, ephemeris.getSegmentCount());
+        assertEquals(1, ephemeris.getMaxSegments());
+        assertEquals(0, ephemeris.getComputedSegments());
+
+        LocalDateTime inFirst = START.plusDays(2).plusHours(7);
+        Vector first = ephemeris.position(BodyID.MOON, inFirst);
+        assertEquals(1, ephemeris.getComputedSegments());
+
+        // the two segments in between get integrated on the way, only the last one is kept
+        LocalDateTime inThird = START.plusDays(12);
+        Vector third = ephemeris.position(BodyID.MOON, inThird);
+        assertEquals(3, ephemeris.getComputedSegments());
+        assertEquals(1, ephemeris.getCachedSegments());
+
+        // back to the first, integrated again from its checkpoint
+        assertSameVector(first, ephemeris.position(BodyID.MOON, inFirst));
+        assertEquals(4, ephemeris.getComputedSegments());
+        assertEquals(1, ephemeris.getCachedSegments());
+
+        // the third starts from the checkpoint the first pass left
+        assertSameVector(third, ephemeris.position(BodyID.MOON, inThird));
+        assertEquals(5, ephemeris.getComputedSegments());
+    }
+
+    @Test
+    public void matchesOneSolverOverTheWholeSpan() {
+        Timeline timeline = Timeline.record(new ArrayRK4Solver(SolarSystem.createPlanets(), START, END, 60));
+        LazyEphemeris ephemeris = ephemeris();
+        // backwards, so every segment is evicted and regenerated along the way
+        for (int i = timeline.size() - 1; i >= 0; i -= 7) {
+            LocalDateTime time = timeline.getTime(i);
+            for (BodyID body : new BodyID[]{BodyID.EARTH, BodyID.MOON, BodyID.TITAN}) {
+                assertSameVector(timeline.position(body, time), ephemeris.position(body, time));
+            }
+        }
+        // a time between samples interpolates in its segment like the timeline does
+        LocalDateTime between = START.plusDays(5).minusMinutes(20);
+        assertEquals(0, timeline.position(BodyID.MOON, between).subtract(ephemeris.position(BodyID.MOON, between)).magnitude(), 1e-6);
+    }
+
+    @Test
+    public void outsideTheSpanIsRejected() {
+        LazyEphemeris ephemeris = ephemeris();
+        assertThrows(IllegalArgumentException.class, () -> ephemeris.position(BodyID.EARTH, START.minusMinutes(1)));
+        assertThrows(IllegalArgumentException.class, () -> ephemeris.position(BodyID.EARTH, END.plusMinutes(1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> new LazyEphemeris(SolarSystem.createPlanets(), START, END, 60, 90, 70_000));
+    }
+
+    private static void assertSameVector(Vector expected, Vector actual) {
+        assertEquals(expected.getX(), actual.getX(), 0);
+        assertEquals(expected.getY(), actual.getY(), 0);
+        assertEquals(expected.getZ(), actual.getZ(), 0);
+    }
+}
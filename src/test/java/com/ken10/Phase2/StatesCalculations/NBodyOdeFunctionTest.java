@@ -0,0 +1,45 @@
+package com.ken10.Phase2.StatesCalculations;
+
+import com.ken10.Phase1.RungeKutta4Solver;
+import com.ken10.Phase2.SolarSystemModel.CelestialBodies;
+import com.ken10.Phase2.SolarSystemModel.SolarSystem;
+import com.ken10.Phase2.SolarSystemModel.Vector;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static com.ken10.Phase2.StatesCalculations.SolverReference.START;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The Phase1 RK4 through NBodyOdeFunction against ArrayRK4Solver: same stages, same sums,
+ * same kernel, so the states have to be the same to the bit.
+ */
+public class NBodyOdeFunctionTest {
+
+    @Test
+    public void rungeKutta4MatchesArrayRK4Solver() {
+        int stepMinutes = 10;
+        ArrayRK4Solver arrays = new ArrayRK4Solver(SolarSystem.createPlanets(), START, START.plusDays(2), stepMinutes);
+        arrays.setRecordHistory(false);
+        arrays.solve();
+
+        ArrayList<CelestialBodies> bodies = SolarSystem.createPlanets();
+        NBodyOdeFunction function = new NBodyOdeFunction(bodies);
+        RungeKutta4Solver phase1 = new RungeKutta4Solver(function, NBodyOdeFunction.pack(bodies),
+                0, 2 * 86400, stepMinutes * 60.0);
+        double[] state = phase1.solveFinalState();
+
+        for (int i = 0; i < bodies.size(); i++) {
+            Vector position = arrays.planetarySystem.get(i).getPosition();
+            Vector velocity = arrays.planetarySystem.get(i).getVelocity();
+            int b = 6 * i;
+            assertEquals("body " + i, position.getX(), state[b], 0);
+            assertEquals("body " + i, position.getY(), state[b + 1], 0);
+            assertEquals("body " + i, position.getZ(), state[b + 2], 0);
+            assertEquals("body " + i, velocity.getX(), state[b + 3], 0);
+            assertEquals("body " + i, velocity.getY(), state[b + 4], 0);
+            assertEquals("body " + i, velocity.getZ(), state[b + 5], 0);
+        }
+    }
+}
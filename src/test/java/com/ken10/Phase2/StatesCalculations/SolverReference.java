@@ -0,0 +1,52 @@
+package com.ken10.Phase2.StatesCalculations;
+
+import com.ken10.Phase2.SolarSystemModel.SolarSystem;
+import com.ken10.Phase2.SolarSystemModel.Vector;
+
+import java.time.LocalDateTime;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 30 days of SolarSystem.createPlanets() with ArrayRK4Solver at 1 minute steps, good to
+ * about 1e-4 km, for checking the other solvers against.
+ */
+final class SolverReference {
+    static final LocalDateTime START = LocalDateTime.of(2025, 4, 1, 0, 0);
+    static final LocalDateTime END = START.plusDays(30);
+
+    private static double[] positions;
+
+    private SolverReference() {
+    }
+
+    /**
+     * Positions of all bodies at END, 3 per body in planetarySystem order.
+     */
+    static synchronized double[] positions() {
+        if (positions == null) {
+            positions = finalPositions(new ArrayRK4Solver(SolarSystem.createPlanets(), START, END, 1));
+        }
+        return positions;
+    }
+
+    static double[] finalPositions(ArraySolver solver) {
+        Timeline timeline = Timeline.record(solver);
+        double[] out = new double[3 * timeline.getBodyCount()];
+        timeline.positions(timeline.size() - 1, out);
+        return out;
+    }
+
+    /**
+     * Runs solver (START to END) and checks every body ends within toleranceKm of the reference.
+     */
+    static void assertMatches(ArraySolver solver, double toleranceKm) {
+        double[] expected = positions();
+        double[] actual = finalPositions(solver);
+        for (int i = 0; i < expected.length / 3; i++) {
+            int o = 3 * i;
+            assertEquals(solver.cacheKey() + " body " + i, 0, Vector.distance(expected[o], expected[o + 1], expected[o + 2],
+                    actual[o], actual[o + 1], actual[o + 2]), toleranceKm);
+        }
+    }
+}
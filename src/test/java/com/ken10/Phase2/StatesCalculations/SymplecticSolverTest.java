@@ -0,0 +1,49 @@
+package com.ken10.Phase2.StatesCalculations;
+
+import com.ken10.Phase2.SolarSystemModel.SolarSystem;
+import org.junit.Test;
+
+import static com.ken10.Phase2.StatesCalculations.SolverReference.END;
+import static com.ken10.Phase2.StatesCalculations.SolverReference.START;
+import static com.ken10.Phase2.StatesCalculations.SolverReference.assertMatches;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The Yoshida schemes against the fine RK4 reference, leapfrog for keeping its energy.
+ */
+public class SymplecticSolverTest {
+
+    @Test
+    public void yoshida6MatchesReference() {
+        assertMatches(new SymplecticSolver(SolarSystem.createPlanets(), START, END, 60, SymplecticSolver.Scheme.YOSHIDA6), 0.01);
+    }
+
+    @Test
+    public void yoshida4MatchesReference() {
+        assertMatches(new SymplecticSolver(SolarSystem.createPlanets(), START, END, 10, SymplecticSolver.Scheme.YOSHIDA4), 0.01);
+    }
+
+    @Test
+    public void leapfrogEnergyStaysBounded() {
+        // two years at 6 hours, the error oscillates instead of growing like it does for RK4
+        SymplecticSolver solver = new SymplecticSolver(SolarSystem.createPlanets(), START, START.plusYears(2), 360,
+                SymplecticSolver.Scheme.LEAPFROG);
+        solver.setRecordHistory(false);
+        double initial = solver.totalEnergy();
+        long middle = Solver.toSeconds(START.plusYears(1));
+        long end = Solver.toSeconds(solver.endTime);
+        double firstYear = 0, secondYear = 0;
+        while (solver.timeSeconds < end) {
+            solver.step();
+            double error = Math.abs((solver.totalEnergy() - initial) / initial);
+            if (solver.timeSeconds <= middle) {
+                firstYear = Math.max(firstYear, error);
+            } else {
+                secondYear = Math.max(secondYear, error);
+            }
+        }
+        assertEquals(0, firstYear, 1e-6);
+        assertTrue("first year " + firstYear + ", second year " + secondYear, secondYear < 2 * firstYear);
+    }
+}
@@ -0,0 +1,111 @@
+package com.ken10.Phase2.StatesCalculations;
+
+import com.ken10.Phase2.SolarSystemModel.BodyID;
+import com.ken10.Phase2.SolarSystemModel.CelestialBodies;
+import com.ken10.Phase2.SolarSystemModel.SolarSystem;
+import com.ken10.Phase2.SolarSystemModel.Vector;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A recorded Timeline against the Hashtable history of the same run.
+ */
+public class TimelineTest {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 4, 1, 0, 0);
+    private static final LocalDateTime END = START.plusDays(10);
+
+    private static Hashtable<LocalDateTime, ArrayList<CelestialBodies>> history() {
+        ArrayRK4Solver solver = new ArrayRK4Solver(SolarSystem.createPlanets(), START, END, 60);
+        solver.solve();
+        return solver.history;
+    }
+
+    private static Timeline timeline() {
+        return Timeline.record(new ArrayRK4Solver(SolarSystem.createPlanets(), START, END, 60));
+    }
+
+    @Test
+    public void asMapMatchesHistory() {
+        Hashtable<LocalDateTime, ArrayList<CelestialBodies>> history = history();
+        Map<LocalDateTime, ArrayList<CelestialBodies>> view = timeline().asMap();
+        assertEquals(history.size(), view.size());
+        assertEquals(history.keySet(), view.keySet());
+        for (Map.Entry<LocalDateTime, ArrayList<CelestialBodies>> entry : history.entrySet()) {
+            assertSameStates(entry.getValue(), view.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void asMapOffTheGrid() {
+        Map<LocalDateTime, ArrayList<CelestialBodies>> view = timeline().asMap();
+        assertNull(view.get(START.plusMinutes(30)));
+        assertNull(view.get(START.minusHours(1)));
+        assertNull(view.get(END.plusHours(1)));
+        assertNull(view.get("not a time"));
+        assertTrue(view.containsKey(END));
+        assertFalse(view.containsKey(START.plusSeconds(1)));
+    }
+
+    @Test
+    public void fromViewGivesTheTimelineBack() {
+        Timeline timeline = timeline();
+        assertSame(timeline, Timeline.fromView(timeline.asMap()));
+        assertNull(Timeline.fromView(new HashMap<>()));
+    }
+
+    @Test
+    public void fromHistoryMatchesRecord() {
+        Timeline recorded = timeline();
+        Timeline copied = Timeline.fromHistory(history(), START, END, 60);
+        assertEquals(recorded.size(), copied.size());
+        double[] expected = new double[3 * recorded.getBodyCount()];
+        double[] actual = new double[expected.length];
+        for (int i = 0; i < recorded.size(); i++) {
+            recorded.positions(i, expected);
+            copied.positions(i, actual);
+            for (int k = 0; k < expected.length; k++) {
+                assertEquals(expected[k], actual[k], 0);
+            }
+        }
+    }
+
+    @Test
+    public void positionByTime() {
+        Timeline timeline = timeline();
+        int index = timeline.indexOf(START.plusHours(5));
+        assertEquals(5, index);
+        Vector onGrid = timeline.position(BodyID.EARTH, START.plusHours(5));
+        assertEquals(timeline.body(BodyID.EARTH).getX(index), onGrid.getX(), 0);
+        // in between it interpolates, earth moves about 30 km/s
+        Vector between = timeline.position(BodyID.EARTH, START.plusHours(5).plusMinutes(30));
+        assertEquals(30 * 1800, between.subtract(onGrid).magnitude(), 3000);
+        assertThrows(IllegalArgumentException.class, () -> timeline.position(BodyID.EARTH, END.plusMinutes(1)));
+    }
+
+    private static void assertSameStates(ArrayList<CelestialBodies> expected, ArrayList<CelestialBodies> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getName(), actual.get(i).getName());
+            assertSameVector(expected.get(i).getPosition(), actual.get(i).getPosition());
+            assertSameVector(expected.get(i).getVelocity(), actual.get(i).getVelocity());
+        }
+    }
+
+    private static void assertSameVector(Vector expected, Vector actual) {
+        assertEquals(expected.getX(), actual.getX(), 0);
+        assertEquals(expected.getY(), actual.getY(), 0);
+        assertEquals(expected.getZ(), actual.getZ(), 0);
+    }
+}